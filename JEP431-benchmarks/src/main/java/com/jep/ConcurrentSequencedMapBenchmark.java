@@ -0,0 +1,171 @@
+package com.jep;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SequencedMap;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a {@link SequencedMap} shared by eight threads: {@link ConcurrentSequencedMap}
+ * against a {@link LinkedHashMap} behind one monitor.
+ *
+ * <p>Java 21 has no {@code Collections.synchronizedSequencedMap}; the baseline is the equivalent
+ * wrapper, every call synchronized on the map as {@code Collections.synchronizedMap} does.</p>
+ *
+ * <ul>
+ *   <li>{@code readMostly}: six threads {@code get} and two {@code putLast} keys that are
+ *       present, so every write moves an entry to the end of the order</li>
+ *   <li>{@code cacheAside}: eight threads look a key up and put it on a miss, over twice as many
+ *       keys as fit, the access pattern of an LRU cache</li>
+ * </ul>
+ *
+ * <p>{@code order} picks insertion order or an LRU of {@link #CAPACITY} entries; in an LRU every
+ * {@code get} reorders too, which is where one lock hurts most. Run on a machine with at least
+ * eight cores, or add {@code -t} and {@code -tg} to match it.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentSequencedMapBenchmark {
+
+    static final int CAPACITY = 1 << 16;
+
+    private static final int KEYS = 2 * CAPACITY;
+
+    @Param({"synchronized", "concurrent"})
+    String impl;
+
+    @Param({"insertion", "lru"})
+    String order;
+
+    private SequencedMap<Integer, Integer> map;
+    private Integer[] keys;
+
+    @Setup
+    public void setUp() {
+        boolean lru = order.equals("lru");
+        map = switch (impl) {
+            case "synchronized" -> new SynchronizedSequencedMap<>(lru
+                    ? new LinkedHashMap<>(2 * CAPACITY, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                            return size() > CAPACITY;
+                        }
+                    }
+                    : new LinkedHashMap<>(2 * CAPACITY));
+            case "concurrent" -> lru ? ConcurrentSequencedMap.lru(CAPACITY) : new ConcurrentSequencedMap<>();
+            default -> throw new IllegalArgumentException("Unknown impl " + impl);
+        };
+        keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = i;
+        }
+        for (int i = 0; i < CAPACITY; i++) {
+            map.put(keys[i], keys[i]);
+        }
+    }
+
+    /**
+     * Each thread's own walk through the keys.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        Integer next(Integer[] keys, int bound) {
+            return keys[random.nextInt(bound)];
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(6)
+    public Integer readMostlyGet(Cursor cursor) {
+        return map.get(cursor.next(keys, CAPACITY));
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(2)
+    public Integer readMostlyPutLast(Cursor cursor) {
+        Integer key = cursor.next(keys, CAPACITY);
+        return map.putLast(key, key);
+    }
+
+    @Benchmark
+    @Group("cacheAside")
+    @GroupThreads(8)
+    public Integer cacheAside(Cursor cursor) {
+        Integer key = cursor.next(keys, KEYS);
+        Integer value = map.get(key);
+        if (value == null) {
+            map.put(key, key);
+        }
+        return value;
+    }
+
+    /**
+     * What {@code Collections.synchronizedSequencedMap} would return, for the operations the
+     * benchmark uses.
+     */
+    private static final class SynchronizedSequencedMap<K, V> extends AbstractMap<K, V>
+            implements SequencedMap<K, V> {
+
+        private final SequencedMap<K, V> map;
+
+        SynchronizedSequencedMap(SequencedMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override
+        public synchronized V get(Object key) {
+            return map.get(key);
+        }
+
+        @Override
+        public synchronized V put(K key, V value) {
+            return map.put(key, value);
+        }
+
+        @Override
+        public synchronized V putLast(K key, V value) {
+            return map.putLast(key, value);
+        }
+
+        @Override
+        public synchronized int size() {
+            return map.size();
+        }
+
+        @Override
+        public synchronized Set<Map.Entry<K, V>> entrySet() {
+            return Set.copyOf(map.entrySet());
+        }
+
+        @Override
+        public SequencedMap<K, V> reversed() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.jep;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LinkedHashMap} against {@link IntSequencedMap} keyed by the same ids.
+ *
+ * <ul>
+ *   <li>{@code build*}: inserting every id into an empty map sized for them</li>
+ *   <li>{@code get*}: looking every id up in a full map</li>
+ *   <li>{@code iterate*}: walking a full map in encounter order</li>
+ *   <li>{@code churn*}: moving every id to the front with {@code putFirst}, then polling them all
+ *       from the back</li>
+ * </ul>
+ *
+ * <p>The ids are scattered over the whole {@code int} range, as generated ids would be. Run with
+ * {@code -prof gc} to see the allocation per build, which is the map's footprint plus, for
+ * {@code LinkedHashMap}, the boxed keys; {@link SequencedMapFootprint} measures the retained heap
+ * directly.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SequencedMapBenchmark {
+
+    private static final String VALUE = "value";
+
+    @Param({"1000000"})
+    int size;
+
+    private int[] ids;
+    private LinkedHashMap<Integer, String> linkedHashMap;
+    private IntSequencedMap<String> intSequencedMap;
+
+    @Setup
+    public void setUp() {
+        ids = SequencedMapFootprint.ids(size);
+        linkedHashMap = buildLinkedHashMap();
+        intSequencedMap = buildIntSequencedMap();
+    }
+
+    @Benchmark
+    public LinkedHashMap<Integer, String> buildLinkedHashMap() {
+        LinkedHashMap<Integer, String> map = LinkedHashMap.newLinkedHashMap(size);
+        for (int id : ids) {
+            map.put(id, VALUE);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public IntSequencedMap<String> buildIntSequencedMap() {
+        IntSequencedMap<String> map = new IntSequencedMap<>(size);
+        for (int id : ids) {
+            map.put(id, VALUE);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public int getLinkedHashMap() {
+        int found = 0;
+        for (int id : ids) {
+            if (linkedHashMap.get(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int getIntSequencedMap() {
+        int found = 0;
+        for (int id : ids) {
+            if (intSequencedMap.get(id) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public long iterateLinkedHashMap() {
+        long total = 0;
+        for (Map.Entry<Integer, String> entry : linkedHashMap.entrySet()) {
+            total += entry.getKey();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long iterateIntSequencedMap() {
+        long[] total = new long[1];
+        intSequencedMap.forEachEntry((id, value) -> total[0] += id);
+        return total[0];
+    }
+
+    @Benchmark
+    public long churnLinkedHashMap() {
+        LinkedHashMap<Integer, String> map = linkedHashMap;
+        for (int id : ids) {
+            map.putFirst(id, VALUE);
+        }
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            total += map.pollLastEntry().getKey();
+        }
+        for (int id : ids) {
+            map.put(id, VALUE);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long churnIntSequencedMap() {
+        IntSequencedMap<String> map = intSequencedMap;
+        for (int id : ids) {
+            map.putFirst(id, VALUE);
+        }
+        long total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int id = map.lastKey();
+            map.remove(id);
+            total += id;
+        }
+        for (int id : ids) {
+            map.put(id, VALUE);
+        }
+        return total;
+    }
+}
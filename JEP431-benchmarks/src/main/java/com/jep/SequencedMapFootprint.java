@@ -0,0 +1,103 @@
+package com.jep;
+
+import java.lang.ref.Reference;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.function.IntFunction;
+
+/**
+ * Retained heap of insertion-ordered maps and sets holding {@code -Dsequenced.size} ids (ten
+ * million by default), the JDK's linked collections against the primitive-keyed ones.
+ *
+ * <p>Every map shares one value object, so the figures are the collections' own overhead plus, for
+ * the JDK ones, the boxed keys. Run it with the fat jar on the class path:</p>
+ *
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar com.jep.SequencedMapFootprint
+ * </pre>
+ */
+public final class SequencedMapFootprint {
+
+    private static final Object VALUE = new Object();
+
+    private SequencedMapFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int size = Integer.getInteger("sequenced.size", 10_000_000);
+        int[] ids = ids(size);
+
+        System.out.printf("%,d ids%n", size);
+        long baseline = measure("LinkedHashMap<Integer, Object>", size, 0, n -> {
+            LinkedHashMap<Integer, Object> map = LinkedHashMap.newLinkedHashMap(n);
+            for (int id : ids) {
+                map.put(id, VALUE);
+            }
+            return map;
+        });
+        measure("IntSequencedMap<Object>", size, baseline, n -> {
+            IntSequencedMap<Object> map = new IntSequencedMap<>(n);
+            for (int id : ids) {
+                map.put(id, VALUE);
+            }
+            return map;
+        });
+        baseline = measure("LinkedHashMap<Long, Object>", size, 0, n -> {
+            LinkedHashMap<Long, Object> map = LinkedHashMap.newLinkedHashMap(n);
+            for (int id : ids) {
+                map.put((long) id << 20, VALUE);
+            }
+            return map;
+        });
+        measure("LongSequencedMap<Object>", size, baseline, n -> {
+            LongSequencedMap<Object> map = new LongSequencedMap<>(n);
+            for (int id : ids) {
+                map.put((long) id << 20, VALUE);
+            }
+            return map;
+        });
+        baseline = measure("LinkedHashSet<Integer>", size, 0, n -> {
+            LinkedHashSet<Integer> set = LinkedHashSet.newLinkedHashSet(n);
+            for (int id : ids) {
+                set.add(id);
+            }
+            return set;
+        });
+        measure("IntSequencedSet", size, baseline, n -> {
+            IntSequencedSet set = new IntSequencedSet(n);
+            for (int id : ids) {
+                set.add(id);
+            }
+            return set;
+        });
+    }
+
+    /**
+     * {@code size} distinct ids spread over the whole {@code int} range, in no particular order.
+     */
+    static int[] ids(int size) {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            // Multiplying by an odd constant is a bijection on int, so the ids are distinct.
+            ids[i] = (i + 1) * 0x9E3779B1;
+        }
+        return ids;
+    }
+
+    private static long measure(String name, int size, long baseline, IntFunction<Object> build) {
+        long before = usedHeap();
+        Object collection = build.apply(size);
+        long bytes = usedHeap() - before;
+        String ratio = baseline == 0 ? "" : String.format(" (%.1fx smaller)", (double) baseline / bytes);
+        System.out.printf("%-32s %,7d MiB  %5.1f bytes/entry%s%n",
+                name, bytes >> 20, (double) bytes / size, ratio);
+        Reference.reachabilityFence(collection);
+        return bytes;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
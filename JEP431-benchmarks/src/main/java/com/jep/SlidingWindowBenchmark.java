@@ -0,0 +1,107 @@
+package com.jep;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full sliding window of {@code window} (timestamp, amount) ticks that drops its oldest tick
+ * for every new one and keeps a running total, held as an {@link ArrayDeque} of records and as an
+ * {@link OffHeapRingBuffer} of 16-byte records.
+ *
+ * <p>The point is less the time per tick than what the collector does meanwhile: run with
+ * {@code -prof gc} and compare {@code gc.count} and {@code gc.time}. The deque keeps
+ * {@code window} live objects that every old-generation cycle traces and a steady stream of
+ * promoted ones; the ring buffer is one object and allocates nothing per tick.</p>
+ *
+ * <p>Needs {@code --enable-preview} for the Foreign Function &amp; Memory API, which the forks
+ * are given.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx3g"})
+@OperationsPerInvocation(SlidingWindowBenchmark.TICKS)
+public class SlidingWindowBenchmark {
+
+    static final int TICKS = 1024;
+
+    @Param({"10000000"})
+    int window;
+
+    private ArrayDeque<Tick> deque;
+    private OffHeapRingBuffer ring;
+    private long dequeTotal;
+    private long ringTotal;
+    private long time;
+
+    /**
+     * The on-heap element.
+     */
+    record Tick(long time, long amount) {
+    }
+
+    @Setup
+    public void setUp() {
+        deque = new ArrayDeque<>(window);
+        ring = OffHeapRingBuffer.allocate(window, 2 * Long.BYTES);
+        for (time = 0; time < window; time++) {
+            deque.addLast(new Tick(time, amount(time)));
+            MemorySegment record = ring.claimLast();
+            record.set(ValueLayout.JAVA_LONG, 0, time);
+            record.set(ValueLayout.JAVA_LONG, Long.BYTES, amount(time));
+            dequeTotal += amount(time);
+            ringTotal += amount(time);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ring.close();
+    }
+
+    private static long amount(long time) {
+        return (time * 0x9E3779B97F4A7C15L) >>> 48;
+    }
+
+    @Benchmark
+    public long arrayDeque() {
+        for (int i = 0; i < TICKS; i++) {
+            dequeTotal -= deque.removeFirst().amount();
+            long t = time++;
+            deque.addLast(new Tick(t, amount(t)));
+            dequeTotal += amount(t);
+        }
+        return dequeTotal;
+    }
+
+    @Benchmark
+    public long offHeapRing() {
+        for (int i = 0; i < TICKS; i++) {
+            ringTotal -= ring.removeFirst().get(ValueLayout.JAVA_LONG, Long.BYTES);
+            long t = time++;
+            MemorySegment record = ring.claimLast();
+            record.set(ValueLayout.JAVA_LONG, 0, t);
+            record.set(ValueLayout.JAVA_LONG, Long.BYTES, amount(t));
+            ringTotal += amount(t);
+        }
+        return ringTotal;
+    }
+}
@@ -0,0 +1,882 @@
+package com.jep;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SequencedCollection;
+import java.util.SequencedMap;
+import java.util.SequencedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe {@link SequencedMap}, in insertion order or, as the backbone of an LRU cache, in
+ * access order with a maximum size.
+ *
+ * <p>The mappings live in a {@link ConcurrentHashMap} of nodes, so {@code get}, {@code put} and
+ * {@code remove} scale like it does. The encounter order is a doubly linked list through the same
+ * nodes, owned by one lock that no map operation waits for:</p>
+ * <ul>
+ *   <li>writes update the hash map, then queue the order change they imply (append, move to
+ *       either end, unlink) and apply the queue if the lock is free; otherwise the thread holding
+ *       it applies their change with its own;</li>
+ *   <li>in access order, reads record the node they hit in one of several small striped buffers.
+ *       A full buffer drops the record, so an LRU order is approximate under contention, as it is
+ *       in Caffeine, whose design this follows; a buffer that fills up is drained the same way as
+ *       the write queue;</li>
+ *   <li>the {@link SequencedMap} methods that look at the order ({@code firstEntry},
+ *       {@code pollLastEntry}, iteration, ...) take the lock and apply every pending change
+ *       first, so a thread always sees its own {@code putFirst} and {@code putLast} in order.</li>
+ * </ul>
+ *
+ * <p>In an LRU map, the least recently used entries are evicted whenever the lock is taken and
+ * the map holds more than its maximum size, so it may exceed it by the writes still queued. The
+ * lock is a {@link ReentrantLock} rather than a monitor so that virtual threads holding it do not
+ * pin their carrier.</p>
+ *
+ * <p>As in {@code ConcurrentHashMap}, {@code null} keys and values are not permitted, and
+ * iterators are weakly consistent: they walk a snapshot of the order taken when they were created
+ * and never throw {@link java.util.ConcurrentModificationException}.</p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class ConcurrentSequencedMap<K, V> extends AbstractMap<K, V>
+        implements ConcurrentMap<K, V>, SequencedMap<K, V> {
+
+    private static final int KEEP = 0;
+    private static final int FIRST = 1;
+    private static final int LAST = 2;
+    private static final int UNLINK = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Reorder<K, V>> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final ReadBuffer<Node<K, V>> readBuffer;
+    private final ReentrantLock orderLock = new ReentrantLock();
+    private final boolean accessOrder;
+    private final long maximumSize;
+
+    // Guarded by orderLock.
+    private Node<K, V> head;
+    private Node<K, V> tail;
+
+    /**
+     * Creates an unbounded map in insertion order.
+     */
+    public ConcurrentSequencedMap() {
+        this(false, Long.MAX_VALUE);
+    }
+
+    private ConcurrentSequencedMap(boolean accessOrder, long maximumSize) {
+        this.accessOrder = accessOrder;
+        this.maximumSize = maximumSize;
+        this.readBuffer = accessOrder ? new ReadBuffer<>() : null;
+    }
+
+    /**
+     * Creates a map in access order, least recently used first, that evicts its least recently
+     * used entries beyond {@code maximumSize}. {@code get}, {@code put} and the other operations
+     * that find a present key count as uses.
+     */
+    public static <K, V> ConcurrentSequencedMap<K, V> lru(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Negative maximum size " + maximumSize);
+        }
+        return new ConcurrentSequencedMap<>(true, maximumSize);
+    }
+
+    /**
+     * A key, its value and its place in the order. {@code prev}, {@code next} and {@code linked}
+     * are guarded by the order lock; {@code value} only changes while the hash map's bin holding
+     * the node is locked.
+     */
+    private static final class Node<K, V> {
+
+        final K key;
+        volatile V value;
+        volatile boolean retired;
+        Node<K, V> prev;
+        Node<K, V> next;
+        boolean linked;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * An order change queued by a write.
+     */
+    private record Reorder<K, V>(Node<K, V> node, int placement) {
+    }
+
+    /**
+     * Lossy multi-producer buffers of recently read nodes, one stripe per group of threads, each
+     * a ring of {@link #STRIPE_SIZE} slots drained by the holder of the order lock.
+     */
+    private static final class ReadBuffer<E> {
+
+        private static final int STRIPE_SIZE = 16;
+
+        private final int stripeMask;
+        private final AtomicReferenceArray<E> slots;
+        private final AtomicLongArray writes;
+        private final AtomicLongArray reads;
+
+        ReadBuffer() {
+            int processors = Runtime.getRuntime().availableProcessors();
+            int stripes = Math.min(64, Integer.highestOneBit(4 * processors - 1) << 1);
+            stripeMask = stripes - 1;
+            slots = new AtomicReferenceArray<>(stripes * STRIPE_SIZE);
+            writes = new AtomicLongArray(stripes);
+            reads = new AtomicLongArray(stripes);
+        }
+
+        /**
+         * Records {@code element} unless its stripe is full or contended, returning whether the
+         * stripe should be drained.
+         */
+        boolean offer(E element) {
+            long id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+            int stripe = (int) (id >>> 32) & stripeMask;
+            long tail = writes.get(stripe);
+            long pending = tail - reads.get(stripe);
+            if (pending >= STRIPE_SIZE) {
+                return true;
+            }
+            if (!writes.compareAndSet(stripe, tail, tail + 1)) {
+                return false;
+            }
+            slots.lazySet(stripe * STRIPE_SIZE + (int) (tail & (STRIPE_SIZE - 1)), element);
+            return pending + 1 >= STRIPE_SIZE;
+        }
+
+        /**
+         * Hands every published element to {@code action}. Must be called by one thread at a time.
+         */
+        void drain(Consumer<E> action) {
+            for (int stripe = 0; stripe <= stripeMask; stripe++) {
+                long head = reads.get(stripe);
+                long tail = writes.get(stripe);
+                for (; head < tail; head++) {
+                    int slot = stripe * STRIPE_SIZE + (int) (head & (STRIPE_SIZE - 1));
+                    E element = slots.get(slot);
+                    if (element == null) {
+                        // Claimed but not yet published; picked up by the next drain.
+                        break;
+                    }
+                    slots.lazySet(slot, null);
+                    action.accept(element);
+                }
+                reads.lazySet(stripe, head);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        afterRead(node);
+        return node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, KEEP, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return put(key, value, KEEP, true);
+    }
+
+    /**
+     * Maps {@code key} to {@code value} and makes it the first entry, whether or not it was
+     * present.
+     */
+    @Override
+    public V putFirst(K key, V value) {
+        return put(key, value, FIRST, false);
+    }
+
+    /**
+     * Maps {@code key} to {@code value} and makes it the last entry, whether or not it was
+     * present.
+     */
+    @Override
+    public V putLast(K key, V value) {
+        return put(key, value, LAST, false);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Objects.requireNonNull(value);
+        var result = new Object() {
+            V previous;
+        };
+        Node<K, V> node = map.computeIfPresent(key, (k, present) -> {
+            result.previous = present.value;
+            present.value = value;
+            return present;
+        });
+        if (node != null) {
+            afterRead(node);
+        }
+        return result.previous;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Objects.requireNonNull(oldValue);
+        Objects.requireNonNull(newValue);
+        var result = new Object() {
+            boolean replaced;
+        };
+        Node<K, V> node = map.computeIfPresent(key, (k, present) -> {
+            if (present.value.equals(oldValue)) {
+                present.value = newValue;
+                result.replaced = true;
+            }
+            return present;
+        });
+        if (result.replaced) {
+            afterRead(node);
+        }
+        return result.replaced;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        afterRemove(node);
+        return node.value;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (value == null) {
+            return false;
+        }
+        var result = new Object() {
+            Node<K, V> removed;
+        };
+        @SuppressWarnings("unchecked")
+        K k = (K) key;
+        map.computeIfPresent(k, (ignored, present) -> {
+            if (!present.value.equals(value)) {
+                return present;
+            }
+            result.removed = present;
+            return null;
+        });
+        if (result.removed == null) {
+            return false;
+        }
+        afterRemove(result.removed);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        orderLock.lock();
+        try {
+            drainBuffers();
+            while (head != null) {
+                evict(head);
+            }
+        } finally {
+            orderLock.unlock();
+        }
+        // Keys put since the buffers were drained.
+        for (K key : map.keySet()) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers();
+            return head == null ? null : snapshot(head);
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers();
+            return tail == null ? null : snapshot(tail);
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers();
+            return head == null ? null : evict(head);
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        orderLock.lock();
+        try {
+            drainBuffers();
+            return tail == null ? null : evict(tail);
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    @Override
+    public SequencedSet<K> keySet() {
+        return sequencedKeySet();
+    }
+
+    @Override
+    public SequencedSet<K> sequencedKeySet() {
+        return new KeyView(false);
+    }
+
+    @Override
+    public SequencedCollection<V> values() {
+        return sequencedValues();
+    }
+
+    @Override
+    public SequencedCollection<V> sequencedValues() {
+        return new ValueView(false);
+    }
+
+    @Override
+    public SequencedSet<Map.Entry<K, V>> entrySet() {
+        return sequencedEntrySet();
+    }
+
+    @Override
+    public SequencedSet<Map.Entry<K, V>> sequencedEntrySet() {
+        return new EntryView(false);
+    }
+
+    /**
+     * A view of this map in reverse encounter order. Like {@link LinkedHashMap#reversed()}, its
+     * {@code put} of an absent key still appends to this map, which puts it first in the view.
+     */
+    @Override
+    public SequencedMap<K, V> reversed() {
+        return new ReversedView();
+    }
+
+    private V put(K key, V value, int placement, boolean onlyIfAbsent) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        var result = new Object() {
+            V previous;
+        };
+        Node<K, V> node = map.compute(key, (k, present) -> {
+            if (present == null) {
+                return new Node<>(k, value);
+            }
+            result.previous = present.value;
+            if (!onlyIfAbsent) {
+                present.value = value;
+            }
+            return present;
+        });
+        if (result.previous == null) {
+            afterWrite(new Reorder<>(node, placement == FIRST ? FIRST : LAST));
+        } else if (placement != KEEP) {
+            afterWrite(new Reorder<>(node, placement));
+        } else {
+            afterRead(node);
+        }
+        return result.previous;
+    }
+
+    private void afterRead(Node<K, V> node) {
+        if (accessOrder && readBuffer.offer(node)) {
+            tryDrain();
+        }
+    }
+
+    private void afterRemove(Node<K, V> node) {
+        node.retired = true;
+        afterWrite(new Reorder<>(node, UNLINK));
+    }
+
+    private void afterWrite(Reorder<K, V> reorder) {
+        writeBuffer.add(reorder);
+        tryDrain();
+    }
+
+    /**
+     * Applies the buffered changes unless another thread is doing so. Checking the write queue
+     * again after unlocking catches changes queued by threads that found the lock held just as
+     * its holder finished draining.
+     */
+    private void tryDrain() {
+        do {
+            if (!orderLock.tryLock()) {
+                return;
+            }
+            try {
+                drainBuffers();
+            } finally {
+                orderLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    private void drainBuffers() {
+        if (accessOrder) {
+            readBuffer.drain(this::onAccess);
+        }
+        Reorder<K, V> reorder;
+        while ((reorder = writeBuffer.poll()) != null) {
+            Node<K, V> node = reorder.node();
+            if (reorder.placement() == UNLINK) {
+                if (node.linked) {
+                    unlink(node);
+                }
+            } else if (!node.retired) {
+                if (node.linked) {
+                    unlink(node);
+                }
+                if (reorder.placement() == FIRST) {
+                    linkFirst(node);
+                } else {
+                    linkLast(node);
+                }
+            }
+        }
+        while (map.size() > maximumSize && head != null) {
+            evict(head);
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.linked && !node.retired && node != tail) {
+            unlink(node);
+            linkLast(node);
+        }
+    }
+
+    /**
+     * Removes the linked {@code node} from the map if it is still there and from the order,
+     * returning its entry.
+     */
+    private Map.Entry<K, V> evict(Node<K, V> node) {
+        Map.Entry<K, V> entry = snapshot(node);
+        if (map.remove(node.key, node)) {
+            node.retired = true;
+        }
+        unlink(node);
+        return entry;
+    }
+
+    private void linkFirst(Node<K, V> node) {
+        node.prev = null;
+        node.next = head;
+        if (head == null) {
+            tail = node;
+        } else {
+            head.prev = node;
+        }
+        head = node;
+        node.linked = true;
+    }
+
+    private void linkLast(Node<K, V> node) {
+        node.prev = tail;
+        node.next = null;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        node.linked = true;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.linked = false;
+    }
+
+    private Map.Entry<K, V> snapshot(Node<K, V> node) {
+        return new SimpleImmutableEntry<>(node.key, node.value);
+    }
+
+    /**
+     * The nodes in encounter order, or in reverse, once every buffered change is applied.
+     */
+    private List<Node<K, V>> nodes(boolean reversed) {
+        orderLock.lock();
+        try {
+            drainBuffers();
+            List<Node<K, V>> nodes = new ArrayList<>(map.size());
+            for (Node<K, V> node = reversed ? tail : head; node != null; node = reversed ? node.prev : node.next) {
+                nodes.add(node);
+            }
+            return nodes;
+        } finally {
+            orderLock.unlock();
+        }
+    }
+
+    /**
+     * Iterates a snapshot of the order. {@code remove} removes the key of the last element from
+     * the map if it still maps to the same node.
+     */
+    private final class SnapshotIterator<E> implements Iterator<E> {
+
+        private final Iterator<Node<K, V>> nodes;
+        private final Function<Node<K, V>, E> element;
+        private Node<K, V> last;
+
+        SnapshotIterator(boolean reversed, Function<Node<K, V>, E> element) {
+            this.nodes = nodes(reversed).iterator();
+            this.element = element;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nodes.hasNext();
+        }
+
+        @Override
+        public E next() {
+            last = nodes.next();
+            return element.apply(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (map.remove(last.key, last)) {
+                afterRemove(last);
+            }
+            last = null;
+        }
+    }
+
+    private final class KeyView extends AbstractSet<K> implements SequencedSet<K> {
+
+        private final boolean reversed;
+
+        KeyView(boolean reversed) {
+            this.reversed = reversed;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new SnapshotIterator<>(reversed, node -> node.key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return ConcurrentSequencedMap.this.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentSequencedMap.this.clear();
+        }
+
+        @Override
+        public K getFirst() {
+            return key(reversed ? lastEntry() : firstEntry());
+        }
+
+        @Override
+        public K getLast() {
+            return key(reversed ? firstEntry() : lastEntry());
+        }
+
+        @Override
+        public K removeFirst() {
+            return key(reversed ? pollLastEntry() : pollFirstEntry());
+        }
+
+        @Override
+        public K removeLast() {
+            return key(reversed ? pollFirstEntry() : pollLastEntry());
+        }
+
+        @Override
+        public SequencedSet<K> reversed() {
+            return new KeyView(!reversed);
+        }
+
+        private K key(Map.Entry<K, V> entry) {
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            return entry.getKey();
+        }
+    }
+
+    private final class ValueView extends AbstractCollection<V> implements SequencedCollection<V> {
+
+        private final boolean reversed;
+
+        ValueView(boolean reversed) {
+            this.reversed = reversed;
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new SnapshotIterator<>(reversed, node -> node.value);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentSequencedMap.this.clear();
+        }
+
+        @Override
+        public SequencedCollection<V> reversed() {
+            return new ValueView(!reversed);
+        }
+    }
+
+    private final class EntryView extends AbstractSet<Map.Entry<K, V>> implements SequencedSet<Map.Entry<K, V>> {
+
+        private final boolean reversed;
+
+        EntryView(boolean reversed) {
+            this.reversed = reversed;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new SnapshotIterator<>(reversed, WriteThroughEntry::new);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry)) {
+                return false;
+            }
+            Node<K, V> node = map.get(entry.getKey());
+            return node != null && node.value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof Map.Entry<?, ?> entry
+                    && ConcurrentSequencedMap.this.remove(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void clear() {
+            ConcurrentSequencedMap.this.clear();
+        }
+
+        @Override
+        public SequencedSet<Map.Entry<K, V>> reversed() {
+            return new EntryView(!reversed);
+        }
+    }
+
+    /**
+     * An entry handed out by the entry set's iterator; {@code setValue} replaces the value in the
+     * map.
+     */
+    @SuppressWarnings("serial")
+    private final class WriteThroughEntry extends SimpleEntry<K, V> {
+
+        WriteThroughEntry(Node<K, V> node) {
+            super(node.key, node.value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            Objects.requireNonNull(value);
+            ConcurrentSequencedMap.this.replace(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    private final class ReversedView extends AbstractMap<K, V> implements SequencedMap<K, V> {
+
+        private final ConcurrentSequencedMap<K, V> base = ConcurrentSequencedMap.this;
+
+        @Override
+        public int size() {
+            return base.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return base.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return base.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return base.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return base.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return base.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            base.clear();
+        }
+
+        @Override
+        public SequencedSet<K> keySet() {
+            return sequencedKeySet();
+        }
+
+        @Override
+        public SequencedSet<K> sequencedKeySet() {
+            return new KeyView(true);
+        }
+
+        @Override
+        public SequencedCollection<V> values() {
+            return sequencedValues();
+        }
+
+        @Override
+        public SequencedCollection<V> sequencedValues() {
+            return new ValueView(true);
+        }
+
+        @Override
+        public SequencedSet<Map.Entry<K, V>> entrySet() {
+            return sequencedEntrySet();
+        }
+
+        @Override
+        public SequencedSet<Map.Entry<K, V>> sequencedEntrySet() {
+            return new EntryView(true);
+        }
+
+        @Override
+        public V putFirst(K key, V value) {
+            return base.putLast(key, value);
+        }
+
+        @Override
+        public V putLast(K key, V value) {
+            return base.putFirst(key, value);
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return base.lastEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return base.firstEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return base.pollLastEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return base.pollFirstEntry();
+        }
+
+        @Override
+        public SequencedMap<K, V> reversed() {
+            return base;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.jep;
+
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+
+/**
+ * An insertion-ordered {@link java.util.SequencedMap} keyed by primitive {@code int}s, for maps
+ * with millions of ids where a {@link LinkedHashMap} would spend most of its memory on boxed keys
+ * and entry nodes.
+ *
+ * <p>The keys live in an {@code int[]} next to the values and the order links, as described in
+ * {@link PrimitiveSequencedMap}. {@link #get(int)}, {@link #put(int, Object)}, {@link #remove(int)}
+ * and the other {@code int} overloads touch only those arrays; the {@code Integer} methods of
+ * {@code Map} and {@code SequencedMap} unbox and delegate to them, boxing only the keys they hand
+ * back. With a boxed value type, pass the value boxed: {@code put(1, 2)} on an
+ * {@code IntSequencedMap<Integer>} matches both {@code put(int, V)} and {@code put(Integer, V)}
+ * and does not compile.</p>
+ *
+ * <pre>{@code
+ * IntSequencedMap<String> names = new IntSequencedMap<>();
+ * names.put(25, "Pikachu");
+ * names.putFirst(1, "Bulbasaur");
+ * names.firstKey();              // 1
+ * names.reversed().firstEntry(); // 25=Pikachu
+ * }</pre>
+ *
+ * @param <V> the value type
+ */
+public final class IntSequencedMap<V> extends PrimitiveSequencedMap<Integer, V> {
+
+    /**
+     * Receives the entries of {@link #forEachEntry} without boxing their keys.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(int key, V value);
+    }
+
+    private int[] keys;
+
+    public IntSequencedMap() {
+        this(16);
+    }
+
+    /**
+     * Creates a map that holds {@code expectedSize} entries without growing.
+     */
+    public IntSequencedMap(int expectedSize) {
+        super(expectedSize, true);
+    }
+
+    IntSequencedMap(int expectedSize, boolean hasValues) {
+        super(expectedSize, hasValues);
+    }
+
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public boolean containsKey(int key) {
+        return slotOf(key) != NONE;
+    }
+
+    public V get(int key) {
+        int slot = slotOf(key);
+        return slot == NONE ? null : valueAt(slot);
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        int slot = slotOf(key);
+        return slot == NONE ? defaultValue : valueAt(slot);
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, leaving a present key where it is in encounter order and
+     * appending an absent one. Returns the previous value, or {@code null}.
+     */
+    public V put(int key, V value) {
+        return put(key, value, KEEP);
+    }
+
+    /**
+     * Maps {@code key} to {@code value} and makes it the first entry, whether or not it was
+     * present.
+     */
+    public V putFirst(int key, V value) {
+        return put(key, value, FIRST);
+    }
+
+    /**
+     * Maps {@code key} to {@code value} and makes it the last entry, whether or not it was
+     * present.
+     */
+    public V putLast(int key, V value) {
+        return put(key, value, LAST);
+    }
+
+    public V remove(int key) {
+        int slot = slotOf(key);
+        return slot == NONE ? null : removeAt(slot);
+    }
+
+    /**
+     * The key of the first entry.
+     *
+     * @throws java.util.NoSuchElementException if the map is empty
+     */
+    public int firstKey() {
+        return keys[firstSlot()];
+    }
+
+    /**
+     * The key of the last entry.
+     *
+     * @throws java.util.NoSuchElementException if the map is empty
+     */
+    public int lastKey() {
+        return keys[lastSlot()];
+    }
+
+    /**
+     * Performs {@code action} on every entry in encounter order.
+     */
+    public void forEachEntry(EntryConsumer<? super V> action) {
+        int expectedModCount = modCount;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            action.accept(keys[slot], valueAt(slot));
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value, KEEP);
+    }
+
+    @Override
+    public V putFirst(Integer key, V value) {
+        return put(key.intValue(), value, FIRST);
+    }
+
+    @Override
+    public V putLast(Integer key, V value) {
+        return put(key.intValue(), value, LAST);
+    }
+
+    int slotOf(int key) {
+        int[] keys = this.keys;
+        int[] prev = this.prev;
+        int mask = this.mask;
+        for (int slot = hash(key) & mask; prev[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Inserts {@code key} with a {@code null} value, or moves it as {@code placement} says if
+     * present. Returns whether it was absent.
+     */
+    boolean add(int key, int placement) {
+        return slotFor(key, placement) < 0;
+    }
+
+    private V put(int key, V value, int placement) {
+        int slot = slotFor(key, placement);
+        if (slot >= 0) {
+            return replaceValue(slot, value);
+        }
+        values[~slot] = value;
+        return null;
+    }
+
+    /**
+     * The slot of {@code key} after placing it, or its complement if the key was just inserted.
+     */
+    private int slotFor(int key, int placement) {
+        int[] keys = this.keys;
+        int[] prev = this.prev;
+        int mask = this.mask;
+        int slot = hash(key) & mask;
+        for (; prev[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                reposition(slot, placement);
+                return slot;
+            }
+        }
+        keys[slot] = key;
+        return ~link(slot, placement);
+    }
+
+    @Override
+    void allocateKeys(int capacity) {
+        keys = new int[capacity];
+    }
+
+    @Override
+    Object keyArray() {
+        return keys;
+    }
+
+    @Override
+    int transfer(Object oldKeys, int oldSlot) {
+        int key = ((int[]) oldKeys)[oldSlot];
+        int slot = freeSlot(hash(key) & mask);
+        keys[slot] = key;
+        return slot;
+    }
+
+    @Override
+    int home(int slot) {
+        return hash(keys[slot]) & mask;
+    }
+
+    @Override
+    void moveKey(int from, int to) {
+        keys[to] = keys[from];
+    }
+
+    @Override
+    Integer boxedKey(int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    int slotOfBoxed(Object key) {
+        return key instanceof Integer k ? slotOf(k) : NONE;
+    }
+
+    @Override
+    boolean addBoxed(Integer key, int placement) {
+        return add(key, placement);
+    }
+}
@@ -0,0 +1,241 @@
+package com.jep;
+
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashMap;
+
+/**
+ * An insertion-ordered {@link java.util.SequencedMap} keyed by primitive {@code long}s, the
+ * counterpart of {@link IntSequencedMap} for ids that do not fit an {@code int}, for maps with
+ * millions of them where a {@link LinkedHashMap} would spend most of its memory on boxed keys
+ * and entry nodes.
+ *
+ * <p>The keys live in a {@code long[]} next to the values and the order links, as described in
+ * {@link PrimitiveSequencedMap}. {@link #get(long)}, {@link #put(long, Object)},
+ * {@link #remove(long)} and the other {@code long} overloads touch only those arrays; the
+ * {@code Long} methods of {@code Map} and {@code SequencedMap} unbox and delegate to them, boxing
+ * only the keys they hand back. With a boxed value type, pass the value boxed: {@code put(1, 2)} on an
+ * {@code LongSequencedMap<Long>} matches both {@code put(long, V)} and {@code put(Long, V)}
+ * and does not compile.</p>
+ *
+ * <pre>{@code
+ * LongSequencedMap<String> accounts = new LongSequencedMap<>();
+ * accounts.put(4_000_000_001L, "EUR");
+ * accounts.putFirst(17L, "USD");
+ * accounts.firstKey();              // 17
+ * accounts.reversed().firstEntry(); // 4000000001=EUR
+ * }</pre>
+ *
+ * @param <V> the value type
+ */
+public final class LongSequencedMap<V> extends PrimitiveSequencedMap<Long, V> {
+
+    /**
+     * Receives the entries of {@link #forEachEntry} without boxing their keys.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(long key, V value);
+    }
+
+    private long[] keys;
+
+    public LongSequencedMap() {
+        this(16);
+    }
+
+    /**
+     * Creates a map that holds {@code expectedSize} entries without growing.
+     */
+    public LongSequencedMap(int expectedSize) {
+        super(expectedSize, true);
+    }
+
+    LongSequencedMap(int expectedSize, boolean hasValues) {
+        super(expectedSize, hasValues);
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public boolean containsKey(long key) {
+        return slotOf(key) != NONE;
+    }
+
+    public V get(long key) {
+        int slot = slotOf(key);
+        return slot == NONE ? null : valueAt(slot);
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        int slot = slotOf(key);
+        return slot == NONE ? defaultValue : valueAt(slot);
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, leaving a present key where it is in encounter order and
+     * appending an absent one. Returns the previous value, or {@code null}.
+     */
+    public V put(long key, V value) {
+        return put(key, value, KEEP);
+    }
+
+    /**
+     * Maps {@code key} to {@code value} and makes it the first entry, whether or not it was
+     * present.
+     */
+    public V putFirst(long key, V value) {
+        return put(key, value, FIRST);
+    }
+
+    /**
+     * Maps {@code key} to {@code value} and makes it the last entry, whether or not it was
+     * present.
+     */
+    public V putLast(long key, V value) {
+        return put(key, value, LAST);
+    }
+
+    public V remove(long key) {
+        int slot = slotOf(key);
+        return slot == NONE ? null : removeAt(slot);
+    }
+
+    /**
+     * The key of the first entry.
+     *
+     * @throws java.util.NoSuchElementException if the map is empty
+     */
+    public long firstKey() {
+        return keys[firstSlot()];
+    }
+
+    /**
+     * The key of the last entry.
+     *
+     * @throws java.util.NoSuchElementException if the map is empty
+     */
+    public long lastKey() {
+        return keys[lastSlot()];
+    }
+
+    /**
+     * Performs {@code action} on every entry in encounter order.
+     */
+    public void forEachEntry(EntryConsumer<? super V> action) {
+        int expectedModCount = modCount;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            action.accept(keys[slot], valueAt(slot));
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return put(key.longValue(), value, KEEP);
+    }
+
+    @Override
+    public V putFirst(Long key, V value) {
+        return put(key.longValue(), value, FIRST);
+    }
+
+    @Override
+    public V putLast(Long key, V value) {
+        return put(key.longValue(), value, LAST);
+    }
+
+    int slotOf(long key) {
+        long[] keys = this.keys;
+        int[] prev = this.prev;
+        int mask = this.mask;
+        for (int slot = hash(key) & mask; prev[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Inserts {@code key} with a {@code null} value, or moves it as {@code placement} says if
+     * present. Returns whether it was absent.
+     */
+    boolean add(long key, int placement) {
+        return slotFor(key, placement) < 0;
+    }
+
+    private V put(long key, V value, int placement) {
+        int slot = slotFor(key, placement);
+        if (slot >= 0) {
+            return replaceValue(slot, value);
+        }
+        values[~slot] = value;
+        return null;
+    }
+
+    /**
+     * The slot of {@code key} after placing it, or its complement if the key was just inserted.
+     */
+    private int slotFor(long key, int placement) {
+        long[] keys = this.keys;
+        int[] prev = this.prev;
+        int mask = this.mask;
+        int slot = hash(key) & mask;
+        for (; prev[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                reposition(slot, placement);
+                return slot;
+            }
+        }
+        keys[slot] = key;
+        return ~link(slot, placement);
+    }
+
+    @Override
+    void allocateKeys(int capacity) {
+        keys = new long[capacity];
+    }
+
+    @Override
+    Object keyArray() {
+        return keys;
+    }
+
+    @Override
+    int transfer(Object oldKeys, int oldSlot) {
+        long key = ((long[]) oldKeys)[oldSlot];
+        int slot = freeSlot(hash(key) & mask);
+        keys[slot] = key;
+        return slot;
+    }
+
+    @Override
+    int home(int slot) {
+        return hash(keys[slot]) & mask;
+    }
+
+    @Override
+    void moveKey(int from, int to) {
+        keys[to] = keys[from];
+    }
+
+    @Override
+    Long boxedKey(int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    int slotOfBoxed(Object key) {
+        return key instanceof Long k ? slotOf(k) : NONE;
+    }
+
+    @Override
+    boolean addBoxed(Long key, int placement) {
+        return add(key, placement);
+    }
+}
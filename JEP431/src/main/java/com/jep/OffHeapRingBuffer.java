@@ -0,0 +1,416 @@
+package com.jep;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SequencedCollection;
+
+/**
+ * A bounded deque of fixed-size records stored outside the heap in one {@link MemorySegment},
+ * for work queues and sliding windows of hundreds of millions of entries that an
+ * {@link ArrayDeque} of objects would turn into as many objects for the garbage collector to trace.
+ *
+ * <p>The records form a ring: {@link #addLast} and {@link #addFirst} copy a record into the slot
+ * after the last or before the first one, and the removal methods move the ends back. No
+ * operation allocates on the heap except the slices handed out as elements. The collector sees
+ * one small object whatever the size of the buffer, so a large window adds nothing to its pause
+ * times.</p>
+ *
+ * <p>Elements are zero-copy views: {@link #getFirst()}, {@link #get(long)}, the iterators and even
+ * the removal methods return slices of the ring itself, so writing to one changes the stored
+ * record, and the slice of a removed record shows whatever is added into its slot next. Copy a
+ * record out, with {@link MemorySegment#copy} or {@code toArray}, to keep it. In the other
+ * direction, {@link #claimLast()} and {@link #claimFirst()} add a record and return its slot to be
+ * written in place.</p>
+ *
+ * <p>Memory comes from an {@link Arena}: a shared one owned by the buffer and freed by
+ * {@link #close()}, the caller's, or a file mapped with {@link #map}, which lets a window larger
+ * than memory be paged by the operating system. The file only backs the ring; its contents are
+ * not read back when it is mapped again.</p>
+ *
+ * <p>Uses the Foreign Function &amp; Memory API, a preview in Java 21: run with
+ * {@code --enable-preview}. Instances are not thread-safe; iterators are fail-fast.</p>
+ */
+public final class OffHeapRingBuffer extends AbstractCollection<MemorySegment>
+        implements SequencedCollection<MemorySegment>, AutoCloseable {
+
+    private final MemorySegment segment;
+    private final Arena ownedArena;
+    private final long capacity;
+    private final long recordSize;
+    private long head;
+    private long size;
+    private int modCount;
+
+    private OffHeapRingBuffer(MemorySegment segment, Arena ownedArena, long capacity, long recordSize) {
+        this.segment = segment;
+        this.ownedArena = ownedArena;
+        this.capacity = capacity;
+        this.recordSize = recordSize;
+    }
+
+    /**
+     * A buffer of {@code capacity} records of {@code recordSize} bytes in memory it owns.
+     */
+    public static OffHeapRingBuffer allocate(long capacity, long recordSize) {
+        long bytes = byteSize(capacity, recordSize);
+        Arena arena = Arena.ofShared();
+        return new OffHeapRingBuffer(arena.allocate(bytes, Long.BYTES), arena, capacity, recordSize);
+    }
+
+    /**
+     * A buffer allocated from {@code arena}, valid for as long as the arena is open.
+     * {@link #close()} leaves the arena alone.
+     */
+    public static OffHeapRingBuffer allocate(Arena arena, long capacity, long recordSize) {
+        long bytes = byteSize(capacity, recordSize);
+        return new OffHeapRingBuffer(arena.allocate(bytes, Long.BYTES), null, capacity, recordSize);
+    }
+
+    /**
+     * A buffer stored in {@code file}, created or resized to fit, and unmapped by {@link #close()}.
+     */
+    public static OffHeapRingBuffer map(Path file, long capacity, long recordSize) {
+        long bytes = byteSize(capacity, recordSize);
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new OffHeapRingBuffer(channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes, arena), arena,
+                    capacity, recordSize);
+        } catch (IOException e) {
+            arena.close();
+            throw new UncheckedIOException("Cannot map " + file, e);
+        }
+    }
+
+    private static long byteSize(long capacity, long recordSize) {
+        if (capacity <= 0 || recordSize <= 0) {
+            throw new IllegalArgumentException("Capacity and record size must be positive, were "
+                    + capacity + " and " + recordSize);
+        }
+        return Math.multiplyExact(capacity, recordSize);
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public long recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * The number of records, which unlike {@link #size()} may exceed {@link Integer#MAX_VALUE}.
+     */
+    public long longSize() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * The record at {@code index} from the first one.
+     */
+    public MemorySegment get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return slot(head + index);
+    }
+
+    /**
+     * Copies {@code record} in after the last record.
+     *
+     * @throws IllegalStateException if the buffer is full
+     * @throws IllegalArgumentException if {@code record} is not {@link #recordSize()} bytes
+     */
+    @Override
+    public void addLast(MemorySegment record) {
+        checkRecord(record);
+        requireNotFull();
+        MemorySegment.copy(record, 0, segment, offset(head + size), recordSize);
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Copies {@code record} in before the first record.
+     *
+     * @throws IllegalStateException if the buffer is full
+     * @throws IllegalArgumentException if {@code record} is not {@link #recordSize()} bytes
+     */
+    @Override
+    public void addFirst(MemorySegment record) {
+        checkRecord(record);
+        requireNotFull();
+        head = head == 0 ? capacity - 1 : head - 1;
+        MemorySegment.copy(record, 0, segment, offset(head), recordSize);
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Copies {@code record} in after the last record unless the buffer is full, returning whether
+     * it was added.
+     */
+    public boolean offerLast(MemorySegment record) {
+        checkRecord(record);
+        if (size == capacity) {
+            return false;
+        }
+        addLast(record);
+        return true;
+    }
+
+    /**
+     * Copies {@code record} in before the first record unless the buffer is full, returning
+     * whether it was added.
+     */
+    public boolean offerFirst(MemorySegment record) {
+        checkRecord(record);
+        if (size == capacity) {
+            return false;
+        }
+        addFirst(record);
+        return true;
+    }
+
+    /**
+     * Adds a record after the last one and returns it for the caller to fill in place, without a
+     * copy. Its previous contents are left as they were.
+     *
+     * @throws IllegalStateException if the buffer is full
+     */
+    public MemorySegment claimLast() {
+        requireNotFull();
+        MemorySegment record = slot(head + size);
+        size++;
+        modCount++;
+        return record;
+    }
+
+    /**
+     * Adds a record before the first one and returns it for the caller to fill in place, without
+     * a copy.
+     *
+     * @throws IllegalStateException if the buffer is full
+     */
+    public MemorySegment claimFirst() {
+        requireNotFull();
+        head = head == 0 ? capacity - 1 : head - 1;
+        size++;
+        modCount++;
+        return slot(head);
+    }
+
+    /**
+     * Same as {@link #addLast}.
+     */
+    @Override
+    public boolean add(MemorySegment record) {
+        addLast(record);
+        return true;
+    }
+
+    @Override
+    public MemorySegment getFirst() {
+        requireNonEmpty();
+        return slot(head);
+    }
+
+    @Override
+    public MemorySegment getLast() {
+        requireNonEmpty();
+        return slot(head + size - 1);
+    }
+
+    @Override
+    public MemorySegment removeFirst() {
+        requireNonEmpty();
+        MemorySegment record = slot(head);
+        head = head == capacity - 1 ? 0 : head + 1;
+        size--;
+        modCount++;
+        return record;
+    }
+
+    @Override
+    public MemorySegment removeLast() {
+        requireNonEmpty();
+        MemorySegment record = slot(head + size - 1);
+        size--;
+        modCount++;
+        return record;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Forgets every record without touching the memory.
+     */
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<MemorySegment> iterator() {
+        return new Cursor(false);
+    }
+
+    @Override
+    public SequencedCollection<MemorySegment> reversed() {
+        return new ReversedView();
+    }
+
+    /**
+     * Frees the memory or unmaps the file, unless it came from the caller's arena. Elements handed
+     * out earlier become inaccessible.
+     */
+    @Override
+    public void close() {
+        if (ownedArena != null) {
+            ownedArena.close();
+        }
+    }
+
+    private void checkRecord(MemorySegment record) {
+        if (record.byteSize() != recordSize) {
+            throw new IllegalArgumentException("Record of " + record.byteSize() + " bytes, expected " + recordSize);
+        }
+    }
+
+    private void requireNotFull() {
+        if (size == capacity) {
+            throw new IllegalStateException("Ring buffer full at " + capacity + " records");
+        }
+    }
+
+    private void requireNonEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    /**
+     * The byte offset of ring position {@code position}, which may run up to twice the capacity.
+     */
+    private long offset(long position) {
+        return (position < capacity ? position : position - capacity) * recordSize;
+    }
+
+    private MemorySegment slot(long position) {
+        return segment.asSlice(offset(position), recordSize);
+    }
+
+    private final class Cursor implements Iterator<MemorySegment> {
+
+        private final boolean reversed;
+        private long index;
+        private final int expectedModCount = modCount;
+
+        Cursor(boolean reversed) {
+            this.reversed = reversed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size;
+        }
+
+        @Override
+        public MemorySegment next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (index >= size) {
+                throw new NoSuchElementException();
+            }
+            long i = index++;
+            return slot(head + (reversed ? size - 1 - i : i));
+        }
+    }
+
+    private final class ReversedView extends AbstractCollection<MemorySegment>
+            implements SequencedCollection<MemorySegment> {
+
+        private final OffHeapRingBuffer base = OffHeapRingBuffer.this;
+
+        @Override
+        public Iterator<MemorySegment> iterator() {
+            return new Cursor(true);
+        }
+
+        @Override
+        public int size() {
+            return base.size();
+        }
+
+        @Override
+        public boolean add(MemorySegment record) {
+            base.addFirst(record);
+            return true;
+        }
+
+        @Override
+        public void addFirst(MemorySegment record) {
+            base.addLast(record);
+        }
+
+        @Override
+        public void addLast(MemorySegment record) {
+            base.addFirst(record);
+        }
+
+        @Override
+        public MemorySegment getFirst() {
+            return base.getLast();
+        }
+
+        @Override
+        public MemorySegment getLast() {
+            return base.getFirst();
+        }
+
+        @Override
+        public MemorySegment removeFirst() {
+            return base.removeLast();
+        }
+
+        @Override
+        public MemorySegment removeLast() {
+            return base.removeFirst();
+        }
+
+        @Override
+        public void clear() {
+            base.clear();
+        }
+
+        @Override
+        public SequencedCollection<MemorySegment> reversed() {
+            return base;
+        }
+    }
+}
@@ -0,0 +1,847 @@
+package com.jep;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SequencedCollection;
+import java.util.SequencedMap;
+import java.util.SequencedSet;
+import java.util.function.BiConsumer;
+
+/**
+ * Insertion-ordered open-addressing hash table keyed by a primitive, shared by
+ * {@link IntSequencedMap} and {@link LongSequencedMap}, and through them by
+ * {@link IntSequencedSet} and {@link LongSequencedSet}.
+ *
+ * <p>Slot {@code s} of the table holds a key in the subclass's primitive key array, its value in
+ * {@code values[s]}, and the slots before and after it in encounter order in {@code prev[s]} and
+ * {@code next[s]}; {@code prev[s] == FREE} marks a free slot. Collisions are resolved by linear
+ * probing. Removal shifts the rest of the probe run back into the hole instead of leaving a
+ * tombstone, relinking the neighbours of every entry it moves, so lookups stay short however many
+ * entries come and go.</p>
+ *
+ * <p>An entry costs its key, a value reference and two {@code int} links, over a load factor
+ * between 3/8 and 3/4 since the table doubles, and no object: 21 to 43 bytes for an {@code int}
+ * key with compressed references (26 for ten million ids), where a {@link LinkedHashMap} spends
+ * about 63: 40 on the entry node, 16 on the boxed key and the rest on its table. The boxed
+ * {@link Map} and {@link SequencedMap} methods behave as on {@code LinkedHashMap} in insertion
+ * order, except that {@code null} keys are not permitted; subclasses add primitive overloads that
+ * neither box nor allocate.</p>
+ *
+ * <p>Instances are not thread-safe. Iterators and views are fail-fast.</p>
+ *
+ * @param <K> the boxed key type
+ * @param <V> the value type
+ */
+public abstract class PrimitiveSequencedMap<K, V> extends AbstractMap<K, V> implements SequencedMap<K, V> {
+
+    static final int NONE = -1;
+    static final int FREE = -2;
+
+    /**
+     * Where an insertion puts its key: {@code KEEP} leaves a present key where it is and appends
+     * an absent one, {@code FIRST} and {@code LAST} move or insert it at that end.
+     */
+    static final int KEEP = 0;
+    static final int FIRST = 1;
+    static final int LAST = 2;
+
+    private static final int MINIMUM_CAPACITY = 8;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final boolean hasValues;
+
+    int[] prev;
+    int[] next;
+    Object[] values;
+    int mask;
+    int threshold;
+    int head = NONE;
+    int tail = NONE;
+    int size;
+    int modCount;
+
+    PrimitiveSequencedMap(int expectedSize, boolean hasValues) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Negative expected size " + expectedSize);
+        }
+        this.hasValues = hasValues;
+        long needed = Math.min((long) expectedSize * 4 / 3 + 1, MAXIMUM_CAPACITY);
+        allocate(Math.max(MINIMUM_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1));
+    }
+
+    /**
+     * Replaces the key array with an empty one of {@code capacity} slots.
+     */
+    abstract void allocateKeys(int capacity);
+
+    abstract Object keyArray();
+
+    /**
+     * Stores the key held in {@code oldKeys[oldSlot]} in a free slot of the current key array,
+     * returning that slot.
+     */
+    abstract int transfer(Object oldKeys, int oldSlot);
+
+    /**
+     * The slot the key held in {@code slot} hashes to.
+     */
+    abstract int home(int slot);
+
+    abstract void moveKey(int from, int to);
+
+    abstract K boxedKey(int slot);
+
+    /**
+     * The slot holding {@code key}, or {@link #NONE} if it is absent or not of the key type.
+     */
+    abstract int slotOfBoxed(Object key);
+
+    /**
+     * Inserts {@code key} with a {@code null} value, or moves it as {@code placement} says if
+     * present. Returns whether it was absent.
+     */
+    abstract boolean addBoxed(K key, int placement);
+
+    @Override
+    public abstract V put(K key, V value);
+
+    @Override
+    public abstract V putFirst(K key, V value);
+
+    @Override
+    public abstract V putLast(K key, V value);
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOfBoxed(key) != NONE;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (Objects.equals(value, valueAt(slot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        int slot = slotOfBoxed(key);
+        return slot == NONE ? null : valueAt(slot);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        int slot = slotOfBoxed(key);
+        return slot == NONE ? defaultValue : valueAt(slot);
+    }
+
+    @Override
+    public V remove(Object key) {
+        int slot = slotOfBoxed(key);
+        return slot == NONE ? null : removeAt(slot);
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(prev, FREE);
+            if (hasValues) {
+                Arrays.fill(values, null);
+            }
+            head = NONE;
+            tail = NONE;
+            size = 0;
+        }
+        modCount++;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        int expectedModCount = modCount;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            action.accept(boxedKey(slot), valueAt(slot));
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return head == NONE ? null : snapshot(head);
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return tail == NONE ? null : snapshot(tail);
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        if (head == NONE) {
+            return null;
+        }
+        Map.Entry<K, V> entry = snapshot(head);
+        removeAt(head);
+        return entry;
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        if (tail == NONE) {
+            return null;
+        }
+        Map.Entry<K, V> entry = snapshot(tail);
+        removeAt(tail);
+        return entry;
+    }
+
+    @Override
+    public SequencedSet<K> keySet() {
+        return sequencedKeySet();
+    }
+
+    @Override
+    public SequencedSet<K> sequencedKeySet() {
+        return new KeyView(false, false);
+    }
+
+    @Override
+    public SequencedCollection<V> values() {
+        return sequencedValues();
+    }
+
+    @Override
+    public SequencedCollection<V> sequencedValues() {
+        return new ValueView(false);
+    }
+
+    @Override
+    public SequencedSet<Map.Entry<K, V>> entrySet() {
+        return sequencedEntrySet();
+    }
+
+    @Override
+    public SequencedSet<Map.Entry<K, V>> sequencedEntrySet() {
+        return new EntryView(false);
+    }
+
+    /**
+     * A view of this map in reverse encounter order. Like {@link LinkedHashMap#reversed()}, its
+     * {@code put} of an absent key still appends to this map, which puts it first in the view.
+     */
+    @Override
+    public SequencedMap<K, V> reversed() {
+        return new ReversedView();
+    }
+
+    /**
+     * The keys as a set whose {@code add}, {@code addFirst} and {@code addLast} insert into this
+     * map with {@code null} values, for the set classes.
+     */
+    SequencedSet<K> insertableKeySet(boolean reversed) {
+        return new KeyView(reversed, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    final V valueAt(int slot) {
+        return hasValues ? (V) values[slot] : null;
+    }
+
+    final V replaceValue(int slot, V value) {
+        V old = valueAt(slot);
+        values[slot] = value;
+        return old;
+    }
+
+    /**
+     * The first free slot of the probe run starting at {@code home}.
+     */
+    final int freeSlot(int home) {
+        int slot = home;
+        while (prev[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Links the key just stored in the free slot {@code slot} as {@code placement} says, growing
+     * the table first if it is full. Returns the slot the key ended up in.
+     */
+    final int link(int slot, int placement) {
+        if (size >= threshold) {
+            Object oldKeys = keyArray();
+            grow();
+            slot = transfer(oldKeys, slot);
+        }
+        if (placement == FIRST) {
+            linkFirst(slot);
+        } else {
+            linkLast(slot);
+        }
+        size++;
+        modCount++;
+        return slot;
+    }
+
+    /**
+     * Moves the present key in {@code slot} as {@code placement} says.
+     */
+    final void reposition(int slot, int placement) {
+        if (placement == FIRST && slot != head) {
+            unlink(slot);
+            linkFirst(slot);
+            modCount++;
+        } else if (placement == LAST && slot != tail) {
+            unlink(slot);
+            linkLast(slot);
+            modCount++;
+        }
+    }
+
+    final V removeAt(int slot) {
+        V old = valueAt(slot);
+        delete(slot, NONE);
+        return old;
+    }
+
+    final int firstSlot() {
+        if (head == NONE) {
+            throw new NoSuchElementException();
+        }
+        return head;
+    }
+
+    final int lastSlot() {
+        if (tail == NONE) {
+            throw new NoSuchElementException();
+        }
+        return tail;
+    }
+
+    /**
+     * Frees {@code slot} and shifts the rest of its probe run back, returning where the entry that
+     * was in slot {@code follow} is now.
+     */
+    private int delete(int slot, int follow) {
+        unlink(slot);
+        int hole = slot;
+        for (int i = (slot + 1) & mask; prev[i] != FREE; i = (i + 1) & mask) {
+            // An entry may fill the hole unless its home lies cyclically in (hole, i].
+            if (((i - home(i)) & mask) >= ((i - hole) & mask)) {
+                relocate(i, hole);
+                if (i == follow) {
+                    follow = hole;
+                }
+                hole = i;
+            }
+        }
+        prev[hole] = FREE;
+        if (hasValues) {
+            values[hole] = null;
+        }
+        size--;
+        modCount++;
+        return follow;
+    }
+
+    private void relocate(int from, int to) {
+        moveKey(from, to);
+        if (hasValues) {
+            values[to] = values[from];
+        }
+        int before = prev[from];
+        int after = next[from];
+        prev[to] = before;
+        next[to] = after;
+        if (before == NONE) {
+            head = to;
+        } else {
+            next[before] = to;
+        }
+        if (after == NONE) {
+            tail = to;
+        } else {
+            prev[after] = to;
+        }
+    }
+
+    private void linkFirst(int slot) {
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head == NONE) {
+            tail = slot;
+        } else {
+            prev[head] = slot;
+        }
+        head = slot;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NONE;
+        if (tail == NONE) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot];
+        int after = next[slot];
+        if (before == NONE) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NONE) {
+            tail = before;
+        } else {
+            prev[after] = before;
+        }
+    }
+
+    private void allocate(int capacity) {
+        allocateKeys(capacity);
+        prev = new int[capacity];
+        Arrays.fill(prev, FREE);
+        next = new int[capacity];
+        values = hasValues ? new Object[capacity] : null;
+        mask = capacity - 1;
+        threshold = capacity - (capacity >>> 2);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+    }
+
+    /**
+     * Doubles the table, reinserting the entries in encounter order.
+     */
+    private void grow() {
+        int capacity = mask + 1;
+        if (capacity == MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Map is full at " + size + " entries");
+        }
+        Object oldKeys = keyArray();
+        int[] oldNext = next;
+        Object[] oldValues = values;
+        int oldHead = head;
+        allocate(capacity << 1);
+        for (int oldSlot = oldHead; oldSlot != NONE; oldSlot = oldNext[oldSlot]) {
+            int slot = transfer(oldKeys, oldSlot);
+            if (hasValues) {
+                values[slot] = oldValues[oldSlot];
+            }
+            linkLast(slot);
+            size++;
+        }
+    }
+
+    private Map.Entry<K, V> snapshot(int slot) {
+        return new SimpleImmutableEntry<>(boxedKey(slot), valueAt(slot));
+    }
+
+    /**
+     * Walks the slots in encounter order, or in reverse.
+     */
+    private abstract class Cursor<E> implements Iterator<E> {
+
+        private final boolean reversed;
+        private int nextSlot;
+        private int lastSlot = NONE;
+        private int expectedModCount = modCount;
+
+        Cursor(boolean reversed) {
+            this.reversed = reversed;
+            this.nextSlot = reversed ? tail : head;
+        }
+
+        abstract E element(int slot);
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot != NONE;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (nextSlot == NONE) {
+                throw new NoSuchElementException();
+            }
+            lastSlot = nextSlot;
+            nextSlot = reversed ? prev[lastSlot] : next[lastSlot];
+            return element(lastSlot);
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlot == NONE) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            nextSlot = delete(lastSlot, nextSlot);
+            lastSlot = NONE;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class KeyView extends AbstractSet<K> implements SequencedSet<K> {
+
+        private final boolean reversed;
+        private final boolean insertable;
+
+        KeyView(boolean reversed, boolean insertable) {
+            this.reversed = reversed;
+            this.insertable = insertable;
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new Cursor<>(reversed) {
+                @Override
+                K element(int slot) {
+                    return boxedKey(slot);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int slot = slotOfBoxed(o);
+            if (slot == NONE) {
+                return false;
+            }
+            removeAt(slot);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            PrimitiveSequencedMap.this.clear();
+        }
+
+        @Override
+        public boolean add(K key) {
+            return insert(key, KEEP);
+        }
+
+        @Override
+        public void addFirst(K key) {
+            insert(key, reversed ? LAST : FIRST);
+        }
+
+        @Override
+        public void addLast(K key) {
+            insert(key, reversed ? FIRST : LAST);
+        }
+
+        @Override
+        public K getFirst() {
+            return boxedKey(reversed ? lastSlot() : firstSlot());
+        }
+
+        @Override
+        public K getLast() {
+            return boxedKey(reversed ? firstSlot() : lastSlot());
+        }
+
+        @Override
+        public K removeFirst() {
+            int slot = reversed ? lastSlot() : firstSlot();
+            K key = boxedKey(slot);
+            removeAt(slot);
+            return key;
+        }
+
+        @Override
+        public K removeLast() {
+            int slot = reversed ? firstSlot() : lastSlot();
+            K key = boxedKey(slot);
+            removeAt(slot);
+            return key;
+        }
+
+        @Override
+        public SequencedSet<K> reversed() {
+            return new KeyView(!reversed, insertable);
+        }
+
+        private boolean insert(K key, int placement) {
+            if (!insertable) {
+                throw new UnsupportedOperationException();
+            }
+            return addBoxed(Objects.requireNonNull(key), placement);
+        }
+    }
+
+    private final class ValueView extends AbstractCollection<V> implements SequencedCollection<V> {
+
+        private final boolean reversed;
+
+        ValueView(boolean reversed) {
+            this.reversed = reversed;
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new Cursor<>(reversed) {
+                @Override
+                V element(int slot) {
+                    return valueAt(slot);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        @Override
+        public void clear() {
+            PrimitiveSequencedMap.this.clear();
+        }
+
+        @Override
+        public SequencedCollection<V> reversed() {
+            return new ValueView(!reversed);
+        }
+    }
+
+    private final class EntryView extends AbstractSet<Map.Entry<K, V>> implements SequencedSet<Map.Entry<K, V>> {
+
+        private final boolean reversed;
+
+        EntryView(boolean reversed) {
+            this.reversed = reversed;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new Cursor<>(reversed) {
+                @Override
+                Map.Entry<K, V> element(int slot) {
+                    return new LiveEntry(slot);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return slotOf(o) != NONE;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int slot = slotOf(o);
+            if (slot == NONE) {
+                return false;
+            }
+            removeAt(slot);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            PrimitiveSequencedMap.this.clear();
+        }
+
+        @Override
+        public SequencedSet<Map.Entry<K, V>> reversed() {
+            return new EntryView(!reversed);
+        }
+
+        private int slotOf(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry)) {
+                return NONE;
+            }
+            int slot = slotOfBoxed(entry.getKey());
+            return slot != NONE && Objects.equals(valueAt(slot), entry.getValue()) ? slot : NONE;
+        }
+    }
+
+    /**
+     * An entry handed out by the entry set's iterator. {@code setValue} writes through to the map
+     * as long as the key is still in it.
+     */
+    @SuppressWarnings("serial")
+    private final class LiveEntry extends SimpleEntry<K, V> {
+
+        LiveEntry(int slot) {
+            super(boxedKey(slot), valueAt(slot));
+        }
+
+        @Override
+        public V setValue(V value) {
+            int slot = slotOfBoxed(getKey());
+            if (slot != NONE) {
+                values[slot] = value;
+            }
+            return super.setValue(value);
+        }
+    }
+
+    private final class ReversedView extends AbstractMap<K, V> implements SequencedMap<K, V> {
+
+        private final PrimitiveSequencedMap<K, V> base = PrimitiveSequencedMap.this;
+
+        @Override
+        public int size() {
+            return base.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return base.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return base.containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return base.containsValue(value);
+        }
+
+        @Override
+        public V get(Object key) {
+            return base.get(key);
+        }
+
+        @Override
+        public V getOrDefault(Object key, V defaultValue) {
+            return base.getOrDefault(key, defaultValue);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return base.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return base.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            base.clear();
+        }
+
+        @Override
+        public SequencedSet<K> keySet() {
+            return sequencedKeySet();
+        }
+
+        @Override
+        public SequencedSet<K> sequencedKeySet() {
+            return new KeyView(true, false);
+        }
+
+        @Override
+        public SequencedCollection<V> values() {
+            return sequencedValues();
+        }
+
+        @Override
+        public SequencedCollection<V> sequencedValues() {
+            return new ValueView(true);
+        }
+
+        @Override
+        public SequencedSet<Map.Entry<K, V>> entrySet() {
+            return sequencedEntrySet();
+        }
+
+        @Override
+        public SequencedSet<Map.Entry<K, V>> sequencedEntrySet() {
+            return new EntryView(true);
+        }
+
+        @Override
+        public V putFirst(K key, V value) {
+            return base.putLast(key, value);
+        }
+
+        @Override
+        public V putLast(K key, V value) {
+            return base.putFirst(key, value);
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return base.lastEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return base.firstEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return base.pollLastEntry();
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return base.pollFirstEntry();
+        }
+
+        @Override
+        public SequencedMap<K, V> reversed() {
+            return base;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SequencedMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrentSequencedMapTest extends TestCase {
+
+    public void testBehavesLikeLinkedHashMapOnOneThread() {
+        SplittableRandom random = new SplittableRandom(20);
+        ConcurrentSequencedMap<Integer, String> map = new ConcurrentSequencedMap<>();
+        SequencedMap<Integer, String> expected = new LinkedHashMap<>();
+
+        for (int step = 0; step < 50_000; step++) {
+            Integer key = random.nextInt(500);
+            String value = "v" + step;
+            switch (random.nextInt(9)) {
+                case 0, 1 -> assertEquals(expected.put(key, value), map.put(key, value));
+                case 2 -> assertEquals(expected.putFirst(key, value), map.putFirst(key, value));
+                case 3 -> assertEquals(expected.putLast(key, value), map.putLast(key, value));
+                case 4 -> assertEquals(expected.remove(key), map.remove(key));
+                case 5 -> assertEquals(expected.get(key), map.get(key));
+                case 6 -> assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                case 7 -> assertEquals(expected.pollFirstEntry(), map.pollFirstEntry());
+                default -> assertEquals(expected.pollLastEntry(), map.pollLastEntry());
+            }
+            if (step % 499 == 0) {
+                assertSameOrder(expected, map);
+            }
+        }
+        assertSameOrder(expected, map);
+        assertEquals(new ArrayList<>(expected.sequencedValues().reversed()),
+                new ArrayList<>(map.sequencedValues().reversed()));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.firstEntry());
+    }
+
+    public void testLruMatchesAccessOrderedLinkedHashMapOnOneThread() {
+        int maximumSize = 100;
+        SplittableRandom random = new SplittableRandom(7);
+        ConcurrentSequencedMap<Integer, Integer> map = ConcurrentSequencedMap.lru(maximumSize);
+        LinkedHashMap<Integer, Integer> expected = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > maximumSize;
+            }
+        };
+
+        for (int step = 0; step < 50_000; step++) {
+            Integer key = random.nextInt(300);
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.put(key, step), map.put(key, step));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.get(key), map.get(key));
+            }
+            if (step % 101 == 0) {
+                assertSameOrder(expected, map);
+            }
+        }
+        assertSameOrder(expected, map);
+    }
+
+    public void testConcurrentWritersKeepTheirOwnOrder() throws Exception {
+        int threads = 16;
+        int keysPerThread = 5_000;
+        ConcurrentSequencedMap<Integer, Integer> map = new ConcurrentSequencedMap<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int first = t * keysPerThread;
+                futures.add(executor.submit(() -> {
+                    for (int key = first; key < first + keysPerThread; key++) {
+                        map.putLast(key, key);
+                        if (key % 3 == 0) {
+                            map.remove(key);
+                        }
+                        if (key % 100 == 0) {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        List<Integer> keys = new ArrayList<>(map.keySet());
+        assertEquals(map.size(), keys.size());
+        int total = threads * keysPerThread;
+        assertEquals(total - (total + 2) / 3, keys.size());
+        int[] lastSeen = new int[threads];
+        Arrays.fill(lastSeen, -1);
+        for (int key : keys) {
+            assertTrue(key % 3 != 0);
+            int thread = key / keysPerThread;
+            assertTrue("key " + key + " out of order", key > lastSeen[thread]);
+            lastSeen[thread] = key;
+        }
+    }
+
+    public void testLruStaysBoundedUnderVirtualThreads() throws Exception {
+        int maximumSize = 1_000;
+        ConcurrentSequencedMap<Integer, Integer> cache = ConcurrentSequencedMap.lru(maximumSize);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2_000; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        Integer key = random.nextInt(5_000);
+                        if (cache.get(key) == null) {
+                            cache.putIfAbsent(key, key);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertNotNull(cache.firstEntry());
+        assertEquals(maximumSize, cache.size());
+        List<Integer> keys = new ArrayList<>(cache.keySet());
+        assertEquals(maximumSize, keys.size());
+        assertEquals(maximumSize, new HashSet<>(keys).size());
+        for (Integer key : keys) {
+            assertEquals(key, cache.get(key));
+        }
+    }
+
+    private static <K, V> void assertSameOrder(SequencedMap<K, V> expected, SequencedMap<K, V> actual) {
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        assertEquals(new ArrayList<>(expected.reversed().keySet()), new ArrayList<>(actual.reversed().keySet()));
+        assertEquals(expected.firstEntry(), actual.firstEntry());
+        assertEquals(expected.lastEntry(), actual.lastEntry());
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,146 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SequencedMap;
+import java.util.SplittableRandom;
+
+public class IntSequencedMapTest extends TestCase {
+
+    public void testBehavesLikeLinkedHashMap() {
+        SplittableRandom random = new SplittableRandom(431);
+        IntSequencedMap<String> map = new IntSequencedMap<>(0);
+        SequencedMap<Integer, String> expected = new LinkedHashMap<>();
+
+        for (int step = 0; step < 200_000; step++) {
+            // Few enough distinct keys that most operations hit, with runs of growth and shrinkage.
+            int key = random.nextInt(step % 20_000 < 10_000 ? 3_000 : 300) * 7919 - 1_000_000;
+            String value = step % 13 == 0 ? null : "v" + step;
+            switch (random.nextInt(10)) {
+                case 0, 1, 2 -> assertEquals(expected.put(key, value), map.put(key, value));
+                case 3 -> assertEquals(expected.putFirst(key, value), map.putFirst(key, value));
+                case 4 -> assertEquals(expected.putLast(key, value), map.putLast(key, value));
+                case 5, 6 -> assertEquals(expected.remove(key), map.remove(key));
+                case 7 -> {
+                    assertEquals(expected.get(key), map.get(key));
+                    assertEquals(expected.containsKey(key), map.containsKey(key));
+                }
+                case 8 -> assertEquals(expected.pollFirstEntry(), map.pollFirstEntry());
+                default -> assertEquals(expected.pollLastEntry(), map.pollLastEntry());
+            }
+            assertEquals(expected.size(), map.size());
+            if (step % 997 == 0) {
+                assertSameOrder(expected, map);
+            }
+        }
+        assertSameOrder(expected, map);
+    }
+
+    public void testReversedView() {
+        IntSequencedMap<String> map = new IntSequencedMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(3, "c");
+        SequencedMap<Integer, String> reversed = map.reversed();
+
+        assertEquals(List.of(3, 2, 1), new ArrayList<>(reversed.keySet()));
+        assertEquals(List.of("c", "b", "a"), new ArrayList<>(reversed.values()));
+        assertEquals(Map.entry(3, "c"), reversed.firstEntry());
+        assertSame(map, reversed.reversed());
+
+        reversed.putFirst(0, "z");
+        reversed.put(4, "d");
+        assertEquals(List.of(1, 2, 3, 0, 4), new ArrayList<>(map.keySet()));
+        assertEquals(Map.entry(1, "a"), reversed.pollLastEntry());
+        assertEquals(List.of(4, 0, 3, 2), new ArrayList<>(reversed.keySet()));
+        assertEquals(List.of(2, 3, 0, 4), new ArrayList<>(reversed.sequencedKeySet().reversed()));
+        assertEquals(map, reversed);
+    }
+
+    public void testIteratorRemoveFollowsShiftedEntries() {
+        // Keys hashing to the same slots, so removals shift the probe run under the iterator.
+        IntSequencedMap<Integer> map = new IntSequencedMap<>(1_000);
+        LinkedHashMap<Integer, Integer> expected = new LinkedHashMap<>();
+        for (int key = 0; key < 1_000; key++) {
+            map.put(key << 16, Integer.valueOf(key));
+            expected.put(key << 16, key);
+        }
+        Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+        Iterator<Map.Entry<Integer, Integer>> expectedIterator = expected.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            assertEquals(expectedIterator.next(), entry);
+            if (entry.getValue() % 3 != 0) {
+                iterator.remove();
+                expectedIterator.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+            }
+        }
+        expected.replaceAll((key, value) -> -value);
+        assertSameOrder(expected, map);
+    }
+
+    public void testPrimitiveAccessors() {
+        IntSequencedMap<String> map = new IntSequencedMap<>();
+        try {
+            map.firstKey();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+        assertNull(map.firstEntry());
+        assertNull(map.pollLastEntry());
+
+        map.put(Integer.MIN_VALUE, "min");
+        map.put(0, "zero");
+        map.putFirst(Integer.MAX_VALUE, "max");
+        assertEquals(Integer.MAX_VALUE, map.firstKey());
+        assertEquals(0, map.lastKey());
+        assertEquals("min", map.get(Integer.MIN_VALUE));
+        assertEquals("none", map.getOrDefault(1, "none"));
+        assertNull(map.get("0"));
+
+        List<String> visited = new ArrayList<>();
+        map.forEachEntry((key, value) -> visited.add(key + "=" + value));
+        assertEquals(List.of(Integer.MAX_VALUE + "=max", Integer.MIN_VALUE + "=min", "0=zero"), visited);
+        assertEquals("{" + String.join(", ", visited) + "}", map.toString());
+
+        try {
+            map.forEachEntry((key, value) -> map.remove(key));
+            fail();
+        } catch (ConcurrentModificationException expected) {
+        }
+    }
+
+    public void testLongKeys() {
+        LongSequencedMap<Long> map = new LongSequencedMap<>();
+        LinkedHashMap<Long, Long> expected = new LinkedHashMap<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int step = 0; step < 50_000; step++) {
+            long key = (random.nextLong(2_000) << 32) | random.nextInt(2);
+            Long value = (long) step;
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.putFirst(key, value), map.putFirst(key, value));
+                case 1 -> assertEquals(expected.remove(key), map.remove(key));
+                default -> assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertSameOrder(expected, map);
+        assertEquals(expected.firstEntry().getKey().longValue(), map.firstKey());
+        assertEquals(expected.hashCode(), map.hashCode());
+    }
+
+    private static <K, V> void assertSameOrder(SequencedMap<K, V> expected, SequencedMap<K, V> actual) {
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        assertEquals(new ArrayList<>(expected.reversed().entrySet()), new ArrayList<>(actual.reversed().entrySet()));
+        assertEquals(expected, actual);
+        assertEquals(actual, expected);
+    }
+}
@@ -0,0 +1,161 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SequencedCollection;
+import java.util.SplittableRandom;
+
+public class OffHeapRingBufferTest extends TestCase {
+
+    public void testBehavesLikeABoundedArrayDeque() {
+        int capacity = 64;
+        SplittableRandom random = new SplittableRandom(21);
+        ArrayDeque<Long> expected = new ArrayDeque<>();
+        try (Arena arena = Arena.ofConfined()) {
+            OffHeapRingBuffer buffer = OffHeapRingBuffer.allocate(arena, capacity, Long.BYTES);
+            MemorySegment record = arena.allocate(Long.BYTES);
+            for (long step = 0; step < 100_000; step++) {
+                record.set(ValueLayout.JAVA_LONG, 0, step);
+                switch (random.nextInt(6)) {
+                    case 0 -> {
+                        assertEquals(expected.size() < capacity, buffer.offerLast(record));
+                        if (expected.size() < capacity) {
+                            expected.addLast(step);
+                        }
+                    }
+                    case 1 -> {
+                        assertEquals(expected.size() < capacity, buffer.offerFirst(record));
+                        if (expected.size() < capacity) {
+                            expected.addFirst(step);
+                        }
+                    }
+                    case 2 -> {
+                        if (expected.size() < capacity) {
+                            buffer.claimLast().set(ValueLayout.JAVA_LONG, 0, step);
+                            expected.addLast(step);
+                        }
+                    }
+                    case 3 -> {
+                        if (!expected.isEmpty()) {
+                            assertEquals(expected.removeFirst().longValue(), value(buffer.removeFirst()));
+                        }
+                    }
+                    case 4 -> {
+                        if (!expected.isEmpty()) {
+                            assertEquals(expected.removeLast().longValue(), value(buffer.removeLast()));
+                        }
+                    }
+                    default -> {
+                        if (!expected.isEmpty()) {
+                            assertEquals(expected.getFirst().longValue(), value(buffer.getFirst()));
+                            assertEquals(expected.getLast().longValue(), value(buffer.getLast()));
+                        }
+                    }
+                }
+                assertEquals(expected.size(), buffer.size());
+            }
+            assertEquals(new ArrayList<>(expected), values(buffer));
+            assertEquals(new ArrayList<>(expected.reversed()), values(buffer.reversed()));
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(new ArrayList<>(expected).get(i).longValue(), value(buffer.get(i)));
+            }
+        }
+    }
+
+    public void testElementsAreViewsOfTheRing() {
+        try (OffHeapRingBuffer buffer = OffHeapRingBuffer.allocate(2, Long.BYTES)) {
+            buffer.addLast(MemorySegment.ofArray(new long[]{1}));
+            buffer.getFirst().set(ValueLayout.JAVA_LONG, 0, 42);
+            assertEquals(42, value(buffer.getFirst()));
+
+            buffer.addLast(MemorySegment.ofArray(new long[]{2}));
+            try {
+                buffer.addLast(MemorySegment.ofArray(new long[]{3}));
+                fail();
+            } catch (IllegalStateException expected) {
+            }
+            try {
+                buffer.offerLast(MemorySegment.ofArray(new int[]{3}));
+                fail();
+            } catch (IllegalArgumentException expected) {
+            }
+
+            MemorySegment removed = buffer.removeFirst();
+            buffer.addLast(MemorySegment.ofArray(new long[]{4}));
+            assertEquals("the removed slot was reused", 4, value(removed));
+
+            Iterator<MemorySegment> iterator = buffer.iterator();
+            iterator.next();
+            buffer.removeLast();
+            try {
+                iterator.next();
+                fail();
+            } catch (ConcurrentModificationException expected) {
+            }
+        }
+    }
+
+    public void testReversedView() {
+        try (OffHeapRingBuffer buffer = OffHeapRingBuffer.allocate(8, Long.BYTES)) {
+            SequencedCollection<MemorySegment> reversed = buffer.reversed();
+            reversed.add(MemorySegment.ofArray(new long[]{1}));
+            reversed.addFirst(MemorySegment.ofArray(new long[]{2}));
+            reversed.addLast(MemorySegment.ofArray(new long[]{0}));
+            assertEquals(List.of(0L, 1L, 2L), values(buffer));
+            assertEquals(2, value(reversed.getFirst()));
+            assertEquals(0, value(reversed.removeLast()));
+            assertSame(buffer, reversed.reversed());
+
+            buffer.clear();
+            assertTrue(reversed.isEmpty());
+            try {
+                reversed.getFirst();
+                fail();
+            } catch (NoSuchElementException expected) {
+            }
+        }
+    }
+
+    public void testMappedFile() throws Exception {
+        Path file = Files.createTempFile("ring", ".bin");
+        try (OffHeapRingBuffer buffer = OffHeapRingBuffer.map(file, 1_000, 16)) {
+            for (long i = 0; i < 1_500; i++) {
+                if (buffer.isFull()) {
+                    buffer.removeFirst();
+                }
+                MemorySegment record = buffer.claimLast();
+                record.set(ValueLayout.JAVA_LONG, 0, i);
+                record.set(ValueLayout.JAVA_LONG, 8, -i);
+            }
+            assertEquals(1_000, buffer.longSize());
+            assertEquals(500, value(buffer.getFirst()));
+            assertEquals(-1_499, buffer.getLast().get(ValueLayout.JAVA_LONG, 8));
+        } finally {
+            assertEquals(16_000, Files.size(file));
+            Files.delete(file);
+        }
+    }
+
+    private static long value(MemorySegment record) {
+        return record.get(ValueLayout.JAVA_LONG, 0);
+    }
+
+    private static List<Long> values(Iterable<MemorySegment> records) {
+        List<Long> values = new ArrayList<>();
+        for (MemorySegment record : records) {
+            values.add(value(record));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,84 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SequencedSet;
+import java.util.SplittableRandom;
+
+public class PrimitiveSequencedSetTest extends TestCase {
+
+    public void testIntSetBehavesLikeLinkedHashSet() {
+        SplittableRandom random = new SplittableRandom(21);
+        IntSequencedSet set = new IntSequencedSet(0);
+        SequencedSet<Integer> expected = new LinkedHashSet<>();
+
+        for (int step = 0; step < 100_000; step++) {
+            int element = random.nextInt(2_000) - 1_000;
+            switch (random.nextInt(8)) {
+                case 0, 1, 2 -> assertEquals(expected.add(element), set.add(element));
+                case 3 -> {
+                    expected.addFirst(element);
+                    set.addFirst(element);
+                }
+                case 4 -> {
+                    expected.addLast(element);
+                    set.addLast(element);
+                }
+                case 5, 6 -> assertEquals(expected.remove(element), set.remove(element));
+                default -> assertEquals(expected.contains(element), set.contains(element));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        assertEquals(new ArrayList<>(expected.reversed()), new ArrayList<>(set.reversed()));
+        assertEquals(expected, set);
+        assertEquals(expected.hashCode(), set.hashCode());
+
+        List<Integer> visited = new ArrayList<>();
+        set.forEachInt(visited::add);
+        assertEquals(new ArrayList<>(expected), visited);
+        assertEquals(expected.getFirst().intValue(), set.removeFirstInt());
+        assertEquals(expected.getLast(), set.removeLast());
+    }
+
+    public void testReversedViewInsertsLikeLinkedHashSet() {
+        SequencedSet<Integer> expected = new LinkedHashSet<>(List.of(1, 2, 3));
+        IntSequencedSet set = new IntSequencedSet();
+        set.add(1);
+        set.add(2);
+        set.add(3);
+
+        for (SequencedSet<Integer> s : List.of(expected, set)) {
+            SequencedSet<Integer> reversed = s.reversed();
+            reversed.add(4);
+            reversed.addFirst(0);
+            reversed.addLast(2);
+            assertEquals(Integer.valueOf(0), reversed.removeFirst());
+        }
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+    }
+
+    public void testLongSet() {
+        LongSequencedSet set = new LongSequencedSet();
+        try {
+            set.firstLong();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+        set.add(Long.MAX_VALUE);
+        set.add(1L << 40);
+        set.addFirst(-1L);
+        assertFalse(set.add(1L << 40));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertFalse(set.contains(Integer.valueOf(1)));
+        assertEquals(-1L, set.firstLong());
+        assertEquals(1L << 40, set.lastLong());
+        assertEquals(List.of(1L << 40, Long.MAX_VALUE, -1L), new ArrayList<>(set.reversed()));
+        assertTrue(set.remove(Long.valueOf(Long.MAX_VALUE)));
+        assertEquals("[-1, " + (1L << 40) + "]", set.toString());
+    }
+}
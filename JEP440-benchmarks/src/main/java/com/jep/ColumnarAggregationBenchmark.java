@@ -0,0 +1,71 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.TransactionBatchProcessor.BatchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-account balance totals of one generated batch, computed from the records and from
+ * {@link TransactionColumns}.
+ *
+ * <ul>
+ *   <li>{@code recordsSequential}: {@link TransactionBatchProcessor#processSequentially}, one
+ *       {@code calculateBalanceImpact} and one hash lookup per transaction</li>
+ *   <li>{@code recordsBatch}: the fork-join {@link TransactionBatchProcessor}</li>
+ *   <li>{@code columns}: {@link TransactionColumns#aggregate()}</li>
+ * </ul>
+ *
+ * <p>Divide the bytes read by the columns variant, 12 per transaction, by its time to compare it
+ * with the machine's memory bandwidth.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ColumnarAggregationBenchmark {
+
+    @Param({"2000000"})
+    int size;
+
+    @Param({"10000"})
+    int accounts;
+
+    private Transaction[] transactions;
+    private TransactionColumns columns;
+    private final TransactionBatchProcessor processor = new TransactionBatchProcessor();
+
+    @Setup
+    public void setUp() {
+        transactions = TransactionGenerator.generate(size, accounts, 42);
+        columns = TransactionColumns.of(transactions);
+    }
+
+    @Benchmark
+    public BatchResult recordsSequential() {
+        return TransactionBatchProcessor.processSequentially(transactions);
+    }
+
+    @Benchmark
+    public BatchResult recordsBatch() {
+        return processor.process(transactions);
+    }
+
+    @Benchmark
+    public BatchResult columns() {
+        return columns.aggregate();
+    }
+}
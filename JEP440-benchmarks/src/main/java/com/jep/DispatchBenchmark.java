@@ -0,0 +1,288 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of dispatching on the sealed {@link Transaction} hierarchy, per transaction, for
+ * different ways of writing {@link ExhaustiveSwitchPatterns#calculateBalanceImpact}.
+ *
+ * <ul>
+ *   <li>{@code recordPattern}: {@code calculateBalanceImpact} itself, a switch over record
+ *       patterns</li>
+ *   <li>{@code nestedRecordPattern}: the same with the account deconstructed too, as in
+ *       {@code processTransaction}</li>
+ *   <li>{@code typePattern}: a switch over type patterns, reading the amount through the
+ *       accessor</li>
+ *   <li>{@code instanceofChain}: an {@code if (t instanceof PaymentTransaction p) ...}
+ *       {@code else if} chain</li>
+ *   <li>{@code tagSwitch}: a {@code switch} on a byte tag stored next to each transaction, then a
+ *       cast, as {@link TransactionColumns} does</li>
+ *   <li>{@code visitor} and {@code virtualMethod}: classic double dispatch and a polymorphic
+ *       method. The production records have neither, so these run over a mirror hierarchy holding
+ *       the same data.</li>
+ * </ul>
+ *
+ * <p>{@code mix} sets how many receiver types each call site sees: {@code mono} only payments,
+ * {@code bi} payments and refunds, {@code mega} all three. Each mix runs in its own fork, so type
+ * profiles do not leak between them. C2 inlines up to two receiver types at a call site, which is
+ * where {@code visitor} and {@code virtualMethod} should fall off.</p>
+ *
+ * <p>Add {@code -prof gc} to confirm that no variant allocates, and look at the inlining decisions
+ * with
+ * {@code -jvmArgsAppend "-XX:+UnlockDiagnosticVMOptions -XX:+PrintCompilation -XX:+PrintInlining"}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(DispatchBenchmark.SIZE)
+public class DispatchBenchmark {
+
+    static final int SIZE = 4096;
+
+    private static final byte PAYMENT = 0;
+    private static final byte REFUND = 1;
+    private static final byte TRANSFER = 2;
+
+    @Param({"mono", "bi", "mega"})
+    String mix;
+
+    private Transaction[] transactions;
+    private byte[] tags;
+    private Mirror[] mirrors;
+
+    @Setup
+    public void setUp() {
+        int types = switch (mix) {
+            case "mono" -> 1;
+            case "bi" -> 2;
+            case "mega" -> 3;
+            default -> throw new IllegalArgumentException("Unknown mix " + mix);
+        };
+        List<List<Transaction>> byType = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (Transaction transaction : TransactionGenerator.generate(8 * SIZE, 1_000, 42)) {
+            byType.get(tag(transaction)).add(transaction);
+        }
+
+        SplittableRandom random = new SplittableRandom(7);
+        transactions = new Transaction[SIZE];
+        tags = new byte[SIZE];
+        mirrors = new Mirror[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            byte tag = (byte) random.nextInt(types);
+            Transaction transaction = byType.get(tag).get(i);
+            transactions[i] = transaction;
+            tags[i] = tag;
+            mirrors[i] = Mirror.of(transaction);
+        }
+    }
+
+    private static byte tag(Transaction transaction) {
+        return switch (transaction) {
+            case PaymentTransaction payment -> PAYMENT;
+            case RefundTransaction refund -> REFUND;
+            case TransferTransaction transfer -> TRANSFER;
+        };
+    }
+
+    @Benchmark
+    public long recordPattern() {
+        long total = 0;
+        for (Transaction transaction : transactions) {
+            total += Money.minorUnits(ExhaustiveSwitchPatterns.calculateBalanceImpact(transaction));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long nestedRecordPattern() {
+        long total = 0;
+        for (Transaction transaction : transactions) {
+            long impact = switch (transaction) {
+                case PaymentTransaction(AccountInfo(var id, var currency), long amount, var merchantId) ->
+                        ExhaustiveSwitchPatterns.paymentImpact(amount);
+                case RefundTransaction(AccountInfo(var id, var currency), long amount, var transactionId,
+                                       var reason) -> ExhaustiveSwitchPatterns.refundImpact(amount);
+                case TransferTransaction(AccountInfo(var sourceId, var sourceCurrency), AccountInfo destination,
+                                         long amount, var description) ->
+                        ExhaustiveSwitchPatterns.transferImpact(amount);
+            };
+            total += Money.minorUnits(impact);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long typePattern() {
+        long total = 0;
+        for (Transaction transaction : transactions) {
+            long impact = switch (transaction) {
+                case PaymentTransaction payment -> ExhaustiveSwitchPatterns.paymentImpact(payment.amount());
+                case RefundTransaction refund -> ExhaustiveSwitchPatterns.refundImpact(refund.amount());
+                case TransferTransaction transfer -> ExhaustiveSwitchPatterns.transferImpact(transfer.amount());
+            };
+            total += Money.minorUnits(impact);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long instanceofChain() {
+        long total = 0;
+        for (Transaction transaction : transactions) {
+            long impact;
+            if (transaction instanceof PaymentTransaction payment) {
+                impact = ExhaustiveSwitchPatterns.paymentImpact(payment.amount());
+            } else if (transaction instanceof RefundTransaction refund) {
+                impact = ExhaustiveSwitchPatterns.refundImpact(refund.amount());
+            } else {
+                impact = ExhaustiveSwitchPatterns.transferImpact(((TransferTransaction) transaction).amount());
+            }
+            total += Money.minorUnits(impact);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long tagSwitch() {
+        long total = 0;
+        for (int i = 0; i < SIZE; i++) {
+            Transaction transaction = transactions[i];
+            long impact = switch (tags[i]) {
+                case PAYMENT -> ExhaustiveSwitchPatterns.paymentImpact(((PaymentTransaction) transaction).amount());
+                case REFUND -> ExhaustiveSwitchPatterns.refundImpact(((RefundTransaction) transaction).amount());
+                default -> ExhaustiveSwitchPatterns.transferImpact(((TransferTransaction) transaction).amount());
+            };
+            total += Money.minorUnits(impact);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long visitor() {
+        long total = 0;
+        for (Mirror mirror : mirrors) {
+            total += Money.minorUnits(mirror.accept(ImpactVisitor.INSTANCE));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long virtualMethod() {
+        long total = 0;
+        for (Mirror mirror : mirrors) {
+            total += Money.minorUnits(mirror.impact());
+        }
+        return total;
+    }
+
+    /**
+     * The transaction hierarchy as it would look with a visitor and a polymorphic method, for the
+     * variants the sealed records cannot express directly.
+     */
+    private interface Mirror {
+
+        long accept(Visitor visitor);
+
+        long impact();
+
+        static Mirror of(Transaction transaction) {
+            return switch (transaction) {
+                case PaymentTransaction payment -> new MirrorPayment(payment.account(), payment.amount());
+                case RefundTransaction refund -> new MirrorRefund(refund.account(), refund.amount());
+                case TransferTransaction transfer -> new MirrorTransfer(transfer.sourceAccount(), transfer.amount());
+            };
+        }
+    }
+
+    private interface Visitor {
+
+        long visitPayment(MirrorPayment payment);
+
+        long visitRefund(MirrorRefund refund);
+
+        long visitTransfer(MirrorTransfer transfer);
+    }
+
+    private record MirrorPayment(AccountInfo account, long amount) implements Mirror {
+
+        @Override
+        public long accept(Visitor visitor) {
+            return visitor.visitPayment(this);
+        }
+
+        @Override
+        public long impact() {
+            return ExhaustiveSwitchPatterns.paymentImpact(amount);
+        }
+    }
+
+    private record MirrorRefund(AccountInfo account, long amount) implements Mirror {
+
+        @Override
+        public long accept(Visitor visitor) {
+            return visitor.visitRefund(this);
+        }
+
+        @Override
+        public long impact() {
+            return ExhaustiveSwitchPatterns.refundImpact(amount);
+        }
+    }
+
+    private record MirrorTransfer(AccountInfo sourceAccount, long amount) implements Mirror {
+
+        @Override
+        public long accept(Visitor visitor) {
+            return visitor.visitTransfer(this);
+        }
+
+        @Override
+        public long impact() {
+            return ExhaustiveSwitchPatterns.transferImpact(amount);
+        }
+    }
+
+    private enum ImpactVisitor implements Visitor {
+        INSTANCE;
+
+        @Override
+        public long visitPayment(MirrorPayment payment) {
+            return ExhaustiveSwitchPatterns.paymentImpact(payment.amount());
+        }
+
+        @Override
+        public long visitRefund(MirrorRefund refund) {
+            return ExhaustiveSwitchPatterns.refundImpact(refund.amount());
+        }
+
+        @Override
+        public long visitTransfer(MirrorTransfer transfer) {
+            return ExhaustiveSwitchPatterns.transferImpact(transfer.amount());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.jep;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares three representations of the same transaction amounts: {@code double} major units,
+ * {@link BigDecimal} and packed {@link Money}.
+ *
+ * <ul>
+ *   <li>{@code sum*}: totals {@code size} amounts, as the balance aggregation does, either with
+ *       {@link Money#add} or by summing minor units and packing the result once</li>
+ *   <li>{@code compare*}: counts how many amounts are smaller than the next one</li>
+ *   <li>{@code format*}: renders one amount with its currency, as {@code processTransaction}
+ *       does; the {@code Money} variant appends to a reused builder</li>
+ * </ul>
+ *
+ * <p>Run it with the GC profiler, {@code java -jar target/benchmarks.jar MoneyBenchmark -prof gc},
+ * and compare {@code gc.alloc.rate.norm} as well as the time: the {@code double} sum is fast but
+ * inexact, the {@code BigDecimal} sum is exact but allocates on every addition.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final String CURRENCY = "USD";
+
+    @Param({"10000"})
+    int size;
+
+    private double[] doubles;
+    private BigDecimal[] decimals;
+    private long[] amounts;
+    private final StringBuilder builder = new StringBuilder(32);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        doubles = new double[size];
+        decimals = new BigDecimal[size];
+        amounts = new long[size];
+        for (int i = 0; i < size; i++) {
+            long cents = random.nextLong(-1_000_000, 1_000_000);
+            doubles[i] = cents / 100.0;
+            decimals[i] = BigDecimal.valueOf(cents, Money.SCALE);
+            amounts[i] = Money.of(cents, CURRENCY);
+        }
+    }
+
+    @Benchmark
+    public double sumDouble() {
+        double total = 0;
+        for (double amount : doubles) {
+            total += amount;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal amount : decimals) {
+            total = total.add(amount);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long sumMoney() {
+        long total = Money.of(0, CURRENCY);
+        for (long amount : amounts) {
+            total = Money.add(total, amount);
+        }
+        return total;
+    }
+
+    /**
+     * What {@link TransactionBatchProcessor} does: sums the minor units as plain {@code long}s and
+     * packs the currency back in once, instead of checking it on every addition.
+     */
+    @Benchmark
+    public long sumMoneyMinorUnits() {
+        long total = 0;
+        for (long amount : amounts) {
+            total += Money.minorUnits(amount);
+        }
+        return Money.of(total, CURRENCY);
+    }
+
+    @Benchmark
+    public int compareDouble() {
+        int ascending = 0;
+        for (int i = 1; i < doubles.length; i++) {
+            if (Double.compare(doubles[i - 1], doubles[i]) < 0) {
+                ascending++;
+            }
+        }
+        return ascending;
+    }
+
+    @Benchmark
+    public int compareBigDecimal() {
+        int ascending = 0;
+        for (int i = 1; i < decimals.length; i++) {
+            if (decimals[i - 1].compareTo(decimals[i]) < 0) {
+                ascending++;
+            }
+        }
+        return ascending;
+    }
+
+    @Benchmark
+    public int compareMoney() {
+        int ascending = 0;
+        for (int i = 1; i < amounts.length; i++) {
+            if (Money.compare(amounts[i - 1], amounts[i]) < 0) {
+                ascending++;
+            }
+        }
+        return ascending;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String formatDouble() {
+        return String.format("%.2f %s", doubles[nextIndex()], CURRENCY);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String formatBigDecimal() {
+        return decimals[nextIndex()].toPlainString() + ' ' + CURRENCY;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int formatMoney() {
+        builder.setLength(0);
+        return Money.appendTo(builder, amounts[nextIndex()]).length();
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == size ? 0 : index + 1;
+        return index;
+    }
+}
@@ -0,0 +1,106 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+import com.jep.TransactionScreener.AmountAbove;
+import com.jep.TransactionScreener.BlockedDestination;
+import com.jep.TransactionScreener.BlockedMerchant;
+import com.jep.TransactionScreener.Rule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to screen one transaction against {@code rules} rules, testing them one by one with
+ * {@link Rule#matches} and through the compiled {@link TransactionScreener}.
+ *
+ * <p>The rules are a third each amount limits for random subtypes in the generator's currencies,
+ * blocked merchants and blocked transfer destinations, so a few percent of the generated
+ * transactions are flagged. The linear scan grows with the number of rules; the screener should
+ * stay flat at a few nanoseconds, i.e. hundreds of millions of transactions per second per
+ * core.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OperationsPerInvocation(ScreeningBenchmark.SIZE)
+public class ScreeningBenchmark {
+
+    static final int SIZE = 4096;
+
+    private static final int ACCOUNTS = 10_000;
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP"};
+
+    private static final List<Class<? extends Transaction>> TYPES = List.of(Transaction.class,
+            PaymentTransaction.class, RefundTransaction.class, TransferTransaction.class);
+
+    @Param({"10", "100", "1000"})
+    int rules;
+
+    private Transaction[] transactions;
+    private Rule[] ruleArray;
+    private TransactionScreener screener;
+
+    @Setup
+    public void setUp() {
+        transactions = TransactionGenerator.generate(SIZE, ACCOUNTS, 42);
+        SplittableRandom random = new SplittableRandom(7);
+        List<Rule> list = new ArrayList<>();
+        for (int i = 0; i < rules; i++) {
+            String name = "rule" + i;
+            list.add(switch (i % 3) {
+                case 0 -> new AmountAbove(name, TYPES.get(random.nextInt(TYPES.size())),
+                        Money.of(random.nextInt(900_000, 1_000_000), CURRENCIES[random.nextInt(CURRENCIES.length)]));
+                case 1 -> new BlockedMerchant(name, "MERCHANT" + random.nextInt(1_000));
+                default -> new BlockedDestination(name, String.format("ACC%06d", random.nextInt(ACCOUNTS)));
+            });
+        }
+        ruleArray = list.toArray(Rule[]::new);
+        screener = new TransactionScreener(list);
+    }
+
+    @Benchmark
+    public int linear() {
+        int flagged = 0;
+        for (Transaction transaction : transactions) {
+            for (Rule rule : ruleArray) {
+                if (rule.matches(transaction)) {
+                    flagged++;
+                    break;
+                }
+            }
+        }
+        return flagged;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int flagged = 0;
+        for (Transaction transaction : transactions) {
+            if (screener.screen(transaction).flagged()) {
+                flagged++;
+            }
+        }
+        return flagged;
+    }
+}
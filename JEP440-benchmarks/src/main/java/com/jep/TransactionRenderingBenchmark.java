@@ -0,0 +1,100 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ways of rendering one transaction's description, cycling through a generated batch.
+ *
+ * <ul>
+ *   <li>{@code stringFormat}: the original implementation, with the amount formatted by
+ *       {@code String.format} as well</li>
+ *   <li>{@code processTransaction}: {@link ExhaustiveSwitchPatterns#processTransaction}, which
+ *       formats the amount with {@link Money#format} and the line with {@code String.format}</li>
+ *   <li>{@code builder}: {@link TransactionRenderer} into one reused {@link StringBuilder}</li>
+ *   <li>{@code byteBuffer}: {@link TransactionRenderer} as UTF-8 into one reused direct
+ *       {@link ByteBuffer}, through its per-thread scratch builder</li>
+ * </ul>
+ *
+ * <p>Run with {@code -prof gc}: the reused targets should show no allocation per operation.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionRenderingBenchmark {
+
+    private Transaction[] transactions;
+    private final StringBuilder builder = new StringBuilder(256);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        transactions = TransactionGenerator.generate(4096, 1_000, 42);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return switch (nextTransaction()) {
+            case PaymentTransaction(AccountInfo(String accId, String currency), long amount, String merchantId) -> {
+                String formattedAmount = String.format("%.2f %s", Money.toDouble(amount), currency);
+                yield String.format("PAYMENT: Account %s paid %s to merchant %s", accId, formattedAmount, merchantId);
+            }
+            case RefundTransaction(AccountInfo(String accId, String currency), long amount,
+                                   String transId, String reason) -> {
+                String formattedAmount = String.format("%.2f %s", Money.toDouble(amount), currency);
+                yield String.format("REFUND: Account %s received refund of %s for transaction %s\nReason: %s",
+                        accId, formattedAmount, transId, reason);
+            }
+            case TransferTransaction(AccountInfo(String srcAccId, String srcCurrency),
+                                     AccountInfo(String destAccId, String destCurrency),
+                                     long amount, String description) -> {
+                String formattedAmount = String.format("%.2f %s", Money.toDouble(amount), srcCurrency);
+                yield String.format("TRANSFER: %s transferred from account %s to account %s\nPurpose: %s",
+                        formattedAmount, srcAccId, destAccId, description);
+            }
+        };
+    }
+
+    @Benchmark
+    public String processTransaction() {
+        return ExhaustiveSwitchPatterns.processTransaction(nextTransaction());
+    }
+
+    @Benchmark
+    public int builder() {
+        builder.setLength(0);
+        return TransactionRenderer.render(nextTransaction(), builder).length();
+    }
+
+    @Benchmark
+    public int byteBuffer() {
+        buffer.clear();
+        return TransactionRenderer.render(nextTransaction(), buffer).position();
+    }
+
+    private Transaction nextTransaction() {
+        Transaction transaction = transactions[next];
+        next = (next + 1) & (transactions.length - 1);
+        return transaction;
+    }
+}
@@ -0,0 +1,162 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.jep.ExhaustiveSwitchPatterns.paymentImpact;
+import static com.jep.ExhaustiveSwitchPatterns.refundImpact;
+import static com.jep.ExhaustiveSwitchPatterns.transferImpact;
+
+/**
+ * Running balance of every account, which any number of threads can post transactions to at
+ * once.
+ *
+ * <p>Each account's balance is a {@link LongAdder} of minor units (cents) in a
+ * {@link ConcurrentHashMap} keyed by {@link AccountInfo}, account id and currency, as in
+ * {@link TransactionBatchProcessor}, so posts to the same account from many threads update
+ * separate cells instead of contending on one lock or one CAS. Payments and refunds change one
+ * account; a transfer debits its source and credits its destination. There are no exchange
+ * rates, so a transfer between accounts in different currencies is rejected.</p>
+ *
+ * <p>A transfer touches two accounts, so reading the adders one by one while posts continue could
+ * see half of it. Posts therefore hold the read side of one of several striped read-write locks,
+ * chosen by thread, which they share with every other post. {@link #snapshot()} takes the write
+ * side of all stripes, which waits for the posts in progress, reads every balance and lets posting
+ * resume. Snapshots are consistent, and posts only ever contend with snapshots, never with each
+ * other.</p>
+ */
+public final class AccountLedger {
+
+    private final ConcurrentHashMap<AccountInfo, LongAdder> balances = new ConcurrentHashMap<>();
+    private final LongAdder postings = new LongAdder();
+    private final ReentrantReadWriteLock[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Balances at one instant.
+     *
+     * @param balances balance per account in minor units of its currency, ordered by account id
+     *                 and currency
+     * @param postings number of transactions posted when the snapshot was taken
+     */
+    public record Snapshot(Map<AccountInfo, Long> balances, long postings) {
+
+        public long balance(AccountInfo account) {
+            return balances.getOrDefault(account, 0L);
+        }
+
+        /**
+         * Sum of the balances in each currency, in minor units, ordered by currency. Transfers
+         * cancel out, so each total is that currency's refunds minus its payments.
+         */
+        public Map<String, Long> totals() {
+            Map<String, Long> totals = new TreeMap<>();
+            balances.forEach((account, balance) -> totals.merge(account.currency(), balance, Long::sum));
+            return Collections.unmodifiableMap(totals);
+        }
+    }
+
+    public AccountLedger() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param concurrency expected number of threads posting at once; rounded up to a power of two
+     *                    to give the number of lock stripes
+     */
+    public AccountLedger(int concurrency) {
+        int size = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        this.stripes = new ReentrantReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        this.stripeMask = size - 1;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the transaction is a transfer between accounts in
+     *                                  different currencies
+     */
+    public void post(Transaction transaction) {
+        if (transaction instanceof TransferTransaction transfer
+                && !transfer.sourceAccount().currency().equals(transfer.destinationAccount().currency())) {
+            throw new IllegalArgumentException("Cross-currency transfer from " + transfer.sourceAccount()
+                    + " to " + transfer.destinationAccount());
+        }
+        Lock lock = stripe().readLock();
+        lock.lock();
+        try {
+            switch (transaction) {
+                case PaymentTransaction payment ->
+                        add(payment.account(), Money.minorUnits(paymentImpact(payment.amount())));
+                case RefundTransaction refund ->
+                        add(refund.account(), Money.minorUnits(refundImpact(refund.amount())));
+                case TransferTransaction transfer -> {
+                    long debit = Money.minorUnits(transferImpact(transfer.amount()));
+                    add(transfer.sourceAccount(), debit);
+                    add(transfer.destinationAccount(), -debit);
+                }
+            }
+            postings.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void postAll(Transaction[] transactions) {
+        for (Transaction transaction : transactions) {
+            post(transaction);
+        }
+    }
+
+    /**
+     * Returns the current balance of one account in minor units. Concurrent posts may or may not be
+     * included; use {@link #snapshot()} to read several accounts consistently.
+     */
+    public long balance(AccountInfo account) {
+        LongAdder balance = balances.get(account);
+        return balance == null ? 0 : balance.sum();
+    }
+
+    /**
+     * Returns every balance as of one instant, briefly pausing posts while it is taken.
+     */
+    public Snapshot snapshot() {
+        for (ReentrantReadWriteLock stripe : stripes) {
+            stripe.writeLock().lock();
+        }
+        try {
+            Map<AccountInfo, Long> copy = new TreeMap<>(TransactionBatchProcessor.ACCOUNT_ORDER);
+            balances.forEach((account, balance) -> copy.put(account, balance.sum()));
+            return new Snapshot(Collections.unmodifiableMap(copy), postings.sum());
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].writeLock().unlock();
+            }
+        }
+    }
+
+    private ReentrantReadWriteLock stripe() {
+        long id = Thread.currentThread().threadId();
+        return stripes[(int) (id ^ (id >>> 16)) & stripeMask];
+    }
+
+    private void add(AccountInfo account, long amount) {
+        LongAdder balance = balances.get(account);
+        if (balance == null) {
+            balance = balances.computeIfAbsent(account, key -> new LongAdder());
+        }
+        balance.add(amount);
+    }
+}
@@ -15,28 +15,42 @@ public class ExhaustiveSwitchPatterns {
     // Record for storing account information
     record AccountInfo(String accountId, String currency) {}
 
-    // Different transaction types as records
-    record PaymentTransaction(AccountInfo account, double amount, String merchantId) implements Transaction {}
+    // Different transaction types as records. Amounts are Money values in the account's currency
+    // (the source account's for transfers).
+    record PaymentTransaction(AccountInfo account, long amount, String merchantId) implements Transaction {
+        PaymentTransaction {
+            Money.requireCurrency(amount, account.currency());
+        }
+    }
 
-    record RefundTransaction(AccountInfo account, double amount, String originalTransactionId, String reason
-    ) implements Transaction {}
+    record RefundTransaction(AccountInfo account, long amount, String originalTransactionId, String reason
+    ) implements Transaction {
+        RefundTransaction {
+            Money.requireCurrency(amount, account.currency());
+        }
+    }
 
     record TransferTransaction(AccountInfo sourceAccount, AccountInfo destinationAccount,
-                               double amount, String description
-    ) implements Transaction {}
+                               long amount, String description
+    ) implements Transaction {
+        TransferTransaction {
+            Money.requireCurrency(amount, sourceAccount.currency());
+        }
+    }
 
     /**
-     * Processes a transaction and returns a detailed description of the action taken
+     * Processes a transaction and returns a detailed description of the action taken.
+     * {@link TransactionRenderer} writes the same description into a reusable buffer.
      */
     public static String processTransaction(Transaction transaction) {
         // Using an exhaustive switch with record patterns to handle all transaction types
         return switch (transaction) {
             case PaymentTransaction(
                 AccountInfo(String accId, String currency),
-                double amount,
+                long amount,
                 String merchantId
             ) -> {
-                String formattedAmount = String.format("%.2f %s", amount, currency);
+                String formattedAmount = Money.format(amount);
                 yield String.format(
                     "PAYMENT: Account %s paid %s to merchant %s",
                     accId,
@@ -45,9 +59,9 @@ public class ExhaustiveSwitchPatterns {
                 );
             }
             
-            case RefundTransaction(AccountInfo(String accId, String currency), double amount,
+            case RefundTransaction(AccountInfo(String accId, String currency), long amount,
                                    String transId, String reason) -> {
-                String formattedAmount = String.format("%.2f %s", amount, currency);
+                String formattedAmount = Money.format(amount);
                 yield String.format(
                     "REFUND: Account %s received refund of %s for transaction %s\nReason: %s",
                     accId,
@@ -59,8 +73,8 @@ public class ExhaustiveSwitchPatterns {
             
             case TransferTransaction(AccountInfo(String srcAccId, String srcCurrency),
                                      AccountInfo(String destAccId, String destCurrency),
-                                     double amount, String description) -> {
-                String formattedAmount = String.format("%.2f %s", amount, srcCurrency);
+                                     long amount, String description) -> {
+                String formattedAmount = Money.format(amount);
                 yield String.format(
                     "TRANSFER: %s transferred from account %s to account %s\nPurpose: %s",
                     formattedAmount,
@@ -73,23 +87,49 @@ public class ExhaustiveSwitchPatterns {
     }
 
     /**
-     * Calculates the impact on account balance based on transaction type
+     * Calculates the impact on account balance based on transaction type, as a {@link Money} value
      */
-    public static double calculateBalanceImpact(Transaction transaction) {
+    public static long calculateBalanceImpact(Transaction transaction) {
         return switch (transaction) {
-            case PaymentTransaction(AccountInfo acc, double amount, var merchantId) -> 
-                -amount; // Payments decrease balance
+            case PaymentTransaction(AccountInfo acc, long amount, var merchantId) -> 
+                paymentImpact(amount);
             
-            case RefundTransaction(AccountInfo acc, double amount, var transId, var reason) -> 
-                amount;  // Refunds increase balance
+            case RefundTransaction(AccountInfo acc, long amount, var transId, var reason) -> 
+                refundImpact(amount);
             
             case TransferTransaction(
                 AccountInfo source,
                 AccountInfo destination,
-                double amount,
+                long amount,
                 var description
             ) -> 
-                -amount; // Transfers decrease balance
+                transferImpact(amount);
+        };
+    }
+
+    /**
+     * Returns the account whose balance {@link #calculateBalanceImpact} applies to: the paying or
+     * refunded account, or the source of a transfer.
+     */
+    static AccountInfo impactedAccount(Transaction transaction) {
+        return switch (transaction) {
+            case PaymentTransaction payment -> payment.account();
+            case RefundTransaction refund -> refund.account();
+            case TransferTransaction transfer -> transfer.sourceAccount();
         };
     }
-}
\ No newline at end of file
+
+    // Per-type rules, shared with TransactionBatchProcessor so batch totals match the switch above.
+
+    static long paymentImpact(long amount) {
+        return Money.negate(amount); // Payments decrease balance
+    }
+
+    static long refundImpact(long amount) {
+        return amount;               // Refunds increase balance
+    }
+
+    static long transferImpact(long amount) {
+        return Money.negate(amount); // Transfers decrease balance
+    }
+}
@@ -66,13 +66,13 @@ public class JEP440 {
     private static void exhaustiveSwitchPatterns() {
         Transaction payment = new ExhaustiveSwitchPatterns.PaymentTransaction(
                 new ExhaustiveSwitchPatterns.AccountInfo("ACC123", "USD"),
-                99.99,
+                Money.of(9999, "USD"),
                 "MERCHANT456"
         );
 
         Transaction refund = new ExhaustiveSwitchPatterns.RefundTransaction(
                 new ExhaustiveSwitchPatterns.AccountInfo("ACC123", "USD"),
-                25.00,
+                Money.of(2500, "USD"),
                 "TXN789",
                 "Item returned - wrong size"
         );
@@ -80,7 +80,7 @@ public class JEP440 {
         Transaction transfer = new ExhaustiveSwitchPatterns.TransferTransaction(
                 new ExhaustiveSwitchPatterns.AccountInfo("ACC123", "USD"),
                 new ExhaustiveSwitchPatterns.AccountInfo("ACC456", "USD"),
-                500.00,
+                Money.of(50000, "USD"),
                 "Monthly rent payment"
         );
 
@@ -91,8 +91,8 @@ public class JEP440 {
 
         // Calculate balance impact for each transaction
         System.out.println("\nBalance impact for payment:");
-        System.out.printf("Payment impact: %.2f%n", calculateBalanceImpact(payment));
-        System.out.printf("Refund impact: %.2f%n", calculateBalanceImpact(refund));
-        System.out.printf("Transfer impact: %.2f%n", calculateBalanceImpact(transfer));
+        System.out.printf("Payment impact: %s%n", Money.format(calculateBalanceImpact(payment)));
+        System.out.printf("Refund impact: %s%n", Money.format(calculateBalanceImpact(refund)));
+        System.out.printf("Transfer impact: %s%n", Money.format(calculateBalanceImpact(transfer)));
     }
 }
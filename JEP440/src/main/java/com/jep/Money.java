@@ -0,0 +1,217 @@
+package com.jep;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money amounts packed into a single {@code long}, so they can be stored in records
+ * and arrays, summed, compared and formatted without allocating.
+ *
+ * <p>A money value holds a signed number of minor units at a fixed scale of {@value #SCALE}
+ * (cents) together with its ISO 4217 currency code:</p>
+ * <ul>
+ *   <li>the upper 15 bits are the three letters of the currency code, 5 bits each, {@code A} being
+ *       1 and {@code Z} 26;</li>
+ *   <li>the lower 49 bits are the minor units in two's complement, between
+ *       {@link #MIN_MINOR_UNITS} and {@link #MAX_MINOR_UNITS}, roughly &plusmn;2.8 trillion major
+ *       units.</li>
+ * </ul>
+ *
+ * <p>Sums of minor units are exact, unlike sums of {@code double}s, and stay primitive, unlike
+ * {@link BigDecimal}. Arithmetic that leaves the range throws {@link ArithmeticException};
+ * combining amounts of different currencies throws {@link IllegalArgumentException}.</p>
+ *
+ * <p>Every currency is treated as having two decimals.</p>
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+
+    private static final int AMOUNT_BITS = 49;
+    private static final int CURRENCY_BITS = Long.SIZE - AMOUNT_BITS;
+    private static final int LETTER_BITS = 5;
+    private static final long MINOR_UNITS_PER_MAJOR = 100;
+
+    /**
+     * Largest amount in minor units. The range is symmetric, so negating never overflows.
+     */
+    public static final long MAX_MINOR_UNITS = (1L << (AMOUNT_BITS - 1)) - 1;
+    public static final long MIN_MINOR_UNITS = -MAX_MINOR_UNITS;
+
+    /**
+     * Currency strings by code, filled on first use so {@link #currency(long)} returns the same
+     * instance every time. Racing threads may both create a string; either is fine to keep.
+     */
+    private static final String[] CURRENCIES = new String[1 << CURRENCY_BITS];
+
+    private Money() {
+    }
+
+    /**
+     * Packs an amount given in minor units, e.g. {@code of(9999, "USD")} for 99.99 USD.
+     */
+    public static long of(long minorUnits, String currency) {
+        return pack(encodeCurrency(currency), checkRange(minorUnits));
+    }
+
+    /**
+     * Packs an amount given in major units, rounded to the nearest minor unit.
+     */
+    public static long ofMajor(double amount, String currency) {
+        if (!Double.isFinite(amount)) {
+            throw new IllegalArgumentException("Not a finite amount: " + amount);
+        }
+        return of(Math.round(amount * MINOR_UNITS_PER_MAJOR), currency);
+    }
+
+    /**
+     * Parses the form written by {@link #format(long)}, e.g. {@code "-12.50 EUR"}. At most
+     * {@value #SCALE} decimals are accepted.
+     */
+    public static long parse(CharSequence text) {
+        String value = text.toString();
+        int space = value.lastIndexOf(' ');
+        if (space < 0) {
+            throw new IllegalArgumentException("Expected '<amount> <currency>': " + value);
+        }
+        try {
+            long minorUnits = new BigDecimal(value.substring(0, space)).movePointRight(SCALE).longValueExact();
+            return of(minorUnits, value.substring(space + 1));
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Not an amount with at most " + SCALE + " decimals: " + value, e);
+        }
+    }
+
+    public static long minorUnits(long money) {
+        return (money << CURRENCY_BITS) >> CURRENCY_BITS;
+    }
+
+    /**
+     * Returns the packed currency code, which is equal for equal currencies.
+     */
+    public static int currencyCode(long money) {
+        return (int) (money >>> AMOUNT_BITS);
+    }
+
+    public static String currency(long money) {
+        int code = currencyCode(money);
+        String currency = CURRENCIES[code];
+        if (currency == null) {
+            currency = new String(new char[]{letter(code, 2), letter(code, 1), letter(code, 0)});
+            CURRENCIES[code] = currency;
+        }
+        return currency;
+    }
+
+    /**
+     * Returns {@code money} with its amount replaced, keeping the currency.
+     */
+    public static long withMinorUnits(long money, long minorUnits) {
+        return pack(currencyCode(money), checkRange(minorUnits));
+    }
+
+    public static long add(long augend, long addend) {
+        requireSameCurrency(augend, addend);
+        return withMinorUnits(augend, minorUnits(augend) + minorUnits(addend));
+    }
+
+    public static long subtract(long minuend, long subtrahend) {
+        requireSameCurrency(minuend, subtrahend);
+        return withMinorUnits(minuend, minorUnits(minuend) - minorUnits(subtrahend));
+    }
+
+    public static long negate(long money) {
+        return withMinorUnits(money, -minorUnits(money));
+    }
+
+    /**
+     * Compares two amounts of the same currency.
+     */
+    public static int compare(long left, long right) {
+        requireSameCurrency(left, right);
+        return Long.compare(minorUnits(left), minorUnits(right));
+    }
+
+    /**
+     * Returns the amount in major units, rounded to the nearest {@code double}, for display and
+     * for code that still works in floating point.
+     */
+    public static double toDouble(long money) {
+        return minorUnits(money) / (double) MINOR_UNITS_PER_MAJOR;
+    }
+
+    public static BigDecimal toBigDecimal(long money) {
+        return BigDecimal.valueOf(minorUnits(money), SCALE);
+    }
+
+    /**
+     * Appends the amount with {@value #SCALE} decimals followed by a space and the currency, e.g.
+     * {@code "-1234.50 USD"}. The output does not depend on the default locale: the decimal
+     * separator is always {@code '.'}, as with {@code String.format(Locale.ROOT, "%.2f %s", ...)}.
+     * Nothing is allocated beyond the builder's own growth.
+     */
+    public static StringBuilder appendTo(StringBuilder out, long money) {
+        long minorUnits = minorUnits(money);
+        if (minorUnits < 0) {
+            out.append('-');
+            minorUnits = -minorUnits;
+        }
+        long fraction = minorUnits % MINOR_UNITS_PER_MAJOR;
+        out.append(minorUnits / MINOR_UNITS_PER_MAJOR)
+                .append('.')
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10))
+                .append(' ');
+        int code = currencyCode(money);
+        return out.append(letter(code, 2)).append(letter(code, 1)).append(letter(code, 0));
+    }
+
+    public static String format(long money) {
+        return appendTo(new StringBuilder(24), money).toString();
+    }
+
+    /**
+     * Throws unless {@code money} is in {@code currency}; used to keep a transaction's amount in
+     * its account's currency.
+     */
+    static void requireCurrency(long money, String currency) {
+        if (currencyCode(money) != encodeCurrency(currency)) {
+            throw new IllegalArgumentException("Amount " + format(money) + " is not in " + currency);
+        }
+    }
+
+    private static void requireSameCurrency(long left, long right) {
+        if (currencyCode(left) != currencyCode(right)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency(left) + " and " + currency(right));
+        }
+    }
+
+    private static int encodeCurrency(String currency) {
+        if (currency.length() != 3) {
+            throw new IllegalArgumentException("Not an ISO 4217 currency code: " + currency);
+        }
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = currency.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Not an ISO 4217 currency code: " + currency);
+            }
+            code = (code << LETTER_BITS) | (c - 'A' + 1);
+        }
+        return code;
+    }
+
+    private static char letter(int code, int position) {
+        return (char) ('A' - 1 + ((code >>> (position * LETTER_BITS)) & ((1 << LETTER_BITS) - 1)));
+    }
+
+    private static long checkRange(long minorUnits) {
+        if (minorUnits < MIN_MINOR_UNITS || minorUnits > MAX_MINOR_UNITS) {
+            throw new ArithmeticException("Amount out of range: " + minorUnits + " minor units");
+        }
+        return minorUnits;
+    }
+
+    private static long pack(int currencyCode, long minorUnits) {
+        return ((long) currencyCode << AMOUNT_BITS) | (minorUnits & ((1L << AMOUNT_BITS) - 1));
+    }
+}
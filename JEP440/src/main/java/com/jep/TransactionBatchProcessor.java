@@ -0,0 +1,409 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import static com.jep.ExhaustiveSwitchPatterns.paymentImpact;
+import static com.jep.ExhaustiveSwitchPatterns.refundImpact;
+import static com.jep.ExhaustiveSwitchPatterns.transferImpact;
+
+/**
+ * Computes per-account balance totals for large batches of {@link Transaction}s on a
+ * {@link ForkJoinPool}.
+ *
+ * <p>Calling {@link ExhaustiveSwitchPatterns#calculateBalanceImpact} for every transaction of a
+ * settlement run dispatches on the sealed type millions of times, and a single thread does all
+ * the work. The batch engine instead:</p>
+ * <ol>
+ *   <li>groups the batch by sealed subtype, in parallel and preserving input order within each
+ *       group, so each group is dispatched once;</li>
+ *   <li>sums each group's balance impacts per account in chunks sized to the pool, which it
+ *       processes in parallel, using the same per-type rules as the switch;</li>
+ *   <li>merges the chunk totals.</li>
+ * </ol>
+ *
+ * <p>Amounts are {@link Money} values, so totals are exact sums of minor units and the same as
+ * summing {@code calculateBalanceImpact} over the batch one transaction at a time, whatever the
+ * pool's parallelism, see {@link #processSequentially(Transaction[])}.</p>
+ */
+public final class TransactionBatchProcessor {
+
+    /**
+     * Fewest transactions handled by one task, so task and merge overhead stay noise.
+     */
+    static final int MIN_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Tasks per worker thread; a few per worker let the pool balance uneven chunks.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    static final Comparator<AccountInfo> ACCOUNT_ORDER =
+            Comparator.comparing(AccountInfo::accountId).thenComparing(AccountInfo::currency);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Totals of one batch.
+     *
+     * @param balances  balance impact per account as a {@link Money} value, ordered by account id
+     *                  and currency
+     * @param payments  number of payments in the batch
+     * @param refunds   number of refunds in the batch
+     * @param transfers number of transfers in the batch
+     */
+    public record BatchResult(Map<AccountInfo, Long> balances, int payments, int refunds, int transfers) {
+
+        public int transactions() {
+            return payments + refunds + transfers;
+        }
+    }
+
+    public TransactionBatchProcessor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public TransactionBatchProcessor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Processes a generated batch with the batch engine and one transaction at a time, and prints
+     * both timings. The batch size defaults to two million, {@code -Dbatch.size} overrides it.
+     */
+    public static void main(String[] args) {
+        int size = Integer.getInteger("batch.size", 2_000_000);
+        Transaction[] transactions = TransactionGenerator.generate(size, 10_000, 42);
+        TransactionBatchProcessor processor = new TransactionBatchProcessor();
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            BatchResult sequential = processSequentially(transactions);
+            long sequentialNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BatchResult batch = processor.process(transactions);
+            long batchNanos = System.nanoTime() - start;
+
+            System.out.printf("%,d transactions, %,d accounts: one at a time %dms, batch %dms (parallelism %d), identical: %b%n",
+                    batch.transactions(), batch.balances().size(), sequentialNanos / 1_000_000, batchNanos / 1_000_000,
+                    processor.pool.getParallelism(), batch.equals(sequential));
+        }
+    }
+
+    public BatchResult process(Stream<? extends Transaction> transactions) {
+        return process(transactions.toArray(Transaction[]::new));
+    }
+
+    public BatchResult process(Transaction[] transactions) {
+        int chunkSize = chunkSize(transactions.length);
+        Groups groups = group(transactions, chunkSize);
+        Map<AccountInfo, Total> totals = pool.invoke(new BalanceTask(groups, chunkSize));
+        return result(totals, groups.payments().length, groups.refunds().length, groups.transfers().length);
+    }
+
+    /**
+     * The reference the batch engine must agree with: {@code calculateBalanceImpact} applied to
+     * each transaction in turn, on the calling thread.
+     */
+    public static BatchResult processSequentially(Transaction[] transactions) {
+        Map<AccountInfo, Total> totals = new HashMap<>();
+        int payments = 0;
+        int refunds = 0;
+        int transfers = 0;
+        for (Transaction transaction : transactions) {
+            Total total = totals.computeIfAbsent(ExhaustiveSwitchPatterns.impactedAccount(transaction),
+                    account -> new Total());
+            total.minorUnits += Money.minorUnits(ExhaustiveSwitchPatterns.calculateBalanceImpact(transaction));
+            switch (transaction) {
+                case PaymentTransaction payment -> payments++;
+                case RefundTransaction refund -> refunds++;
+                case TransferTransaction transfer -> transfers++;
+            }
+        }
+        return result(totals, payments, refunds, transfers);
+    }
+
+    private static BatchResult result(Map<AccountInfo, Total> totals, int payments, int refunds, int transfers) {
+        Map<AccountInfo, Long> balances = new TreeMap<>(ACCOUNT_ORDER);
+        totals.forEach((account, total) -> balances.put(account, Money.of(total.minorUnits, account.currency())));
+        return new BatchResult(Collections.unmodifiableMap(balances), payments, refunds, transfers);
+    }
+
+    /**
+     * Running total of one account in minor units. Every amount of an account is in its currency,
+     * so the currency is only packed back in, and the range checked, when the result is built.
+     */
+    private static final class Total {
+        long minorUnits;
+    }
+
+    private record Groups(PaymentTransaction[] payments, RefundTransaction[] refunds,
+                          TransferTransaction[] transfers) {
+    }
+
+    /**
+     * Splits the batch into one array per subtype. The first pass counts each subtype per chunk,
+     * the second copies every transaction to its chunk's offset in its group, so both passes run
+     * in parallel and the groups keep the input order.
+     */
+    private Groups group(Transaction[] transactions, int chunkSize) {
+        int chunks = chunks(transactions.length, chunkSize);
+        int[][] counts = new int[chunks][3];
+        pool.invoke(new ChunkAction(0, chunks, chunk -> {
+            int[] count = counts[chunk];
+            for (int i = chunk * chunkSize, end = chunkEnd(chunk, chunkSize, transactions.length); i < end; i++) {
+                switch (transactions[i]) {
+                    case PaymentTransaction payment -> count[0]++;
+                    case RefundTransaction refund -> count[1]++;
+                    case TransferTransaction transfer -> count[2]++;
+                }
+            }
+        }));
+
+        // Turn the counts into each chunk's starting offset per group.
+        int[] totals = new int[3];
+        for (int[] count : counts) {
+            for (int type = 0; type < 3; type++) {
+                int n = count[type];
+                count[type] = totals[type];
+                totals[type] += n;
+            }
+        }
+
+        Groups groups = new Groups(new PaymentTransaction[totals[0]], new RefundTransaction[totals[1]],
+                new TransferTransaction[totals[2]]);
+        pool.invoke(new ChunkAction(0, chunks, chunk -> {
+            int[] offset = counts[chunk];
+            for (int i = chunk * chunkSize, end = chunkEnd(chunk, chunkSize, transactions.length); i < end; i++) {
+                switch (transactions[i]) {
+                    case PaymentTransaction payment -> groups.payments()[offset[0]++] = payment;
+                    case RefundTransaction refund -> groups.refunds()[offset[1]++] = refund;
+                    case TransferTransaction transfer -> groups.transfers()[offset[2]++] = transfer;
+                }
+            }
+        }));
+        return groups;
+    }
+
+    /**
+     * Totals do not depend on how the batch is split, so the chunk size can follow the pool's
+     * parallelism instead of being fixed.
+     */
+    private int chunkSize(int length) {
+        long perTask = (long) length / ((long) pool.getParallelism() * TASKS_PER_THREAD);
+        return (int) Math.max(MIN_CHUNK_SIZE, perTask + 1);
+    }
+
+    private static int chunks(int length, int chunkSize) {
+        return (int) (((long) length + chunkSize - 1) / chunkSize);
+    }
+
+    private static int chunkEnd(int chunk, int chunkSize, int length) {
+        return (int) Math.min((long) (chunk + 1) * chunkSize, length);
+    }
+
+    /**
+     * Runs {@code body} for every chunk index in {@code [from, to)}, splitting the range in halves
+     * until one chunk is left.
+     */
+    @SuppressWarnings("serial")
+    private static final class ChunkAction extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        ChunkAction(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    body.accept(from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkAction(from, middle, body), new ChunkAction(middle, to, body));
+        }
+    }
+
+    /**
+     * Sums the three groups concurrently and merges their totals.
+     */
+    @SuppressWarnings("serial")
+    private static final class BalanceTask extends RecursiveTask<Map<AccountInfo, Total>> {
+
+        private final Groups groups;
+        private final int chunkSize;
+
+        BalanceTask(Groups groups, int chunkSize) {
+            this.groups = groups;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Map<AccountInfo, Total> compute() {
+            PaymentTotals payments = new PaymentTotals(groups.payments(), chunkSize, 0,
+                    chunks(groups.payments().length, chunkSize));
+            RefundTotals refunds = new RefundTotals(groups.refunds(), chunkSize, 0,
+                    chunks(groups.refunds().length, chunkSize));
+            TransferTotals transfers = new TransferTotals(groups.transfers(), chunkSize, 0,
+                    chunks(groups.transfers().length, chunkSize));
+            ForkJoinTask.invokeAll(payments, refunds, transfers);
+            return merge(merge(payments.join(), refunds.join()), transfers.join());
+        }
+    }
+
+    /**
+     * Per-account totals of one group over a range of chunks; each subclass applies its subtype's
+     * rule without dispatching on the type again.
+     */
+    @SuppressWarnings("serial")
+    private abstract static class GroupTotals<T extends Transaction> extends RecursiveTask<Map<AccountInfo, Total>> {
+
+        final T[] group;
+        final int chunkSize;
+        final int fromChunk;
+        final int toChunk;
+
+        GroupTotals(T[] group, int chunkSize, int fromChunk, int toChunk) {
+            this.group = group;
+            this.chunkSize = chunkSize;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        abstract GroupTotals<T> subtask(int fromChunk, int toChunk);
+
+        abstract void sum(int from, int to, Map<AccountInfo, Total> totals);
+
+        @Override
+        protected Map<AccountInfo, Total> compute() {
+            if (toChunk - fromChunk <= 1) {
+                Map<AccountInfo, Total> totals = new HashMap<>();
+                if (fromChunk < toChunk) {
+                    sum(fromChunk * chunkSize, chunkEnd(fromChunk, chunkSize, group.length), totals);
+                }
+                return totals;
+            }
+            int middle = (fromChunk + toChunk) >>> 1;
+            GroupTotals<T> right = subtask(middle, toChunk);
+            right.fork();
+            Map<AccountInfo, Total> left = subtask(fromChunk, middle).compute();
+            return merge(left, right.join());
+        }
+
+        static void add(Map<AccountInfo, Total> totals, AccountInfo account, long impact) {
+            Total total = totals.get(account);
+            if (total == null) {
+                total = new Total();
+                totals.put(account, total);
+            }
+            total.minorUnits += Money.minorUnits(impact);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class PaymentTotals extends GroupTotals<PaymentTransaction> {
+
+        PaymentTotals(PaymentTransaction[] group, int chunkSize, int fromChunk, int toChunk) {
+            super(group, chunkSize, fromChunk, toChunk);
+        }
+
+        @Override
+        GroupTotals<PaymentTransaction> subtask(int fromChunk, int toChunk) {
+            return new PaymentTotals(group, chunkSize, fromChunk, toChunk);
+        }
+
+        @Override
+        void sum(int from, int to, Map<AccountInfo, Total> totals) {
+            for (int i = from; i < to; i++) {
+                PaymentTransaction payment = group[i];
+                add(totals, payment.account(), paymentImpact(payment.amount()));
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class RefundTotals extends GroupTotals<RefundTransaction> {
+
+        RefundTotals(RefundTransaction[] group, int chunkSize, int fromChunk, int toChunk) {
+            super(group, chunkSize, fromChunk, toChunk);
+        }
+
+        @Override
+        GroupTotals<RefundTransaction> subtask(int fromChunk, int toChunk) {
+            return new RefundTotals(group, chunkSize, fromChunk, toChunk);
+        }
+
+        @Override
+        void sum(int from, int to, Map<AccountInfo, Total> totals) {
+            for (int i = from; i < to; i++) {
+                RefundTransaction refund = group[i];
+                add(totals, refund.account(), refundImpact(refund.amount()));
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class TransferTotals extends GroupTotals<TransferTransaction> {
+
+        TransferTotals(TransferTransaction[] group, int chunkSize, int fromChunk, int toChunk) {
+            super(group, chunkSize, fromChunk, toChunk);
+        }
+
+        @Override
+        GroupTotals<TransferTransaction> subtask(int fromChunk, int toChunk) {
+            return new TransferTotals(group, chunkSize, fromChunk, toChunk);
+        }
+
+        @Override
+        void sum(int from, int to, Map<AccountInfo, Total> totals) {
+            for (int i = from; i < to; i++) {
+                TransferTransaction transfer = group[i];
+                add(totals, transfer.sourceAccount(), transferImpact(transfer.amount()));
+            }
+        }
+    }
+
+    /**
+     * Adds the totals of {@code right} into {@code left}, which is returned.
+     */
+    private static Map<AccountInfo, Total> merge(Map<AccountInfo, Total> left, Map<AccountInfo, Total> right) {
+        if (left.size() < right.size()) {
+            Map<AccountInfo, Total> swap = left;
+            left = right;
+            right = swap;
+        }
+        for (Map.Entry<AccountInfo, Total> entry : right.entrySet()) {
+            Total total = left.get(entry.getKey());
+            if (total == null) {
+                left.put(entry.getKey(), entry.getValue());
+            } else {
+                total.minorUnits += entry.getValue().minorUnits;
+            }
+        }
+        return left;
+    }
+}
@@ -0,0 +1,249 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a stream of {@link Transaction}s.
+ *
+ * <p>Every transaction starts with a one-byte tag for its subtype, followed by its fields in
+ * declaration order:</p>
+ * <ul>
+ *   <li>an account is a varint reference into a dictionary that the encoder and the decoder build
+ *       up in the same order; a reference equal to the dictionary's size introduces a new account,
+ *       whose id and currency follow as strings;</li>
+ *   <li>an amount is the zigzag varint of its {@link Money#minorUnits minor units}; its currency is
+ *       the account's (the source account's for transfers), which the records guarantee;</li>
+ *   <li>a string is a varint of its UTF-8 length plus one, 0 standing for {@code null}, followed
+ *       by the bytes.</li>
+ * </ul>
+ *
+ * <p>A typical generated payment takes about 20 bytes instead of the 60 of its description. The
+ * dictionary makes the format stateful: a stream can only be decoded from its start, by one
+ * {@link Decoder}, which returns the same {@link AccountInfo} instance for every occurrence of an
+ * account.</p>
+ */
+public final class TransactionCodec {
+
+    static final byte PAYMENT = 1;
+    static final byte REFUND = 2;
+    static final byte TRANSFER = 3;
+
+    private TransactionCodec() {
+    }
+
+    /**
+     * Encodes transactions into byte buffers, remembering the accounts already written.
+     */
+    public static final class Encoder {
+
+        private final Map<AccountInfo, Integer> ids = new HashMap<>();
+        private final List<AccountInfo> accounts = new ArrayList<>();
+
+        public Encoder() {
+        }
+
+        /**
+         * Continues a stream whose accounts were introduced in the order {@code accounts} lists
+         * them, e.g. after {@link Decoder#accounts()} read it back.
+         */
+        public Encoder(List<AccountInfo> accounts) {
+            for (AccountInfo account : accounts) {
+                ids.put(account, this.accounts.size());
+                this.accounts.add(account);
+            }
+        }
+
+        /**
+         * Writes {@code transaction} at the buffer's position.
+         *
+         * @throws BufferOverflowException if it does not fit; the buffer then holds part of it and
+         *                                 the encoder is unchanged, so the transaction can be
+         *                                 written again elsewhere
+         */
+        public void encode(Transaction transaction, ByteBuffer out) {
+            int known = accounts.size();
+            try {
+                switch (transaction) {
+                    case PaymentTransaction(AccountInfo account, long amount, String merchantId) -> {
+                        out.put(PAYMENT);
+                        putAccount(out, account);
+                        putAmount(out, amount);
+                        putString(out, merchantId);
+                    }
+                    case RefundTransaction(AccountInfo account, long amount, String transactionId, String reason) -> {
+                        out.put(REFUND);
+                        putAccount(out, account);
+                        putAmount(out, amount);
+                        putString(out, transactionId);
+                        putString(out, reason);
+                    }
+                    case TransferTransaction(AccountInfo source, AccountInfo destination, long amount,
+                                             String description) -> {
+                        out.put(TRANSFER);
+                        putAccount(out, source);
+                        putAccount(out, destination);
+                        putAmount(out, amount);
+                        putString(out, description);
+                    }
+                }
+            } catch (BufferOverflowException e) {
+                while (accounts.size() > known) {
+                    ids.remove(accounts.removeLast());
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Number of accounts introduced so far.
+         */
+        public int accounts() {
+            return accounts.size();
+        }
+
+        private void putAccount(ByteBuffer out, AccountInfo account) {
+            Integer id = ids.get(account);
+            if (id != null) {
+                putVarint(out, id);
+                return;
+            }
+            putVarint(out, accounts.size());
+            putString(out, account.accountId());
+            putString(out, account.currency());
+            ids.put(account, accounts.size());
+            accounts.add(account);
+        }
+    }
+
+    /**
+     * Decodes what an {@link Encoder} wrote, in the same order.
+     */
+    public static final class Decoder {
+
+        private final List<AccountInfo> accounts = new ArrayList<>();
+        private byte[] scratch = new byte[64];
+
+        /**
+         * Reads the transaction at the buffer's position and advances past it.
+         *
+         * @throws IllegalArgumentException if the bytes are not a transaction this decoder can read
+         */
+        public Transaction decode(ByteBuffer in) {
+            byte tag = in.get();
+            return switch (tag) {
+                case PAYMENT -> {
+                    AccountInfo account = getAccount(in);
+                    long amount = getAmount(in, account);
+                    yield new PaymentTransaction(account, amount, getString(in));
+                }
+                case REFUND -> {
+                    AccountInfo account = getAccount(in);
+                    long amount = getAmount(in, account);
+                    yield new RefundTransaction(account, amount, getString(in), getString(in));
+                }
+                case TRANSFER -> {
+                    AccountInfo source = getAccount(in);
+                    AccountInfo destination = getAccount(in);
+                    long amount = getAmount(in, source);
+                    yield new TransferTransaction(source, destination, amount, getString(in));
+                }
+                default -> throw new IllegalArgumentException("Unknown transaction tag " + tag + " at "
+                        + (in.position() - 1));
+            };
+        }
+
+        /**
+         * Accounts introduced so far, in the order they appeared.
+         */
+        public List<AccountInfo> accounts() {
+            return List.copyOf(accounts);
+        }
+
+        private AccountInfo getAccount(ByteBuffer in) {
+            // Compared as a long: a corrupt reference need not fit in an int, or even be positive.
+            long id = getVarint(in);
+            if (id >= 0 && id < accounts.size()) {
+                return accounts.get((int) id);
+            }
+            if (id != accounts.size()) {
+                throw new IllegalArgumentException("Unknown account reference " + Long.toUnsignedString(id)
+                        + ", " + accounts.size() + " accounts known");
+            }
+            AccountInfo account = new AccountInfo(getString(in), getString(in));
+            accounts.add(account);
+            return account;
+        }
+
+        private static long getAmount(ByteBuffer in, AccountInfo account) {
+            long zigzag = getVarint(in);
+            return Money.of((zigzag >>> 1) ^ -(zigzag & 1), account.currency());
+        }
+
+        private String getString(ByteBuffer in) {
+            long encoded = getVarint(in);
+            if (encoded == 0) {
+                return null;
+            }
+            if (encoded < 0 || encoded - 1 > in.remaining()) {
+                throw new IllegalArgumentException("String of " + Long.toUnsignedString(encoded - 1)
+                        + " bytes at " + in.position() + " exceeds the " + in.remaining() + " remaining");
+            }
+            int length = (int) encoded - 1;
+            if (length > scratch.length) {
+                scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+            }
+            in.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void putAmount(ByteBuffer out, long amount) {
+        long minorUnits = Money.minorUnits(amount);
+        putVarint(out, (minorUnits << 1) ^ (minorUnits >> 63));
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        putVarint(out, Utf8.length(value) + 1L);
+        Utf8.put(out, value);
+    }
+
+    /**
+     * Writes {@code value} as an unsigned LEB128 varint, seven bits per byte, low bits first.
+     */
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint longer than 10 bytes at " + in.position());
+    }
+}
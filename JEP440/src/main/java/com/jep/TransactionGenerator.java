@@ -0,0 +1,49 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+
+import java.util.SplittableRandom;
+
+/**
+ * Builds reproducible batches of random transactions for the batch examples and benchmarks.
+ *
+ * <p>Roughly 60% of a batch are payments, 15% refunds and 25% transfers, spread over a fixed set
+ * of accounts. Amounts are {@link Money} values between 0.01 and 9999.99 in the account's
+ * currency. The same seed always yields the same batch.</p>
+ */
+public final class TransactionGenerator {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP"};
+
+    private TransactionGenerator() {
+    }
+
+    public static Transaction[] generate(int count, int accounts, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        AccountInfo[] accountInfos = new AccountInfo[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountInfos[i] = new AccountInfo(String.format("ACC%06d", i), CURRENCIES[i % CURRENCIES.length]);
+        }
+
+        Transaction[] transactions = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            AccountInfo account = accountInfos[random.nextInt(accounts)];
+            long amount = Money.of(random.nextInt(1, 1_000_000), account.currency());
+            int kind = random.nextInt(100);
+            if (kind < 60) {
+                transactions[i] = new PaymentTransaction(account, amount, "MERCHANT" + random.nextInt(1_000));
+            } else if (kind < 75) {
+                transactions[i] = new RefundTransaction(account, amount, "TXN" + random.nextInt(1_000_000),
+                        "Item returned");
+            } else {
+                AccountInfo destination = accountInfos[random.nextInt(accounts)];
+                transactions[i] = new TransferTransaction(account, destination, amount, "Settlement");
+            }
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,355 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Append-only journal of {@link Transaction}s in {@link TransactionCodec} form, stored in a
+ * directory of fixed-size, memory-mapped segment files.
+ *
+ * <p>One {@code TransactionJournal} writes; any number of {@link Reader}s, in this process or
+ * others, read the same files through their own read-only mappings, decoding straight from the
+ * mapped pages without copying them into the heap first. Readers can replay what is there and keep
+ * tailing what is appended afterwards.</p>
+ *
+ * <h2>Layout</h2>
+ * <p>Segments are named {@code journal-000000.seg}, {@code journal-000001.seg}, and so on. Each
+ * starts with a 4-byte magic number, followed by records aligned to 4 bytes. A record is a
+ * little-endian {@code int} length and the encoded transaction. The writer fills in the payload
+ * first and then stores the length with release semantics; readers load it with acquire semantics,
+ * so a reader that sees a length also sees the bytes it covers. A length of 0 means nothing has
+ * been written there yet. A length of -1 marks the end of a segment whose remaining space was too
+ * small for the next record, which then starts the next segment.</p>
+ *
+ * <p>A new segment is created at its full size under a temporary name and then renamed, so readers
+ * never map a file that is still growing. Mapped segments stay mapped until their buffers are
+ * garbage collected, which is how {@link MappedByteBuffer} works before Java 22.</p>
+ */
+public final class TransactionJournal implements Closeable {
+
+    /**
+     * Default segment size, 64 MiB, or about three million generated transactions.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAGIC = 0x4A584E54; // "TNXJ" in little-endian byte order
+    private static final int HEADER_BYTES = Integer.BYTES;
+    private static final int LENGTH_BYTES = Integer.BYTES;
+    private static final int END_OF_SEGMENT = -1;
+
+    private static final VarHandle LENGTH =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** Zeros that a reopened segment's tail is compared against and cleared with. */
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final Path directory;
+    private final int segmentSize;
+    private final TransactionCodec.Encoder encoder;
+    private int segmentIndex;
+    private MappedByteBuffer segment;
+    private int position;
+    private long appended;
+
+    private TransactionJournal(Path directory, int segmentSize, TransactionCodec.Encoder encoder,
+                               int segmentIndex, MappedByteBuffer segment, int position) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.encoder = encoder;
+        this.segmentIndex = segmentIndex;
+        this.segment = segment;
+        this.position = position;
+    }
+
+    /**
+     * Writes {@code -Djournal.size} generated transactions (ten million by default) to a temporary
+     * journal, replays them with a reader, prints both timings and deletes the journal.
+     */
+    public static void main(String[] args) throws IOException {
+        int size = Integer.getInteger("journal.size", 10_000_000);
+        Transaction[] batch = TransactionGenerator.generate(1_000_000, 10_000, 42);
+        Path directory = Files.createTempDirectory("journal");
+
+        long start = System.nanoTime();
+        try (TransactionJournal journal = open(directory)) {
+            for (int i = 0; i < size; i++) {
+                journal.append(batch[i % batch.length]);
+            }
+            journal.force();
+        }
+        long writeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long[] minorUnits = new long[1];
+        long replayed;
+        try (Reader reader = reader(directory)) {
+            replayed = reader.replay(transaction ->
+                    minorUnits[0] += Money.minorUnits(ExhaustiveSwitchPatterns.calculateBalanceImpact(transaction)));
+        }
+        long readNanos = System.nanoTime() - start;
+
+        long bytes = 0;
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                bytes += Files.size(file);
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        System.out.printf("%,d transactions in %,d MiB of segments: written in %dms, replayed in %dms, total impact %d%n",
+                replayed, bytes >> 20, writeNanos / 1_000_000, readNanos / 1_000_000, minorUnits[0]);
+    }
+
+    public static TransactionJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the journal in {@code directory} for appending, creating it if needed. An existing
+     * journal is read to its end first, to learn its accounts and where to continue.
+     *
+     * @param segmentSize size of new segment files; existing ones keep theirs
+     */
+    public static TransactionJournal open(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 64) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        Files.createDirectories(directory);
+        try (Reader reader = reader(directory)) {
+            reader.replay(transaction -> {
+            });
+            int size = segmentSize & -Integer.BYTES;
+            if (reader.segment == null) {
+                MappedByteBuffer segment = create(directory, reader.segmentIndex, size);
+                return new TransactionJournal(directory, size, new TransactionCodec.Encoder(), reader.segmentIndex,
+                        segment, HEADER_BYTES);
+            }
+            MappedByteBuffer segment = map(segmentPath(directory, reader.segmentIndex), FileChannel.MapMode.READ_WRITE);
+            // A writer that stopped mid-append may have left an unpublished payload behind; clear
+            // it so that no part of it is later taken for a record length. Only the dirty range is
+            // written, so the untouched rest of a sparse segment stays unallocated.
+            clear(segment, reader.position);
+            return new TransactionJournal(directory, size, new TransactionCodec.Encoder(reader.decoder.accounts()),
+                    reader.segmentIndex, segment, reader.position);
+        }
+    }
+
+    /**
+     * Opens a reader positioned at the start of the journal in {@code directory}. The directory
+     * may still be empty.
+     */
+    public static Reader reader(Path directory) {
+        return new Reader(directory);
+    }
+
+    /**
+     * Appends {@code transaction}. It becomes visible to readers once this returns.
+     *
+     * @throws IllegalArgumentException if the encoded transaction does not fit in an empty
+     *                                  segment
+     */
+    public void append(Transaction transaction) throws IOException {
+        if (!tryAppend(transaction)) {
+            roll();
+            if (!tryAppend(transaction)) {
+                throw new IllegalArgumentException("Transaction does not fit in a segment of " + segmentSize + " bytes");
+            }
+        }
+        appended++;
+    }
+
+    /**
+     * Number of transactions appended through this instance.
+     */
+    public long appended() {
+        return appended;
+    }
+
+    /**
+     * Writes the current segment's changes to the storage device.
+     */
+    public void force() {
+        segment.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+        segment = null;
+    }
+
+    private boolean tryAppend(Transaction transaction) {
+        // The limit keeps the last 4 bytes free for an end-of-segment marker.
+        if (position + LENGTH_BYTES >= segment.capacity() - LENGTH_BYTES) {
+            return false;
+        }
+        segment.limit(segment.capacity() - LENGTH_BYTES).position(position + LENGTH_BYTES);
+        try {
+            encoder.encode(transaction, segment);
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+        int end = segment.position();
+        segment.limit(segment.capacity());
+        LENGTH.setRelease(segment, position, end - position - LENGTH_BYTES);
+        position = align(end);
+        return true;
+    }
+
+    private void roll() throws IOException {
+        MappedByteBuffer next = create(directory, segmentIndex + 1, segmentSize);
+        segment.limit(segment.capacity());
+        LENGTH.setRelease(segment, position, END_OF_SEGMENT);
+        segment.force();
+        segment = next;
+        segmentIndex++;
+        position = HEADER_BYTES;
+    }
+
+    /**
+     * Zeroes {@code segment} from {@code from} to its end, a page at a time and only up to the last
+     * page that is not already all zeros.
+     */
+    private static void clear(MappedByteBuffer segment, int from) {
+        ByteBuffer zeros = ByteBuffer.wrap(ZEROS);
+        int dirtyEnd = from;
+        for (int offset = from; offset < segment.capacity(); offset += ZEROS.length) {
+            int length = Math.min(ZEROS.length, segment.capacity() - offset);
+            if (segment.slice(offset, length).mismatch(zeros.limit(length)) >= 0) {
+                dirtyEnd = offset + length;
+            }
+        }
+        for (int offset = from; offset < dirtyEnd; offset += ZEROS.length) {
+            segment.put(offset, ZEROS, 0, Math.min(ZEROS.length, dirtyEnd - offset));
+        }
+    }
+
+    private static MappedByteBuffer create(Path directory, int index, int size) throws IOException {
+        Path path = segmentPath(directory, index);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            segment.order(ByteOrder.LITTLE_ENDIAN).putInt(0, MAGIC);
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+            return segment;
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            MappedByteBuffer segment = channel.map(mode, 0, channel.size());
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            if (segment.capacity() < HEADER_BYTES || segment.getInt(0) != MAGIC) {
+                throw new IOException("Not a journal segment: " + path);
+            }
+            return segment;
+        }
+    }
+
+    private static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("journal-%06d.seg", index));
+    }
+
+    private static int align(int position) {
+        return (position + LENGTH_BYTES - 1) & -LENGTH_BYTES;
+    }
+
+    /**
+     * Reads a journal from its start. Each reader has its own mappings and decoder and is meant to
+     * be used by one thread.
+     */
+    public static final class Reader implements Closeable {
+
+        private final Path directory;
+        private final TransactionCodec.Decoder decoder = new TransactionCodec.Decoder();
+        private int segmentIndex;
+        private ByteBuffer segment;
+        private int position = HEADER_BYTES;
+
+        private Reader(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * Returns the next transaction, or {@code null} if the writer has not appended it yet.
+         */
+        public Transaction poll() {
+            while (true) {
+                if (segment == null && !mapNext()) {
+                    return null;
+                }
+                int length = (int) LENGTH.getAcquire(segment, position);
+                if (length == 0) {
+                    return null;
+                }
+                if (length == END_OF_SEGMENT) {
+                    segment = null;
+                    segmentIndex++;
+                    position = HEADER_BYTES;
+                    continue;
+                }
+                int start = position + LENGTH_BYTES;
+                segment.limit(start + length).position(start);
+                Transaction transaction = decoder.decode(segment);
+                if (segment.hasRemaining()) {
+                    throw new IllegalStateException("Record at " + position + " of segment " + segmentIndex
+                            + " has " + segment.remaining() + " undecoded bytes");
+                }
+                // Length accesses are bounded by the limit, not the capacity.
+                segment.limit(segment.capacity());
+                position = align(start + length);
+                return transaction;
+            }
+        }
+
+        /**
+         * Passes every transaction available now to {@code action}, in order, and returns how many
+         * there were.
+         */
+        public long replay(Consumer<? super Transaction> action) {
+            long count = 0;
+            for (Transaction transaction = poll(); transaction != null; transaction = poll()) {
+                action.accept(transaction);
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+            segment = null;
+        }
+
+        private boolean mapNext() {
+            try {
+                segment = map(segmentPath(directory, segmentIndex), FileChannel.MapMode.READ_ONLY);
+                return true;
+            } catch (NoSuchFileException e) {
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Processes a continuous stream of {@link Transaction}s incrementally instead of building a batch
+ * up front.
+ *
+ * <p>Transactions pass through four stages connected by bounded queues, so a slow stage pushes back
+ * on {@link #submit(Transaction)} instead of letting memory grow:</p>
+ * <ol>
+ *   <li>a batcher groups submitted transactions into batches of up to {@code batchSize}, sending a
+ *       batch early once its first transaction has waited {@code linger};</li>
+ *   <li>{@code workers} threads, virtual or platform, classify whole batches in parallel:
+ *       {@link ExhaustiveSwitchPatterns#processTransaction processTransaction} and
+ *       {@link ExhaustiveSwitchPatterns#calculateBalanceImpact calculateBalanceImpact} for each
+ *       transaction;</li>
+ *   <li>a settler applies the batches in submission order to running per-account balances and
+ *       hands every transaction with its description to the {@link Listener};</li>
+ *   <li>every {@code windowSize} settled transactions it closes a {@link Window} with that
+ *       window's impacts and takes a {@link Checkpoint}.</li>
+ * </ol>
+ *
+ * <p>Balances follow {@code calculateBalanceImpact}, i.e. the same totals as
+ * {@link TransactionBatchProcessor}. The pipeline keeps one balance per account and one window of
+ * impacts, and at most {@code 4 * workers} batches are between the batcher and the settler, which
+ * also bounds the batches the settler holds back while an earlier one is still being classified.
+ * Its memory therefore does not depend on how long the input runs. To resume after a restart,
+ * pass the last checkpoint to the constructor and submit the input again from
+ * {@link Checkpoint#offset()}.</p>
+ */
+public final class TransactionPipeline implements AutoCloseable {
+
+    private final Settings settings;
+    private final Listener listener;
+
+    private final BlockingQueue<Transaction> ingress;
+    private final BlockingQueue<Batch> batches;
+    private final BlockingQueue<Batch> classified;
+    private final Semaphore inFlight;
+    private final List<Thread> stages = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean closed;
+
+    // Settler state, only touched by the settler thread until it has finished.
+    private final Map<AccountInfo, long[]> balances = new HashMap<>();
+    private Map<AccountInfo, long[]> window = new HashMap<>();
+    private long offset;
+    private long windowStart;
+    private long windows;
+    private Checkpoint lastCheckpoint;
+
+    /**
+     * @param queueCapacity  transactions that {@link #submit} can queue before it blocks
+     * @param batchSize      most transactions per batch
+     * @param linger         longest a transaction waits for its batch to fill up
+     * @param workers        threads classifying batches
+     * @param virtualThreads whether the stages run on virtual threads or platform threads
+     * @param windowSize     settled transactions per window and between checkpoints
+     */
+    public record Settings(int queueCapacity, int batchSize, Duration linger, int workers, boolean virtualThreads,
+                           int windowSize) {
+
+        public Settings {
+            if (queueCapacity < 1 || batchSize < 1 || workers < 1 || windowSize < 1) {
+                throw new IllegalArgumentException("Sizes and counts must be positive: " + queueCapacity + ", "
+                        + batchSize + ", " + workers + ", " + windowSize);
+            }
+        }
+
+        /**
+         * Reads the {@code pipeline.*} properties, see {@code main}.
+         */
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("pipeline.queueCapacity", 8_192),
+                    Integer.getInteger("pipeline.batchSize", 512),
+                    Duration.ofMillis(Long.getLong("pipeline.lingerMs", 5)),
+                    Integer.getInteger("pipeline.workers", Runtime.getRuntime().availableProcessors()),
+                    Boolean.parseBoolean(System.getProperty("pipeline.virtualThreads", "true")),
+                    Integer.getInteger("pipeline.windowSize", 100_000));
+        }
+    }
+
+    /**
+     * Impacts of the transactions settled in one window.
+     *
+     * @param index       window number, counted from the start of the input
+     * @param firstOffset offset of the window's first transaction
+     * @param endOffset   offset after the window's last transaction
+     * @param impacts     {@link Money} impact per account in this window, for accounts it touched
+     * @param balances    running {@link Money} balance of those accounts at the end of the window
+     */
+    public record Window(long index, long firstOffset, long endOffset, Map<AccountInfo, Long> impacts,
+                         Map<AccountInfo, Long> balances) {
+    }
+
+    /**
+     * Everything needed to resume: how many transactions of the input were settled, how many
+     * windows were closed and the balances they produced.
+     *
+     * @param offset   number of input transactions settled
+     * @param windows  number of windows closed, the index of the next one; kept explicitly
+     *                 because the last window before {@link #finish()} may be partial
+     * @param balances {@link Money} balance per account, ordered by account id and currency
+     */
+    public record Checkpoint(long offset, long windows, Map<AccountInfo, Long> balances) {
+
+        private static final int MAGIC = 0x54504350; // "TPCP"
+
+        public static final Checkpoint START = new Checkpoint(0, 0, Map.of());
+
+        /**
+         * Writes the checkpoint to a temporary file and renames it to {@code path}, so a crash
+         * leaves either the old checkpoint or the new one.
+         */
+        public void writeTo(Path path) throws IOException {
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeLong(offset);
+                out.writeLong(windows);
+                out.writeInt(balances.size());
+                for (Map.Entry<AccountInfo, Long> entry : balances.entrySet()) {
+                    out.writeUTF(entry.getKey().accountId());
+                    out.writeUTF(entry.getKey().currency());
+                    out.writeLong(Money.minorUnits(entry.getValue()));
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        public static Checkpoint readFrom(Path path) throws IOException {
+            try (InputStream file = Files.newInputStream(path);
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a pipeline checkpoint: " + path);
+                }
+                long offset = in.readLong();
+                long windows = in.readLong();
+                int accounts = in.readInt();
+                Map<AccountInfo, Long> balances = new TreeMap<>(TransactionBatchProcessor.ACCOUNT_ORDER);
+                for (int i = 0; i < accounts; i++) {
+                    AccountInfo account = new AccountInfo(in.readUTF(), in.readUTF());
+                    balances.put(account, Money.of(in.readLong(), account.currency()));
+                }
+                return new Checkpoint(offset, windows, Collections.unmodifiableMap(balances));
+            }
+        }
+    }
+
+    /**
+     * Receives the pipeline's output, always on the settler thread and in submission order.
+     */
+    public interface Listener {
+
+        /**
+         * Called for every transaction once it is settled.
+         *
+         * @param offset position of the transaction in the input
+         */
+        default void settled(long offset, Transaction transaction, String description) {
+        }
+
+        default void windowClosed(Window window) {
+        }
+
+        default void checkpoint(Checkpoint checkpoint) {
+        }
+    }
+
+    /**
+     * A run of consecutive transactions; {@code impacts} and {@code descriptions} are filled in by
+     * a worker. A batch with a negative sequence tells the next stage that no more batches follow.
+     */
+    private record Batch(long sequence, Transaction[] transactions, long[] impacts, String[] descriptions) {
+
+        static final Batch END = new Batch(-1, new Transaction[0], new long[0], new String[0]);
+    }
+
+    public TransactionPipeline(Settings settings, Listener listener) {
+        this(settings, listener, Checkpoint.START);
+    }
+
+    /**
+     * Starts a pipeline that continues from {@code checkpoint}: the first transaction submitted is
+     * taken to be the one at {@code checkpoint.offset()} in the input.
+     */
+    public TransactionPipeline(Settings settings, Listener listener, Checkpoint checkpoint) {
+        this.settings = settings;
+        this.listener = listener;
+        this.ingress = new ArrayBlockingQueue<>(settings.queueCapacity());
+        this.batches = new ArrayBlockingQueue<>(settings.workers() * 2);
+        this.classified = new ArrayBlockingQueue<>(settings.workers() * 2);
+        this.inFlight = new Semaphore(settings.workers() * 4);
+        checkpoint.balances().forEach((account, balance) -> balances.put(account, new long[]{Money.minorUnits(balance)}));
+        this.offset = checkpoint.offset();
+        this.windowStart = checkpoint.offset();
+        this.windows = checkpoint.windows();
+        this.lastCheckpoint = checkpoint;
+
+        Thread.Builder threads = settings.virtualThreads()
+                ? Thread.ofVirtual().name("transaction-pipeline-", 0)
+                : Thread.ofPlatform().daemon().name("transaction-pipeline-", 0);
+        stages.add(threads.unstarted(stage(this::batch)));
+        for (int i = 0; i < settings.workers(); i++) {
+            stages.add(threads.unstarted(stage(this::classify)));
+        }
+        stages.add(threads.unstarted(stage(this::settle)));
+        stages.forEach(Thread::start);
+    }
+
+    /**
+     * Streams {@code -Dpipeline.size} generated transactions (two million by default) through a
+     * pipeline configured by the {@code pipeline.*} properties, stopping halfway to save a
+     * checkpoint and resuming from it in a second pipeline, and checks the final balances against
+     * {@link TransactionBatchProcessor}.
+     *
+     * <table>
+     *   <caption>Properties</caption>
+     *   <tr><td>{@code pipeline.queueCapacity}</td><td>8192</td></tr>
+     *   <tr><td>{@code pipeline.batchSize}</td><td>512</td></tr>
+     *   <tr><td>{@code pipeline.lingerMs}</td><td>5</td></tr>
+     *   <tr><td>{@code pipeline.workers}</td><td>available processors</td></tr>
+     *   <tr><td>{@code pipeline.virtualThreads}</td><td>true</td></tr>
+     *   <tr><td>{@code pipeline.windowSize}</td><td>100000</td></tr>
+     * </table>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int size = Integer.getInteger("pipeline.size", 2_000_000);
+        Settings settings = Settings.fromSystemProperties();
+        Transaction[] input = TransactionGenerator.generate(size, 10_000, 42);
+        Path checkpointFile = Files.createTempFile("pipeline", ".checkpoint");
+
+        Listener progress = new Listener() {
+            @Override
+            public void windowClosed(Window window) {
+                System.out.printf("window %d: %,d transactions, %,d accounts touched%n", window.index(),
+                        window.endOffset() - window.firstOffset(), window.impacts().size());
+            }
+        };
+
+        long start = System.nanoTime();
+        Checkpoint checkpoint;
+        try (TransactionPipeline pipeline = new TransactionPipeline(settings, progress)) {
+            for (int i = 0; i < size / 2; i++) {
+                pipeline.submit(input[i]);
+            }
+            checkpoint = pipeline.finish();
+        }
+        checkpoint.writeTo(checkpointFile);
+        System.out.printf("stopped at offset %,d, checkpoint saved%n", checkpoint.offset());
+
+        Checkpoint resumed = Checkpoint.readFrom(checkpointFile);
+        Checkpoint last;
+        try (TransactionPipeline pipeline = new TransactionPipeline(settings, progress, resumed)) {
+            for (long i = resumed.offset(); i < size; i++) {
+                pipeline.submit(input[(int) i]);
+            }
+            last = pipeline.finish();
+        }
+        long nanos = System.nanoTime() - start;
+        Files.delete(checkpointFile);
+
+        boolean identical = last.balances().equals(TransactionBatchProcessor.processSequentially(input).balances());
+        System.out.printf("%,d transactions in %dms (%,.0f/s) on %s, balances identical to the batch engine: %b%n",
+                last.offset(), nanos / 1_000_000, last.offset() * 1e9 / nanos,
+                settings.virtualThreads() ? "virtual threads" : "platform threads", identical);
+    }
+
+    /**
+     * Queues {@code transaction}, waiting while the pipeline is full. Must not be called
+     * concurrently with or after {@link #finish()}.
+     *
+     * @throws IllegalStateException if the pipeline is closed or a stage failed
+     */
+    public void submit(Transaction transaction) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("Pipeline is closed");
+        }
+        while (!ingress.offer(transaction, 10, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    /**
+     * Settles everything submitted so far, closes the last, partial window, stops the stages and
+     * returns the final checkpoint.
+     *
+     * @throws IllegalStateException if a stage failed
+     */
+    public Checkpoint finish() throws InterruptedException {
+        closed = true;
+        for (Thread stage : stages) {
+            stage.join();
+        }
+        checkFailure();
+        return lastCheckpoint;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            try {
+                finish();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void checkFailure() {
+        Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("Transaction pipeline failed", cause);
+        }
+    }
+
+    private interface Stage {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Runs a stage; if one fails, all are interrupted so none stays blocked on a queue.
+     */
+    private Runnable stage(Stage body) {
+        return () -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                // Stopped because another stage failed.
+            } catch (Throwable t) {
+                if (failure.compareAndSet(null, t)) {
+                    stages.forEach(Thread::interrupt);
+                }
+            }
+        };
+    }
+
+    private void batch() throws InterruptedException {
+        int batchSize = settings.batchSize();
+        long lingerNanos = settings.linger().toNanos();
+        List<Transaction> pending = new ArrayList<>(batchSize);
+        long sequence = 0;
+        long deadline = 0;
+        while (true) {
+            if (pending.isEmpty()) {
+                Transaction first = ingress.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && ingress.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                pending.add(first);
+                deadline = System.nanoTime() + lingerNanos;
+            }
+            ingress.drainTo(pending, batchSize - pending.size());
+            long remaining = deadline - System.nanoTime();
+            if (pending.size() < batchSize && remaining > 0 && !closed) {
+                Transaction next = ingress.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next != null) {
+                    pending.add(next);
+                    continue;
+                }
+            }
+            // Released by the settler once the batch is applied.
+            inFlight.acquire();
+            batches.put(newBatch(sequence++, pending));
+            pending.clear();
+        }
+        for (int i = 0; i < settings.workers(); i++) {
+            batches.put(Batch.END);
+        }
+    }
+
+    private static Batch newBatch(long sequence, List<Transaction> transactions) {
+        int size = transactions.size();
+        return new Batch(sequence, transactions.toArray(new Transaction[size]), new long[size], new String[size]);
+    }
+
+    private void classify() throws InterruptedException {
+        for (Batch batch = batches.take(); batch != Batch.END; batch = batches.take()) {
+            Transaction[] transactions = batch.transactions();
+            for (int i = 0; i < transactions.length; i++) {
+                batch.impacts()[i] = Money.minorUnits(ExhaustiveSwitchPatterns.calculateBalanceImpact(transactions[i]));
+                batch.descriptions()[i] = ExhaustiveSwitchPatterns.processTransaction(transactions[i]);
+            }
+            classified.put(batch);
+        }
+        classified.put(Batch.END);
+    }
+
+    private void settle() throws InterruptedException {
+        // Workers finish batches out of order; hold the early ones until their turn.
+        Map<Long, Batch> early = new HashMap<>();
+        long next = 0;
+        int running = settings.workers();
+        while (running > 0) {
+            Batch batch = classified.take();
+            if (batch == Batch.END) {
+                running--;
+                continue;
+            }
+            early.put(batch.sequence(), batch);
+            for (Batch ready = early.remove(next); ready != null; ready = early.remove(next)) {
+                apply(ready);
+                inFlight.release();
+                next++;
+            }
+        }
+        if (offset > windowStart) {
+            closeWindow();
+        }
+    }
+
+    private void apply(Batch batch) {
+        Transaction[] transactions = batch.transactions();
+        for (int i = 0; i < transactions.length; i++) {
+            AccountInfo account = ExhaustiveSwitchPatterns.impactedAccount(transactions[i]);
+            long impact = batch.impacts()[i];
+            balances.computeIfAbsent(account, a -> new long[1])[0] += impact;
+            window.computeIfAbsent(account, a -> new long[1])[0] += impact;
+            listener.settled(offset, transactions[i], batch.descriptions()[i]);
+            offset++;
+            if (offset - windowStart == settings.windowSize()) {
+                closeWindow();
+            }
+        }
+    }
+
+    private void closeWindow() {
+        Map<AccountInfo, Long> impacts = new TreeMap<>(TransactionBatchProcessor.ACCOUNT_ORDER);
+        Map<AccountInfo, Long> touched = new TreeMap<>(TransactionBatchProcessor.ACCOUNT_ORDER);
+        window.forEach((account, impact) -> {
+            impacts.put(account, Money.of(impact[0], account.currency()));
+            touched.put(account, Money.of(balances.get(account)[0], account.currency()));
+        });
+        listener.windowClosed(new Window(windows++, windowStart, offset,
+                Collections.unmodifiableMap(impacts), Collections.unmodifiableMap(touched)));
+
+        Map<AccountInfo, Long> all = new TreeMap<>(TransactionBatchProcessor.ACCOUNT_ORDER);
+        balances.forEach((account, balance) -> all.put(account, Money.of(balance[0], account.currency())));
+        lastCheckpoint = new Checkpoint(offset, windows, Collections.unmodifiableMap(all));
+        listener.checkpoint(lastCheckpoint);
+
+        window = new HashMap<>();
+        windowStart = offset;
+    }
+}
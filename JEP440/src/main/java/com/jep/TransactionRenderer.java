@@ -0,0 +1,105 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the description {@link ExhaustiveSwitchPatterns#processTransaction} returns into a
+ * caller-supplied {@link StringBuilder}, {@link Appendable} or {@link ByteBuffer}, so audit lines
+ * for millions of transactions can be rendered into one reused buffer.
+ *
+ * <p>The templates live in {@link #render(Transaction, StringBuilder)}, which appends the literal
+ * parts and the transaction's fields in turn and formats the amount with
+ * {@link Money#appendTo}, so after warm-up it allocates nothing, unlike {@code String.format},
+ * which boxes its arguments and parses the format on every call. The other targets render into
+ * a per-thread scratch builder first and copy from it.</p>
+ *
+ * <p>{@link #render(Transaction, ByteBuffer)} writes the text as UTF-8, encoding unpaired
+ * surrogates as {@code '?'} like {@link String#getBytes}.</p>
+ */
+public final class TransactionRenderer {
+
+    /**
+     * A scratch builder that grew past this many characters is dropped rather than kept for the
+     * thread's lifetime.
+     */
+    private static final int MAX_RETAINED_SCRATCH = 8 * 1024;
+
+    private static final ThreadLocal<StringBuilder> SCRATCH = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private TransactionRenderer() {
+    }
+
+    /**
+     * Appends the description of {@code transaction} to {@code out} and returns {@code out}.
+     */
+    public static StringBuilder render(Transaction transaction, StringBuilder out) {
+        switch (transaction) {
+            case PaymentTransaction(AccountInfo account, long amount, String merchantId) -> {
+                out.append("PAYMENT: Account ").append(account.accountId()).append(" paid ");
+                Money.appendTo(out, amount).append(" to merchant ").append(merchantId);
+            }
+            case RefundTransaction(AccountInfo account, long amount, String transactionId, String reason) -> {
+                out.append("REFUND: Account ").append(account.accountId()).append(" received refund of ");
+                Money.appendTo(out, amount).append(" for transaction ").append(transactionId)
+                        .append("\nReason: ").append(reason);
+            }
+            case TransferTransaction(AccountInfo source, AccountInfo destination, long amount, String description) -> {
+                out.append("TRANSFER: ");
+                Money.appendTo(out, amount).append(" transferred from account ").append(source.accountId())
+                        .append(" to account ").append(destination.accountId())
+                        .append("\nPurpose: ").append(description);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Appends the description of {@code transaction} to {@code out}, e.g. a buffered
+     * {@link java.io.Writer}, and returns {@code out}.
+     */
+    public static <A extends Appendable> A render(Transaction transaction, A out) throws IOException {
+        if (out instanceof StringBuilder builder) {
+            render(transaction, builder);
+            return out;
+        }
+        StringBuilder scratch = SCRATCH.get();
+        try {
+            out.append(render(transaction, scratch));
+        } finally {
+            release(scratch);
+        }
+        return out;
+    }
+
+    /**
+     * Writes the description of {@code transaction} as UTF-8 at the buffer's position, which is
+     * advanced past it.
+     *
+     * @throws java.nio.BufferOverflowException if the description does not fit; the buffer then
+     *                                          holds part of it
+     */
+    public static ByteBuffer render(Transaction transaction, ByteBuffer out) {
+        StringBuilder scratch = SCRATCH.get();
+        try {
+            Utf8.put(out, render(transaction, scratch));
+        } finally {
+            release(scratch);
+        }
+        return out;
+    }
+
+    private static void release(StringBuilder scratch) {
+        if (scratch.capacity() > MAX_RETAINED_SCRATCH) {
+            SCRATCH.remove();
+        } else {
+            scratch.setLength(0);
+        }
+    }
+}
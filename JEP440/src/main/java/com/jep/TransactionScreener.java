@@ -0,0 +1,406 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Screens transactions against a set of declarative {@link Rule}s compiled into a decision tree.
+ *
+ * <p>Each rule is a predicate on its own, see {@link Rule#matches}, and a list of them can be
+ * screened by testing them one after another, but that costs time linear in the number of rules
+ * for every transaction. The screener instead compiles the rules into one node per subtype of the
+ * sealed {@link Transaction} hierarchy, reached with a single switch over record patterns, and
+ * within it one index per field:</p>
+ * <ul>
+ *   <li>amounts: the {@link AmountAbove} limits for the subtype, grouped by the packed
+ *       {@link Money#currencyCode currency code} of the amount (which is always the account's
+ *       currency) and sorted, so one binary search finds every limit the amount exceeds;</li>
+ *   <li>ids: the {@link BlockedMerchant} and {@link BlockedDestination} ids in hash maps, looked up
+ *       with the payment's merchant id or the transfer's destination account id.</li>
+ * </ul>
+ *
+ * <p>Every possible outcome of an index, such as "above the first three USD limits", is a
+ * {@link Verdict} built at compile time, so screening a transaction allocates nothing unless it
+ * matches rules of two different indexes at once. The cost is a type switch, a hash lookup and a
+ * binary search whatever the number of rules.</p>
+ *
+ * <p>{@link #reload} compiles a new rule set and swaps it in with one volatile write. Calls to
+ * {@link #screen} running meanwhile finish against the old rules, later ones see the new; a rule
+ * set that fails to compile leaves the current one in place. The screener is thread-safe.</p>
+ */
+public final class TransactionScreener {
+
+    /**
+     * A screening rule. The compiled screener flags a transaction for exactly the rules whose
+     * {@link #matches} returns {@code true}.
+     */
+    public sealed interface Rule permits AmountAbove, BlockedMerchant, BlockedDestination {
+
+        /**
+         * Identifies the rule in verdicts and in rule files.
+         */
+        String name();
+
+        boolean matches(Transaction transaction);
+    }
+
+    /**
+     * Flags transactions of {@code type} whose amount is in the currency of {@code limit} and
+     * strictly greater than it.
+     *
+     * @param type  a {@link Transaction} subtype, or {@code Transaction.class} for all of them
+     * @param limit a {@link Money} value
+     */
+    public record AmountAbove(String name, Class<? extends Transaction> type, long limit) implements Rule {
+
+        public AmountAbove {
+            if (type != Transaction.class && type != PaymentTransaction.class && type != RefundTransaction.class
+                    && type != TransferTransaction.class) {
+                throw new IllegalArgumentException("Not a transaction type: " + type);
+            }
+        }
+
+        @Override
+        public boolean matches(Transaction transaction) {
+            if (!type.isInstance(transaction)) {
+                return false;
+            }
+            long amount = amount(transaction);
+            return Money.currencyCode(amount) == Money.currencyCode(limit)
+                    && Money.minorUnits(amount) > Money.minorUnits(limit);
+        }
+
+        private static long amount(Transaction transaction) {
+            return switch (transaction) {
+                case PaymentTransaction payment -> payment.amount();
+                case RefundTransaction refund -> refund.amount();
+                case TransferTransaction transfer -> transfer.amount();
+            };
+        }
+    }
+
+    /**
+     * Flags payments to {@code merchantId}.
+     */
+    public record BlockedMerchant(String name, String merchantId) implements Rule {
+
+        @Override
+        public boolean matches(Transaction transaction) {
+            return transaction instanceof PaymentTransaction(var account, var amount, String merchant)
+                    && merchantId.equals(merchant);
+        }
+    }
+
+    /**
+     * Flags transfers to the account {@code accountId}.
+     */
+    public record BlockedDestination(String name, String accountId) implements Rule {
+
+        @Override
+        public boolean matches(Transaction transaction) {
+            return transaction instanceof TransferTransaction(var source, var destination, var amount, var description)
+                    && accountId.equals(destination.accountId());
+        }
+    }
+
+    /**
+     * The rules a transaction matched: amount rules first, then id rules, each in the order the
+     * rules were given.
+     */
+    public record Verdict(List<Rule> matches) {
+
+        public static final Verdict CLEAR = new Verdict(List.of());
+
+        public Verdict {
+            matches = List.copyOf(matches);
+        }
+
+        public boolean flagged() {
+            return !matches.isEmpty();
+        }
+
+        Verdict and(Verdict other) {
+            if (other.matches.isEmpty()) {
+                return this;
+            }
+            if (matches.isEmpty()) {
+                return other;
+            }
+            List<Rule> both = new ArrayList<>(matches.size() + other.matches.size());
+            both.addAll(matches);
+            both.addAll(other.matches);
+            return new Verdict(both);
+        }
+    }
+
+    private volatile Compiled compiled;
+
+    public TransactionScreener(Collection<? extends Rule> rules) {
+        this.compiled = Compiled.of(rules);
+    }
+
+    /**
+     * Compiles {@code rules} and makes them the ones every later {@link #screen} uses.
+     */
+    public void reload(Collection<? extends Rule> rules) {
+        compiled = Compiled.of(rules);
+    }
+
+    /**
+     * Reloads the rules from a file in the format of {@link #parse}.
+     */
+    public void reload(Path file) throws IOException {
+        reload(parse(Files.readAllLines(file)));
+    }
+
+    public List<Rule> rules() {
+        return compiled.rules;
+    }
+
+    public Verdict screen(Transaction transaction) {
+        Compiled tree = compiled;
+        return switch (transaction) {
+            case PaymentTransaction(var account, long amount, String merchantId) ->
+                    tree.payments.find(amount).and(tree.merchants.getOrDefault(merchantId, Verdict.CLEAR));
+            case RefundTransaction(var account, long amount, var originalId, var reason) ->
+                    tree.refunds.find(amount);
+            case TransferTransaction(var source, var destination, long amount, var description) ->
+                    tree.transfers.find(amount).and(tree.destinations.getOrDefault(destination.accountId(), Verdict.CLEAR));
+        };
+    }
+
+    /**
+     * Parses rules written one per line; blank lines and lines starting with {@code #} are
+     * skipped:
+     * <pre>
+     * amount-above    &lt;name&gt; payment|refund|transfer|any &lt;amount&gt; &lt;currency&gt;
+     * blocked-merchant    &lt;name&gt; &lt;merchant id&gt;
+     * blocked-destination &lt;name&gt; &lt;account id&gt;
+     * </pre>
+     * for example {@code amount-above large-eur-transfer transfer 10000.00 EUR}.
+     *
+     * @throws IllegalArgumentException naming the line of the first malformed rule
+     */
+    public static List<Rule> parse(List<String> lines) {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            try {
+                rules.add(switch (fields[0]) {
+                    case "amount-above" -> {
+                        requireFields(fields, 5);
+                        yield new AmountAbove(fields[1], type(fields[2]), Money.parse(fields[3] + " " + fields[4]));
+                    }
+                    case "blocked-merchant" -> {
+                        requireFields(fields, 3);
+                        yield new BlockedMerchant(fields[1], fields[2]);
+                    }
+                    case "blocked-destination" -> {
+                        requireFields(fields, 3);
+                        yield new BlockedDestination(fields[1], fields[2]);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown rule " + fields[0]);
+                });
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return rules;
+    }
+
+    private static void requireFields(String[] fields, int count) {
+        if (fields.length != count) {
+            throw new IllegalArgumentException(fields[0] + " takes " + (count - 1) + " fields, got " + (fields.length - 1));
+        }
+    }
+
+    private static Class<? extends Transaction> type(String name) {
+        return switch (name) {
+            case "payment" -> PaymentTransaction.class;
+            case "refund" -> RefundTransaction.class;
+            case "transfer" -> TransferTransaction.class;
+            case "any" -> Transaction.class;
+            default -> throw new IllegalArgumentException("Unknown transaction type " + name);
+        };
+    }
+
+    /**
+     * One rule set, compiled. Immutable once built.
+     */
+    private static final class Compiled {
+
+        final List<Rule> rules;
+        final AmountIndex payments;
+        final AmountIndex refunds;
+        final AmountIndex transfers;
+        final Map<String, Verdict> merchants;
+        final Map<String, Verdict> destinations;
+
+        private Compiled(List<Rule> rules, AmountIndex payments, AmountIndex refunds, AmountIndex transfers,
+                         Map<String, Verdict> merchants, Map<String, Verdict> destinations) {
+            this.rules = rules;
+            this.payments = payments;
+            this.refunds = refunds;
+            this.transfers = transfers;
+            this.merchants = merchants;
+            this.destinations = destinations;
+        }
+
+        static Compiled of(Collection<? extends Rule> rules) {
+            List<Rule> copy = List.copyOf(rules);
+            List<AmountAbove> payments = new ArrayList<>();
+            List<AmountAbove> refunds = new ArrayList<>();
+            List<AmountAbove> transfers = new ArrayList<>();
+            Map<String, List<Rule>> merchants = new HashMap<>();
+            Map<String, List<Rule>> destinations = new HashMap<>();
+            for (Rule rule : copy) {
+                switch (rule) {
+                    case AmountAbove amount -> {
+                        if (amount.type().isAssignableFrom(PaymentTransaction.class)) {
+                            payments.add(amount);
+                        }
+                        if (amount.type().isAssignableFrom(RefundTransaction.class)) {
+                            refunds.add(amount);
+                        }
+                        if (amount.type().isAssignableFrom(TransferTransaction.class)) {
+                            transfers.add(amount);
+                        }
+                    }
+                    case BlockedMerchant(var name, String merchantId) ->
+                            merchants.computeIfAbsent(merchantId, id -> new ArrayList<>()).add(rule);
+                    case BlockedDestination(var name, String accountId) ->
+                            destinations.computeIfAbsent(accountId, id -> new ArrayList<>()).add(rule);
+                }
+            }
+            return new Compiled(copy, AmountIndex.of(payments), AmountIndex.of(refunds), AmountIndex.of(transfers),
+                    verdicts(merchants), verdicts(destinations));
+        }
+
+        private static Map<String, Verdict> verdicts(Map<String, List<Rule>> rulesById) {
+            Map<String, Verdict> verdicts = new HashMap<>();
+            rulesById.forEach((id, rules) -> verdicts.put(id, new Verdict(rules)));
+            return verdicts;
+        }
+    }
+
+    /**
+     * The amount limits of one subtype: an open-addressing table from currency code to that
+     * currency's {@link Thresholds}.
+     */
+    private static final class AmountIndex {
+
+        private static final AmountIndex EMPTY = new AmountIndex(new int[1], new Thresholds[1]);
+
+        private final int[] currencies;
+        private final Thresholds[] thresholds;
+        private final int mask;
+
+        private AmountIndex(int[] currencies, Thresholds[] thresholds) {
+            this.currencies = currencies;
+            this.thresholds = thresholds;
+            this.mask = currencies.length - 1;
+        }
+
+        static AmountIndex of(List<AmountAbove> rules) {
+            if (rules.isEmpty()) {
+                return EMPTY;
+            }
+            Map<Integer, List<AmountAbove>> byCurrency = new TreeMap<>();
+            for (AmountAbove rule : rules) {
+                byCurrency.computeIfAbsent(Money.currencyCode(rule.limit()), code -> new ArrayList<>()).add(rule);
+            }
+            // At most half full, so a probe ends at an empty slot after a step or two. Codes are
+            // never 0, which marks an empty slot.
+            int capacity = Integer.highestOneBit(Math.max(1, 2 * byCurrency.size() - 1)) << 1;
+            AmountIndex index = new AmountIndex(new int[capacity], new Thresholds[capacity]);
+            byCurrency.forEach((code, currencyRules) -> {
+                int slot = index.home(code);
+                while (index.currencies[slot] != 0) {
+                    slot = (slot + 1) & index.mask;
+                }
+                index.currencies[slot] = code;
+                index.thresholds[slot] = Thresholds.of(currencyRules);
+            });
+            return index;
+        }
+
+        Verdict find(long amount) {
+            int code = Money.currencyCode(amount);
+            for (int slot = home(code); ; slot = (slot + 1) & mask) {
+                int current = currencies[slot];
+                if (current == code) {
+                    return thresholds[slot].find(Money.minorUnits(amount));
+                }
+                if (current == 0) {
+                    return Verdict.CLEAR;
+                }
+            }
+        }
+
+        private int home(int code) {
+            int hash = code * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+
+    /**
+     * The limits of one subtype and currency, sorted, with the verdict for an amount between each
+     * pair of them: {@code verdicts[i]} holds the rules of the {@code i} lowest limits.
+     */
+    private static final class Thresholds {
+
+        private final long[] limits;
+        private final Verdict[] verdicts;
+
+        private Thresholds(long[] limits, Verdict[] verdicts) {
+            this.limits = limits;
+            this.verdicts = verdicts;
+        }
+
+        static Thresholds of(List<AmountAbove> rules) {
+            long[] limits = rules.stream().mapToLong(rule -> Money.minorUnits(rule.limit())).sorted().distinct().toArray();
+            Verdict[] verdicts = new Verdict[limits.length + 1];
+            verdicts[0] = Verdict.CLEAR;
+            for (int i = 1; i <= limits.length; i++) {
+                long highest = limits[i - 1];
+                // Kept in rule order: a rule is in verdict i if its limit is one of the i lowest.
+                verdicts[i] = new Verdict(rules.stream().filter(rule -> Money.minorUnits(rule.limit()) <= highest)
+                        .map(Rule.class::cast).toList());
+            }
+            return new Thresholds(limits, verdicts);
+        }
+
+        /**
+         * The verdict for {@code minorUnits}: that of the number of limits strictly below it.
+         */
+        Verdict find(long minorUnits) {
+            int low = 0;
+            int high = limits.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (limits[middle] < minorUnits) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return verdicts[low];
+        }
+    }
+}
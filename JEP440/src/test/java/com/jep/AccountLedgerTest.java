@@ -0,0 +1,120 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AccountLedgerTest extends TestCase {
+
+    private static final AccountInfo ALICE = new AccountInfo("ALICE", "USD");
+    private static final AccountInfo BOB = new AccountInfo("BOB", "USD");
+    private static final AccountInfo CLAIRE = new AccountInfo("CLAIRE", "EUR");
+
+    public void testPostsBothSidesOfATransfer() {
+        AccountLedger ledger = new AccountLedger();
+        ledger.post(new RefundTransaction(ALICE, Money.of(2500, "USD"), "TXN1", "Returned"));
+        ledger.post(new PaymentTransaction(ALICE, Money.of(9999, "USD"), "MERCHANT1"));
+        ledger.post(new TransferTransaction(ALICE, BOB, Money.of(50000, "USD"), "Rent"));
+        ledger.post(new PaymentTransaction(CLAIRE, Money.of(700, "EUR"), "MERCHANT2"));
+
+        AccountLedger.Snapshot snapshot = ledger.snapshot();
+        assertEquals(2500 - 9999 - 50000, snapshot.balance(ALICE));
+        assertEquals(50000, snapshot.balance(BOB));
+        assertEquals(4, snapshot.postings());
+        assertEquals(Map.of("EUR", -700L, "USD", 2500L - 9999), snapshot.totals());
+    }
+
+    public void testRejectsCrossCurrencyTransfers() {
+        AccountLedger ledger = new AccountLedger();
+        try {
+            ledger.post(new TransferTransaction(ALICE, CLAIRE, Money.of(100, "USD"), "Gift"));
+            fail("there are no exchange rates");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, ledger.snapshot().postings());
+        assertEquals(0, ledger.balance(ALICE));
+    }
+
+    /**
+     * The debits must match {@link TransactionBatchProcessor#processSequentially}, which applies
+     * each transaction to the account it charges; each transfer's credit is the same amount
+     * refunded to its destination.
+     */
+    public void testAgreesWithTheBatchProcessor() {
+        List<Transaction> batch = new ArrayList<>();
+        List<Transaction> reference = new ArrayList<>();
+        for (Transaction transaction : TransactionGenerator.generate(20_000, 30, 7)) {
+            if (transaction instanceof TransferTransaction transfer
+                    && !transfer.sourceAccount().currency().equals(transfer.destinationAccount().currency())) {
+                continue;
+            }
+            batch.add(transaction);
+            reference.add(transaction);
+            if (transaction instanceof TransferTransaction transfer) {
+                reference.add(new RefundTransaction(transfer.destinationAccount(), transfer.amount(),
+                        "TRANSFER", "Credit"));
+            }
+        }
+        AccountLedger ledger = new AccountLedger();
+        ledger.postAll(batch.toArray(Transaction[]::new));
+
+        TransactionBatchProcessor.BatchResult expected =
+                TransactionBatchProcessor.processSequentially(reference.toArray(Transaction[]::new));
+        AccountLedger.Snapshot snapshot = ledger.snapshot();
+        assertEquals(expected.balances().keySet(), snapshot.balances().keySet());
+        expected.balances().forEach((account, balance) ->
+                assertEquals(account.toString(), Money.minorUnits(balance), snapshot.balance(account)));
+        assertEquals(batch.size(), snapshot.postings());
+    }
+
+    public void testSnapshotsNeverSeeHalfATransfer() throws InterruptedException {
+        AccountLedger ledger = new AccountLedger(4);
+        AtomicBoolean inconsistent = new AtomicBoolean();
+        List<Thread> posters = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Transaction[] transfers = transfers(20_000, t);
+            posters.add(Thread.ofPlatform().start(() -> ledger.postAll(transfers)));
+        }
+        Thread reader = Thread.ofPlatform().start(() -> {
+            while (posters.stream().anyMatch(Thread::isAlive)) {
+                if (!balanced(ledger.snapshot())) {
+                    inconsistent.set(true);
+                }
+            }
+        });
+        for (Thread poster : posters) {
+            poster.join();
+        }
+        reader.join();
+
+        assertFalse("a snapshot saw a transfer half applied", inconsistent.get());
+        assertEquals(80_000, ledger.snapshot().postings());
+        assertTrue(balanced(ledger.snapshot()));
+    }
+
+    private static boolean balanced(AccountLedger.Snapshot snapshot) {
+        return snapshot.totals().values().stream().allMatch(total -> total == 0);
+    }
+
+    /**
+     * Transfers from the generated accounts to one sweep account per currency.
+     */
+    private static Transaction[] transfers(int count, int seed) {
+        Transaction[] generated = TransactionGenerator.generate(count, 50, seed);
+        Transaction[] transfers = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            AccountInfo account = ExhaustiveSwitchPatterns.impactedAccount(generated[i]);
+            AccountInfo sweep = new AccountInfo("SWEEP", account.currency());
+            transfers[i] = new TransferTransaction(account, sweep, Money.of(125, account.currency()), "Sweep");
+        }
+        return transfers;
+    }
+}
@@ -0,0 +1,72 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import junit.framework.TestCase;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+public class MoneyTest extends TestCase {
+
+    public void testPacksAmountAndCurrency() {
+        long money = Money.of(-123_456, "EUR");
+        assertEquals(-123_456, Money.minorUnits(money));
+        assertEquals("EUR", Money.currency(money));
+        assertSame(Money.currency(money), Money.currency(Money.of(1, "EUR")));
+        assertEquals(Money.MAX_MINOR_UNITS, Money.minorUnits(Money.of(Money.MAX_MINOR_UNITS, "ZZZ")));
+        assertEquals(Money.MIN_MINOR_UNITS, Money.minorUnits(Money.of(Money.MIN_MINOR_UNITS, "AAA")));
+    }
+
+    public void testFormatsLikeDoubleFormatting() {
+        for (long minorUnits : new long[]{0, 5, -5, 99, 100, 9999, -123_456, 100_000_001}) {
+            long money = Money.of(minorUnits, "USD");
+            assertEquals(String.format(Locale.ROOT, "%.2f %s", minorUnits / 100.0, "USD"), Money.format(money));
+            assertEquals(money, Money.parse(Money.format(money)));
+        }
+        assertEquals(Money.of(1250, "GBP"), Money.parse("12.5 GBP"));
+        assertEquals(Money.of(1999, "USD"), Money.ofMajor(19.99, "USD"));
+        assertEquals(new BigDecimal("-12.34"), Money.toBigDecimal(Money.of(-1234, "USD")));
+    }
+
+    public void testArithmetic() {
+        long a = Money.of(1050, "USD");
+        long b = Money.of(-2075, "USD");
+        assertEquals(Money.of(-1025, "USD"), Money.add(a, b));
+        assertEquals(Money.of(3125, "USD"), Money.subtract(a, b));
+        assertEquals(Money.of(-1050, "USD"), Money.negate(a));
+        assertTrue(Money.compare(a, b) > 0);
+        assertEquals(0, Money.compare(a, Money.of(1050, "USD")));
+    }
+
+    public void testRejectsMixedCurrenciesAndOverflow() {
+        try {
+            Money.add(Money.of(1, "USD"), Money.of(1, "EUR"));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            Money.add(Money.of(Money.MAX_MINOR_UNITS, "USD"), Money.of(1, "USD"));
+            fail();
+        } catch (ArithmeticException expected) {
+        }
+        try {
+            Money.of(1, "usd");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            Money.parse("1.005 USD");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testTransactionAmountMustBeInAccountCurrency() {
+        try {
+            new PaymentTransaction(new AccountInfo("ACC1", "USD"), Money.of(100, "EUR"), "M1");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.TransactionBatchProcessor.BatchResult;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The batch engine must agree exactly with {@link ExhaustiveSwitchPatterns#calculateBalanceImpact}.
+ */
+public class TransactionBatchProcessorTest extends TestCase {
+
+    public void testMatchesSingleTransactionMethodsAtAnyParallelism() {
+        Transaction[] transactions = TransactionGenerator.generate(5 * TransactionBatchProcessor.MIN_CHUNK_SIZE + 17, 300, 7);
+        BatchResult expected = TransactionBatchProcessor.processSequentially(transactions);
+
+        for (int parallelism : new int[]{1, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                BatchResult actual = new TransactionBatchProcessor(pool).process(transactions);
+                assertEquals("parallelism " + parallelism, expected, actual);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        assertEquals(transactions.length, expected.transactions());
+    }
+
+    public void testStreamInput() {
+        Transaction[] transactions = TransactionGenerator.generate(1_000, 10, 3);
+        BatchResult result = new TransactionBatchProcessor().process(Arrays.stream(transactions));
+        assertEquals(TransactionBatchProcessor.processSequentially(transactions), result);
+    }
+
+    public void testTotalsAreExactInMinorUnits() {
+        AccountInfo account = new AccountInfo("ACC1", "USD");
+        Transaction[] transactions = new Transaction[11];
+        for (int i = 0; i < 10; i++) {
+            transactions[i] = new ExhaustiveSwitchPatterns.RefundTransaction(account, Money.of(10, "USD"), "T" + i, "r");
+        }
+        transactions[10] = new ExhaustiveSwitchPatterns.PaymentTransaction(account, Money.of(100, "USD"), "M1");
+        BatchResult result = new TransactionBatchProcessor().process(transactions);
+        // Ten 0.1 refunds summed as doubles come to 0.9999999999999999, not 1.0.
+        assertEquals(Money.of(0, "USD"), result.balances().get(account).longValue());
+    }
+}
@@ -0,0 +1,51 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.TransactionBatchProcessor.BatchResult;
+import junit.framework.TestCase;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class TransactionColumnsTest extends TestCase {
+
+    public void testRebuildsTheRecordsThatWereAdded() {
+        Transaction[] transactions = TransactionGenerator.generate(10_000, 100, 21);
+        TransactionColumns columns = new TransactionColumns(1);
+        for (Transaction transaction : transactions) {
+            columns.add(transaction);
+        }
+        AccountInfo account = new AccountInfo("ACC1", "GBP");
+        Transaction withNulls = new RefundTransaction(account, Money.of(-5, "GBP"), null, null);
+        columns.add(withNulls);
+
+        assertEquals(transactions.length + 1, columns.size());
+        for (int i = 0; i < transactions.length; i++) {
+            assertEquals(transactions[i], columns.get(i));
+        }
+        assertEquals(withNulls, columns.get(transactions.length));
+        try {
+            columns.get(columns.size());
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    public void testAggregatesLikeTheBatchProcessor() {
+        Transaction[] transactions = TransactionGenerator.generate(300_000, 1_000, 8);
+        BatchResult expected = TransactionBatchProcessor.processSequentially(transactions);
+        TransactionColumns columns = TransactionColumns.of(transactions);
+
+        for (int parallelism : new int[]{1, 3}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                assertEquals("parallelism " + parallelism, expected, columns.aggregate(pool));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        assertEquals(TransactionBatchProcessor.processSequentially(new Transaction[0]),
+                new TransactionColumns().aggregate());
+    }
+}
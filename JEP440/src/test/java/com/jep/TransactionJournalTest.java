@@ -0,0 +1,203 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TransactionJournalTest extends TestCase {
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-test");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public void testCodecRoundTripsAndInternsAccounts() {
+        AccountInfo euro = new AccountInfo("Konto-Ä😀", "EUR");
+        List<Transaction> transactions = new ArrayList<>(Arrays.asList(TransactionGenerator.generate(2_000, 30, 9)));
+        transactions.add(new PaymentTransaction(euro, Money.of(-Money.MAX_MINOR_UNITS, "EUR"), null));
+        transactions.add(new RefundTransaction(euro, Money.of(0, "EUR"), "", "ünïcode"));
+        transactions.add(new TransferTransaction(euro, euro, Money.of(Money.MAX_MINOR_UNITS, "EUR"), "x"));
+
+        ByteBuffer buffer = ByteBuffer.allocate(128 * 1024);
+        TransactionCodec.Encoder encoder = new TransactionCodec.Encoder();
+        for (Transaction transaction : transactions) {
+            encoder.encode(transaction, buffer);
+        }
+        buffer.flip();
+
+        TransactionCodec.Decoder decoder = new TransactionCodec.Decoder();
+        List<Transaction> decoded = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            decoded.add(decoder.decode(buffer));
+        }
+        assertEquals(transactions, decoded);
+        assertEquals(31, decoder.accounts().size());
+        assertSame(((TransferTransaction) decoded.getLast()).sourceAccount(),
+                ((TransferTransaction) decoded.getLast()).destinationAccount());
+    }
+
+    public void testEncoderIsUnchangedWhenABufferOverflows() {
+        TransactionCodec.Encoder encoder = new TransactionCodec.Encoder();
+        Transaction transaction = TransactionGenerator.generate(1, 1, 1)[0];
+        try {
+            encoder.encode(transaction, ByteBuffer.allocate(4));
+            fail();
+        } catch (BufferOverflowException expected) {
+        }
+        assertEquals(0, encoder.accounts());
+
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        encoder.encode(transaction, buffer);
+        assertEquals(transaction, new TransactionCodec.Decoder().decode(buffer.flip()));
+    }
+
+    public void testDecoderRejectsCorruptReferences() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        TransactionCodec.Encoder encoder = new TransactionCodec.Encoder();
+        encoder.encode(TransactionGenerator.generate(1, 1, 1)[0], buffer);
+        int known = buffer.position();
+
+        for (long reference : new long[]{2, Integer.MAX_VALUE + 1L, 1L << 40, -1}) {
+            buffer.clear().position(known);
+            buffer.put(buffer.get(0));
+            TransactionCodec.putVarint(buffer, reference);
+            buffer.flip();
+            TransactionCodec.Decoder decoder = new TransactionCodec.Decoder();
+            decoder.decode(buffer);
+            try {
+                decoder.decode(buffer);
+                fail("reference " + reference);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("Unknown account reference"));
+            }
+        }
+
+        // A new account whose name claims more bytes than are left.
+        buffer.clear();
+        buffer.put(TransactionCodec.PAYMENT);
+        TransactionCodec.putVarint(buffer, 0);
+        TransactionCodec.putVarint(buffer, 1L << 33);
+        buffer.flip();
+        try {
+            new TransactionCodec.Decoder().decode(buffer);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testReopeningClearsAnUnpublishedAppend() throws IOException {
+        Transaction[] transactions = TransactionGenerator.generate(200, 20, 5);
+        try (TransactionJournal journal = TransactionJournal.open(directory, 64 * 1024)) {
+            for (int i = 0; i < 100; i++) {
+                journal.append(transactions[i]);
+            }
+        }
+        // Leave the bytes of a payload whose length was never published behind the last record,
+        // spread over more than one page.
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.sorted().toList().getLast();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        int end = bytes.length - 1;
+        while (bytes[end] == 0) {
+            end--;
+        }
+        for (int i = end + 8; i < end + 10_000; i += 7) {
+            bytes[i] = (byte) 0x5A;
+        }
+        Files.write(segment, bytes);
+
+        try (TransactionJournal journal = TransactionJournal.open(directory, 64 * 1024)) {
+            for (int i = 100; i < transactions.length; i++) {
+                journal.append(transactions[i]);
+            }
+        }
+        List<Transaction> replayed = new ArrayList<>();
+        try (TransactionJournal.Reader reader = TransactionJournal.reader(directory)) {
+            assertEquals(transactions.length, reader.replay(replayed::add));
+        }
+        assertEquals(Arrays.asList(transactions), replayed);
+    }
+
+    public void testJournalRollsSegmentsAndResumesAfterReopening() throws IOException {
+        Transaction[] transactions = TransactionGenerator.generate(20_000, 500, 3);
+        try (TransactionJournal journal = TransactionJournal.open(directory, 64 * 1024)) {
+            for (int i = 0; i < 12_000; i++) {
+                journal.append(transactions[i]);
+            }
+        }
+        try (TransactionJournal journal = TransactionJournal.open(directory, 64 * 1024)) {
+            for (int i = 12_000; i < transactions.length; i++) {
+                journal.append(transactions[i]);
+            }
+            assertEquals(8_000, journal.appended());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 2);
+        }
+
+        List<Transaction> replayed = new ArrayList<>();
+        try (TransactionJournal.Reader reader = TransactionJournal.reader(directory)) {
+            assertEquals(transactions.length, reader.replay(replayed::add));
+            assertNull(reader.poll());
+        }
+        assertEquals(Arrays.asList(transactions), replayed);
+    }
+
+    public void testReaderTailsAConcurrentWriter() throws Exception {
+        Transaction[] transactions = TransactionGenerator.generate(50_000, 200, 4);
+        List<Transaction> read = new ArrayList<>();
+        try (TransactionJournal journal = TransactionJournal.open(directory, 256 * 1024);
+             TransactionJournal.Reader reader = TransactionJournal.reader(directory)) {
+            Thread writer = Thread.ofPlatform().start(() -> {
+                try {
+                    for (Transaction transaction : transactions) {
+                        journal.append(transaction);
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            while (read.size() < transactions.length) {
+                Transaction transaction = reader.poll();
+                if (transaction != null) {
+                    read.add(transaction);
+                } else if (!writer.isAlive() && read.size() < transactions.length) {
+                    Transaction last = reader.poll();
+                    assertNotNull("writer finished but only " + read.size() + " transactions were read", last);
+                    read.add(last);
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+            writer.join();
+        }
+        assertEquals(Arrays.asList(transactions), read);
+    }
+}
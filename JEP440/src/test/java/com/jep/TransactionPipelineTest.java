@@ -0,0 +1,175 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.TransactionPipeline.Checkpoint;
+import com.jep.TransactionPipeline.Listener;
+import com.jep.TransactionPipeline.Settings;
+import com.jep.TransactionPipeline.Window;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TransactionPipelineTest extends TestCase {
+
+    private static final Transaction[] INPUT = TransactionGenerator.generate(25_000, 200, 17);
+    private static final Map<AccountInfo, Long> EXPECTED = TransactionBatchProcessor.processSequentially(INPUT).balances();
+
+    public void testSettlesInOrderOnVirtualAndPlatformThreads() throws InterruptedException {
+        for (boolean virtualThreads : new boolean[]{true, false}) {
+            List<Window> windows = new ArrayList<>();
+            long[] nextOffset = new long[1];
+            Listener listener = new Listener() {
+                @Override
+                public void settled(long offset, Transaction transaction, String description) {
+                    assertEquals(nextOffset[0]++, offset);
+                    assertSame(INPUT[(int) offset], transaction);
+                    assertEquals(ExhaustiveSwitchPatterns.processTransaction(transaction), description);
+                }
+
+                @Override
+                public void windowClosed(Window window) {
+                    windows.add(window);
+                }
+            };
+
+            Checkpoint checkpoint;
+            try (TransactionPipeline pipeline = new TransactionPipeline(
+                    new Settings(100, 64, Duration.ofMillis(1), 3, virtualThreads, 10_000), listener)) {
+                for (Transaction transaction : INPUT) {
+                    pipeline.submit(transaction);
+                }
+                checkpoint = pipeline.finish();
+            }
+
+            assertEquals(INPUT.length, checkpoint.offset());
+            assertEquals(EXPECTED, checkpoint.balances());
+            assertEquals(3, windows.size());
+            assertEquals(20_000, windows.get(2).firstOffset());
+            assertEquals(INPUT.length, windows.get(2).endOffset());
+            for (Map.Entry<AccountInfo, Long> entry : windows.get(2).balances().entrySet()) {
+                assertEquals(EXPECTED.get(entry.getKey()), entry.getValue());
+            }
+        }
+    }
+
+    public void testResumesFromASavedCheckpoint() throws Exception {
+        Settings settings = new Settings(1_000, 100, Duration.ofMillis(2), 2, true, 4_000);
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        Listener listener = new Listener() {
+            @Override
+            public void checkpoint(Checkpoint checkpoint) {
+                checkpoints.add(checkpoint);
+            }
+        };
+        try (TransactionPipeline pipeline = new TransactionPipeline(settings, listener)) {
+            for (int i = 0; i < 10_000; i++) {
+                pipeline.submit(INPUT[i]);
+            }
+            // Simulates a crash: only the last complete window's checkpoint survives.
+        }
+        Checkpoint saved = checkpoints.get(1);
+        assertEquals(8_000, saved.offset());
+        assertEquals(2, saved.windows());
+
+        Path file = Files.createTempFile("pipeline", ".checkpoint");
+        try {
+            saved.writeTo(file);
+            Checkpoint restored = Checkpoint.readFrom(file);
+            assertEquals(saved, restored);
+
+            try (TransactionPipeline pipeline = new TransactionPipeline(settings, new Listener() {
+            }, restored)) {
+                for (long i = restored.offset(); i < INPUT.length; i++) {
+                    pipeline.submit(INPUT[(int) i]);
+                }
+                assertEquals(EXPECTED, pipeline.finish().balances());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public void testWindowsContinueAfterAPartialCheckpoint() throws InterruptedException {
+        Settings settings = new Settings(1_000, 100, Duration.ofMillis(2), 2, true, 4_000);
+        Checkpoint partial;
+        try (TransactionPipeline pipeline = new TransactionPipeline(settings, new Listener() {
+        })) {
+            for (int i = 0; i < 10_500; i++) {
+                pipeline.submit(INPUT[i]);
+            }
+            partial = pipeline.finish();
+        }
+        assertEquals(10_500, partial.offset());
+        assertEquals("two full windows and a partial one", 3, partial.windows());
+
+        List<Window> windows = new ArrayList<>();
+        try (TransactionPipeline pipeline = new TransactionPipeline(settings, new Listener() {
+            @Override
+            public void windowClosed(Window window) {
+                windows.add(window);
+            }
+        }, partial)) {
+            for (long i = partial.offset(); i < INPUT.length; i++) {
+                pipeline.submit(INPUT[(int) i]);
+            }
+            assertEquals(EXPECTED, pipeline.finish().balances());
+        }
+        assertEquals(List.of(3L, 4L, 5L, 6L), windows.stream().map(Window::index).toList());
+        assertEquals(10_500, windows.getFirst().firstOffset());
+        assertEquals(14_500, windows.getFirst().endOffset());
+    }
+
+    public void testManySmallBatchesWithSlowSettlement() throws InterruptedException {
+        // Tiny batches and a slow settler keep the batcher far ahead of it; the in-flight limit has
+        // to hold it back without losing or reordering anything.
+        long[] nextOffset = new long[1];
+        Listener listener = new Listener() {
+            @Override
+            public void settled(long offset, Transaction transaction, String description) {
+                assertEquals(nextOffset[0]++, offset);
+                if (offset % 500 == 0) {
+                    Thread.yield();
+                }
+            }
+        };
+        try (TransactionPipeline pipeline = new TransactionPipeline(
+                new Settings(10_000, 1, Duration.ZERO, 4, false, 1_000), listener)) {
+            for (Transaction transaction : INPUT) {
+                pipeline.submit(transaction);
+            }
+            assertEquals(EXPECTED, pipeline.finish().balances());
+        }
+        assertEquals(INPUT.length, nextOffset[0]);
+    }
+
+    public void testListenerFailureStopsThePipeline() throws InterruptedException {
+        TransactionPipeline pipeline = new TransactionPipeline(new Settings(10, 4, Duration.ofMillis(1), 2, true, 100),
+                new Listener() {
+                    @Override
+                    public void settled(long offset, Transaction transaction, String description) {
+                        if (offset == 50) {
+                            throw new IllegalArgumentException("boom");
+                        }
+                    }
+                });
+        try {
+            for (Transaction transaction : INPUT) {
+                pipeline.submit(transaction);
+            }
+            fail("submit kept accepting after a stage failed");
+        } catch (IllegalStateException expected) {
+            assertEquals("boom", expected.getCause().getMessage());
+        }
+        try {
+            pipeline.finish();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
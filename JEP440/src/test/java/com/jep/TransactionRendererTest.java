@@ -0,0 +1,70 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every target must produce exactly what {@link ExhaustiveSwitchPatterns#processTransaction} does.
+ */
+public class TransactionRendererTest extends TestCase {
+
+    public void testMatchesProcessTransactionForEveryTarget() throws IOException {
+        List<Transaction> transactions = new ArrayList<>(Arrays.asList(TransactionGenerator.generate(5_000, 20, 11)));
+        AccountInfo euro = new AccountInfo("Konto-Ä€", "EUR");
+        transactions.add(new PaymentTransaction(euro, Money.of(0, "EUR"), "Café 😀"));
+        transactions.add(new RefundTransaction(euro, Money.of(-1, "EUR"), null, "broken \uD800 surrogate"));
+        transactions.add(new TransferTransaction(euro, euro, Money.of(Money.MAX_MINOR_UNITS, "EUR"), "line\nbreak"));
+
+        StringBuilder builder = new StringBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (Transaction transaction : transactions) {
+            String expected = ExhaustiveSwitchPatterns.processTransaction(transaction);
+
+            builder.setLength(0);
+            assertEquals(expected, TransactionRenderer.render(transaction, builder).toString());
+            assertEquals(expected, TransactionRenderer.render(transaction, new StringWriter()).toString());
+
+            buffer.clear();
+            TransactionRenderer.render(transaction, buffer).flip();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertTrue(expected, Arrays.equals(expected.getBytes(StandardCharsets.UTF_8), bytes));
+        }
+    }
+
+    public void testReusedBuilderAllocatesNothingAfterWarmUp() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Transaction[] transactions = TransactionGenerator.generate(10_000, 20, 5);
+        StringBuilder builder = new StringBuilder(256);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        renderAll(transactions, builder, buffer);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        renderAll(transactions, builder, buffer);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        // Leave room for the odd allocation by the JIT or the profiler itself.
+        assertTrue(allocated + " bytes allocated", allocated < 4 * 1024);
+    }
+
+    private static void renderAll(Transaction[] transactions, StringBuilder builder, ByteBuffer buffer) {
+        for (Transaction transaction : transactions) {
+            builder.setLength(0);
+            TransactionRenderer.render(transaction, builder);
+            buffer.clear();
+            TransactionRenderer.render(transaction, buffer);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.jep;
+
+import com.jep.ExhaustiveSwitchPatterns.AccountInfo;
+import com.jep.ExhaustiveSwitchPatterns.PaymentTransaction;
+import com.jep.ExhaustiveSwitchPatterns.RefundTransaction;
+import com.jep.ExhaustiveSwitchPatterns.Transaction;
+import com.jep.ExhaustiveSwitchPatterns.TransferTransaction;
+import com.jep.TransactionScreener.AmountAbove;
+import com.jep.TransactionScreener.BlockedDestination;
+import com.jep.TransactionScreener.BlockedMerchant;
+import com.jep.TransactionScreener.Rule;
+import com.jep.TransactionScreener.Verdict;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TransactionScreenerTest extends TestCase {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY"};
+
+    private static final List<Class<? extends Transaction>> TYPES = List.of(Transaction.class,
+            PaymentTransaction.class, RefundTransaction.class, TransferTransaction.class);
+
+    public void testMatchesTheRulesOneByOne() {
+        SplittableRandom random = new SplittableRandom(24);
+        Transaction[] transactions = TransactionGenerator.generate(50_000, 200, 24);
+        for (int round = 0; round < 5; round++) {
+            List<Rule> rules = randomRules(random, 300);
+            TransactionScreener screener = new TransactionScreener(rules);
+            int flagged = 0;
+            for (Transaction transaction : transactions) {
+                Verdict verdict = screener.screen(transaction);
+                assertEquals(transaction.toString(), linear(rules, transaction), verdict.matches());
+                if (verdict.flagged()) {
+                    flagged++;
+                }
+            }
+            assertTrue("flagged " + flagged, flagged > 0 && flagged < transactions.length);
+        }
+    }
+
+    public void testLimitsAreExclusiveAndPerCurrency() {
+        AccountInfo dollars = new AccountInfo("ACC1", "USD");
+        AccountInfo euros = new AccountInfo("ACC2", "EUR");
+        Rule anyLarge = new AmountAbove("any-large", Transaction.class, Money.of(10_000, "USD"));
+        Rule largeRefund = new AmountAbove("large-refund", RefundTransaction.class, Money.of(5_000, "USD"));
+        TransactionScreener screener = new TransactionScreener(List.of(anyLarge, largeRefund));
+
+        assertFalse(screener.screen(new PaymentTransaction(dollars, Money.of(10_000, "USD"), "M")).flagged());
+        assertEquals(List.of(anyLarge),
+                screener.screen(new PaymentTransaction(dollars, Money.of(10_001, "USD"), "M")).matches());
+        assertEquals(List.of(largeRefund),
+                screener.screen(new RefundTransaction(dollars, Money.of(5_001, "USD"), "T", "r")).matches());
+        assertEquals(List.of(anyLarge, largeRefund),
+                screener.screen(new RefundTransaction(dollars, Money.of(10_001, "USD"), "T", "r")).matches());
+        assertFalse(screener.screen(new TransferTransaction(euros, dollars, Money.of(99_999, "EUR"), "d")).flagged());
+    }
+
+    public void testParseAndReload() throws Exception {
+        AccountInfo source = new AccountInfo("ACC1", "EUR");
+        Transaction transfer = new TransferTransaction(source, new AccountInfo("MULE", "EUR"), Money.of(20_000, "EUR"), "d");
+        Transaction payment = new PaymentTransaction(source, Money.of(100, "EUR"), "SHADY");
+
+        Path file = Files.createTempFile("rules", ".txt");
+        try {
+            Files.write(file, List.of(
+                    "# screening rules",
+                    "amount-above large-eur-transfer transfer 100.00 EUR",
+                    "",
+                    "blocked-destination mule MULE"));
+            TransactionScreener screener = new TransactionScreener(List.of());
+            assertFalse(screener.screen(transfer).flagged());
+            screener.reload(file);
+            assertEquals(List.of("large-eur-transfer", "mule"), names(screener.screen(transfer)));
+            assertFalse(screener.screen(payment).flagged());
+
+            Files.write(file, List.of("blocked-merchant shady SHADY", "amount-above broken transfer 100.00"));
+            try {
+                screener.reload(file);
+                fail();
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("Line 2:"));
+            }
+            assertEquals("a failed reload keeps the rules", 2, screener.rules().size());
+
+            Files.write(file, List.of("blocked-merchant shady SHADY"));
+            screener.reload(file);
+            assertEquals(List.of("shady"), names(screener.screen(payment)));
+            assertFalse(screener.screen(transfer).flagged());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public void testReloadWhileScreening() throws Exception {
+        Transaction[] transactions = TransactionGenerator.generate(10_000, 50, 3);
+        List<Rule> strict = List.of(new AmountAbove("everything", Transaction.class, Money.of(-1, "USD")),
+                new AmountAbove("everything", Transaction.class, Money.of(-1, "EUR")),
+                new AmountAbove("everything", Transaction.class, Money.of(-1, "GBP")));
+        TransactionScreener screener = new TransactionScreener(List.of());
+        AtomicBoolean running = new AtomicBoolean(true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> screeners = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                screeners.add(executor.submit(() -> {
+                    while (running.get()) {
+                        for (Transaction transaction : transactions) {
+                            int matches = screener.screen(transaction).matches().size();
+                            assertTrue("saw a mix of two rule sets", matches == 0 || matches == 1);
+                        }
+                        Thread.yield();
+                    }
+                }));
+            }
+            for (int i = 0; i < 200; i++) {
+                screener.reload(i % 2 == 0 ? strict : List.of());
+                Thread.yield();
+            }
+            running.set(false);
+            for (Future<?> future : screeners) {
+                future.get();
+            }
+        }
+    }
+
+    private static List<Rule> linear(List<Rule> rules, Transaction transaction) {
+        List<Rule> amounts = new ArrayList<>();
+        List<Rule> ids = new ArrayList<>();
+        for (Rule rule : rules) {
+            if (rule.matches(transaction)) {
+                (rule instanceof AmountAbove ? amounts : ids).add(rule);
+            }
+        }
+        amounts.addAll(ids);
+        return amounts;
+    }
+
+    private static List<Rule> randomRules(SplittableRandom random, int count) {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = "rule" + i;
+            rules.add(switch (random.nextInt(3)) {
+                case 0 -> new AmountAbove(name, TYPES.get(random.nextInt(TYPES.size())),
+                        // Coarse limits so that some coincide.
+                        Money.of(random.nextInt(100) * 10_000L, CURRENCIES[random.nextInt(CURRENCIES.length)]));
+                case 1 -> new BlockedMerchant(name, "MERCHANT" + random.nextInt(1_000));
+                default -> new BlockedDestination(name, String.format("ACC%06d", random.nextInt(200)));
+            });
+        }
+        return rules;
+    }
+
+    private static List<String> names(Verdict verdict) {
+        return verdict.matches().stream().map(Rule::name).toList();
+    }
+}
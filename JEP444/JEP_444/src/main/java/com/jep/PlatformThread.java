@@ -62,6 +62,7 @@ public class PlatformThread {
         }
 
         Instant end = Instant.now();
+        AsyncLog.flush();
         System.out.println("All tasks completed in " + Duration.between(start, end).toMillis() + "ms");
     }
 }
@@ -1,11 +1,28 @@
 package com.jep;
 
 import java.time.Duration;
-import java.util.logging.Logger;
+import java.util.logging.Level;
 
 public class SimulatedIOTask {
 
-    private static final Logger LOGGER = Logger.getLogger(SimulatedIOTask.class.getName());
+    private static final AsyncLog LOG = AsyncLog.getLog(SimulatedIOTask.class);
+
+    static final Duration DEFAULT_IO_TIME = Duration.ofMillis(100);
+
+    /**
+     * With {@code -Dtask.pinned=true} the simulated I/O blocks inside a {@code synchronized}
+     * block, the classic way to pin a virtual thread to its carrier, so the effect can be seen
+     * with {@link CarrierDiagnostics}.
+     */
+    static final boolean PINNED = Boolean.getBoolean("task.pinned");
+
+    /**
+     * Publishes each pinned task's monitor. A lock on an object that never escapes can be elided
+     * by C2, which would leave the thread unpinned; one lock shared by all tasks would instead
+     * serialize them.
+     */
+    @SuppressWarnings("unused")
+    private static volatile Object lastMonitor;
 
     /**
      * Simulates an input/output bound task that takes some time to complete.
@@ -18,14 +35,36 @@ public class SimulatedIOTask {
      * @param taskId The identifier for the task
      */
     static void execute(int taskId) {
-        LOGGER.info("I/O task " + taskId + " started: " + Thread.currentThread());
+        execute(taskId, DEFAULT_IO_TIME);
+    }
+
+    /**
+     * Simulates an input/output bound task that blocks for the given time.
+     *
+     * @param taskId The identifier for the task
+     * @param ioTime How long the simulated I/O operation blocks the calling thread
+     */
+    static void execute(int taskId, Duration ioTime) {
+        LOG.log(Level.INFO, "I/O task {} started: {}", taskId, Thread.currentThread());
         try {
-            Thread.sleep(Duration.ofMillis(100));
+            if (PINNED) {
+                sleepPinned(ioTime);
+            } else {
+                Thread.sleep(ioTime);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            LOGGER.warning("I/O task " + taskId + " interrupted: " + Thread.currentThread());
+            LOG.log(Level.WARNING, "I/O task {} interrupted: {}", taskId, Thread.currentThread());
             return;
         }
-        LOGGER.info("I/O task " + taskId + " completed: " + Thread.currentThread());
+        LOG.log(Level.INFO, "I/O task {} completed: {}", taskId, Thread.currentThread());
+    }
+
+    private static void sleepPinned(Duration ioTime) throws InterruptedException {
+        Object monitor = new Object();
+        lastMonitor = monitor;
+        synchronized (monitor) {
+            Thread.sleep(ioTime);
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.jep;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 
@@ -38,8 +39,9 @@ import static com.jep.SimulatedIOTask.execute;
 
 public class VirtualThread {
 
-    public static void main( String[] args ) {
+    public static void main( String[] args ) throws InterruptedException {
         System.out.println( "===== Example 1: Creating Virtual Threads ====" );
+        Optional<CarrierDiagnostics> diagnostics = CarrierDiagnostics.fromSystemProperties();
 
         ThreadFactory virtualThreadFactory = Thread.ofVirtual().factory();
 
@@ -54,6 +56,8 @@ public class VirtualThread {
         }  // The executor is automatically closed here, waiting for all tasks to complete
 
         Instant end = Instant.now();
+        AsyncLog.flush();
         System.out.println("All tasks completed in "+ Duration.between(start, end).toMillis() + "ms");
+        diagnostics.ifPresent(d -> System.out.println(d.stop()));
     }
 }
@@ -0,0 +1,220 @@
+package com.jep;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bulkhead whose number of permits follows a {@link LimitAlgorithm} instead of being fixed.
+ *
+ * <p>Virtual threads make it trivial to start every request at once, which against a real backend
+ * turns into a connection storm and collapsing latency. The limiter admits at most {@link #limit()}
+ * requests at a time, queues up to {@code maxQueueDepth} more for at most {@code maxWait}, and
+ * rejects the rest. After each request the algorithm moves the limit towards the concurrency at
+ * which the backend delivers its best throughput.</p>
+ *
+ * <p>When the limiter sits above another bulkhead, such as the connection permits of
+ * {@link PokemonHttpClient}, a request may still queue there after it got its permit. Call
+ * {@link Permit#sending()} once it is past that point, so the latency fed to the algorithm does not
+ * include local queueing.</p>
+ *
+ * <p>Waiting uses a {@link ReentrantLock} and {@link Condition} rather than monitors, so a virtual
+ * thread parked in the queue releases its carrier thread.</p>
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final LimitAlgorithm algorithm;
+    private final int maxQueueDepth;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private int limit;
+    private int inFlight;
+    private int waiting;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * Snapshot of the limiter's state.
+     *
+     * @param limit      current concurrency limit
+     * @param inFlight   requests holding a permit
+     * @param queueDepth requests waiting for a permit
+     * @param acquired   permits handed out so far
+     * @param rejections requests turned away because the queue was full or the wait too long
+     */
+    public record LimiterStats(int limit, int inFlight, int queueDepth, long acquired, long rejections) {
+
+        @Override
+        public String toString() {
+            return String.format("limit=%d, in flight=%d, queue depth=%d, acquired=%d, rejections=%d",
+                    limit, inFlight, queueDepth, acquired, rejections);
+        }
+    }
+
+    public AdaptiveConcurrencyLimiter(LimitAlgorithm algorithm, int maxQueueDepth, Duration maxWait) {
+        this.algorithm = algorithm;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.limit = algorithm.initialLimit();
+    }
+
+    /**
+     * Builds the limiter selected with {@code -Dpokemon.limiter=aimd|vegas}, or nothing if the
+     * property is unset or {@code none}.
+     *
+     * @param ceiling highest limit that can take effect, see
+     *                {@link LimitAlgorithm#fromSystemProperties(String, int)}
+     */
+    public static Optional<AdaptiveConcurrencyLimiter> fromSystemProperties(int ceiling) {
+        String name = System.getProperty("pokemon.limiter", "none");
+        if (name.equals("none")) {
+            return Optional.empty();
+        }
+        return Optional.of(new AdaptiveConcurrencyLimiter(
+                LimitAlgorithm.fromSystemProperties(name, ceiling),
+                Integer.getInteger("pokemon.limiter.maxQueue", 10_000),
+                Duration.ofMillis(Long.getLong("pokemon.limiter.maxWaitMs", 5_000))));
+    }
+
+    /**
+     * Waits for a permit.
+     *
+     * @throws RejectedExecutionException if the queue is full or no permit frees up within the
+     *                                    maximum wait
+     * @throws InterruptedException       if the calling thread is interrupted while queued
+     */
+    public Permit acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (inFlight >= limit) {
+                if (waiting >= maxQueueDepth) {
+                    throw reject("queue full");
+                }
+                waiting++;
+                try {
+                    long remaining = maxWaitNanos;
+                    while (inFlight >= limit) {
+                        if (remaining <= 0) {
+                            throw reject("timed out waiting for a permit");
+                        }
+                        remaining = available.awaitNanos(remaining);
+                    }
+                } finally {
+                    waiting--;
+                }
+            }
+            inFlight++;
+            acquired.increment();
+            return new Permit(inFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public LimiterStats stats() {
+        lock.lock();
+        try {
+            return new LimiterStats(limit, inFlight, waiting, acquired.sum(), rejections.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private RejectedExecutionException reject(String reason) {
+        rejections.increment();
+        return new RejectedExecutionException("Request rejected by concurrency limiter: " + reason);
+    }
+
+    private void release(long rttNanos, int inFlightAtStart, boolean dropped, boolean sample) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (sample) {
+                limit = algorithm.update(rttNanos, inFlightAtStart, dropped);
+            }
+            // Wake only as many waiters as there are free permits; waking the whole queue on
+            // every limit increase would stampede thousands of threads for one permit.
+            for (int free = Math.min(limit - inFlight, waiting); free > 0; free--) {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A granted permit. Exactly one of the completion methods must be called when the request
+     * finishes.
+     */
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * The request is leaving this process; its latency is measured from here rather than from
+         * when the permit was granted.
+         */
+        public void sending() {
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * The request succeeded; its latency is fed to the limit algorithm.
+         */
+        public void success() {
+            complete(false, true);
+        }
+
+        /**
+         * The request failed in a way that signals overload, such as a timeout or HTTP 503.
+         */
+        public void dropped() {
+            complete(true, true);
+        }
+
+        /**
+         * The request ended without telling anything about the backend's capacity, for example
+         * because it was cancelled.
+         */
+        public void ignore() {
+            complete(false, false);
+        }
+
+        private void complete(boolean dropped, boolean sample) {
+            if (released) {
+                throw new IllegalStateException("Permit already released");
+            }
+            released = true;
+            long rtt = System.nanoTime() - startNanos;
+            release(rtt, inFlightAtStart, dropped, sample);
+        }
+
+        @Override
+        public String toString() {
+            return "Permit[inFlightAtStart=" + inFlightAtStart + ", heldFor="
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + "ms]";
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.jep;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static com.jep.Constants.NUM_REQUESTS;
+import static com.jep.PokemonService.fetchPokemonAsync;
+
+/**
+ * Fetches Pokemon without blocking any thread, driving {@link PokemonService} through
+ * {@code HttpClient.sendAsync} and {@link CompletableFuture} callbacks.
+ *
+ * <p>The in-flight window is a fixed number of lanes. Each lane issues one request, and the
+ * request's completion callback lets the lane's loop issue the next one on whichever thread
+ * completed it, so at most {@code window} requests are outstanding and no thread ever waits for a
+ * response.</p>
+ */
+public class AsyncPokemonFetcher {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncPokemonFetcher.class.getName());
+
+    public static void main(String[] args) {
+        FetchReport report = run(NUM_REQUESTS, PokemonHttpClient.shared().settings().maxConnections());
+
+        LOGGER.info(report.toString());
+        PokemonService.logStats(LOGGER);
+    }
+
+    /**
+     * Fetches Pokemon {@code 1..numRequests} keeping at most {@code window} requests in flight.
+     */
+    public static FetchReport run(int numRequests, int window) {
+        FetchRecorder recorder = FetchRecorder.start("async", numRequests);
+        AtomicInteger nextId = new AtomicInteger(1);
+
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[Math.min(window, numRequests)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(nextId, numRequests, recorder).start();
+        }
+        CompletableFuture.allOf(lanes).join();
+
+        return recorder.finish();
+    }
+
+    /**
+     * Issues one request at a time, the next one when the previous completes.
+     *
+     * <p>Composing each request onto the previous one would nest a stack frame per request
+     * whenever futures complete synchronously, as they do after an immediate failure. Instead,
+     * completions only count themselves in {@code pending}; whichever thread takes it from zero
+     * runs the loop and keeps issuing requests until no completion is left unhandled, so the stack
+     * stays flat.</p>
+     */
+    private static final class Lane {
+
+        private final AtomicInteger nextId;
+        private final int numRequests;
+        private final FetchRecorder recorder;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Lane(AtomicInteger nextId, int numRequests, FetchRecorder recorder) {
+            this.nextId = nextId;
+            this.numRequests = numRequests;
+            this.recorder = recorder;
+        }
+
+        CompletableFuture<Void> start() {
+            resume();
+            return done;
+        }
+
+        private void resume() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                issueNext();
+            } while (pending.decrementAndGet() != 0);
+        }
+
+        private void issueNext() {
+            int pokemonId = nextId.getAndIncrement();
+            if (pokemonId > numRequests) {
+                done.complete(null);
+                return;
+            }
+            long begin = recorder.begin();
+            fetchPokemonAsync(pokemonId).whenComplete((success, error) -> {
+                recorder.end(pokemonId, begin, error == null && success);
+                resume();
+            });
+        }
+    }
+}
@@ -1,6 +1,19 @@
 package com.jep;
 
+import java.time.Duration;
+
 public class Constants {
 
-    public static final int NUM_REQUESTS = 1025;
+    /**
+     * Number of Pokemon fetched per run; override with {@code -Dpokemon.requests=1000000} for
+     * scaling runs against the {@link PokeApiStubServer}.
+     */
+    public static final int NUM_REQUESTS = Integer.getInteger("pokemon.requests", 1025);
+
+    public static final int PLATFORM_POOL_SIZE = 10;
+
+    /**
+     * Overall deadline of a structured fetch batch, overridable with {@code pokemon.deadlineMs}.
+     */
+    public static final Duration DEADLINE = Duration.ofMillis(Long.getLong("pokemon.deadlineMs", 10_000));
 }
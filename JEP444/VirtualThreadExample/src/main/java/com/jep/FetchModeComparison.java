@@ -0,0 +1,56 @@
+package com.jep;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static com.jep.Constants.NUM_REQUESTS;
+import static com.jep.Constants.PLATFORM_POOL_SIZE;
+
+/**
+ * Runs the platform, virtual-thread and async fetchers one after another under the same
+ * {@link Constants#NUM_REQUESTS} workload and prints their reports side by side.
+ *
+ * <p>A short warmup goes through the shared client first, so that none of the measured runs pays
+ * for class loading or for opening the first connections.</p>
+ *
+ * <p>With {@code -Dpokemon.stub=true} the comparison starts an embedded {@link PokeApiStubServer}
+ * (configured through the {@code stub.*} properties) and points {@link PokemonService} at it, so a
+ * full run needs nothing but a JDK.</p>
+ */
+public class FetchModeComparison {
+
+    private static final Logger LOGGER = Logger.getLogger(FetchModeComparison.class.getName());
+
+    private static final int WARMUP_REQUESTS = 100;
+
+    public static void main(String[] args) throws IOException {
+        if (!Boolean.getBoolean("pokemon.stub")) {
+            compare();
+            return;
+        }
+        try (PokeApiStubServer stub = PokeApiStubServer.start(PokeApiStubServer.Settings.fromSystemProperties())) {
+            PokemonService.setApiUrl(stub.baseUrl());
+            compare();
+        }
+    }
+
+    private static void compare() {
+        int window = PokemonHttpClient.shared().settings().maxConnections();
+
+        VirtualThreadPokemonFetcher.run(Math.min(WARMUP_REQUESTS, NUM_REQUESTS));
+
+        List<FetchReport> reports = List.of(
+                PlatformThreadPokemonFetcher.run(NUM_REQUESTS, PLATFORM_POOL_SIZE),
+                VirtualThreadPokemonFetcher.run(NUM_REQUESTS),
+                AsyncPokemonFetcher.run(NUM_REQUESTS, window)
+        );
+
+        StringBuilder summary = new StringBuilder("Fetch mode comparison:");
+        for (FetchReport report : reports) {
+            summary.append(System.lineSeparator()).append("  ").append(report);
+        }
+        LOGGER.info(summary.toString());
+        PokemonService.logStats(LOGGER);
+    }
+}
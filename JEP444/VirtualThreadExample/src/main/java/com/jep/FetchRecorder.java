@@ -0,0 +1,75 @@
+package com.jep;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects per-request latencies and concurrency figures for a single fetch run.
+ *
+ * <p>Each request writes its own slot of the latency array, so recording is free of locks and
+ * safe to call from any number of platform or virtual threads. Peak thread count is taken from
+ * {@link ThreadMXBean}, which only sees platform threads; virtual threads show up in the peak
+ * in-flight figure instead.</p>
+ */
+public final class FetchRecorder {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final String mode;
+    private final long[] latencies;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final long startNanos;
+
+    private FetchRecorder(String mode, int requests) {
+        this.mode = mode;
+        this.latencies = new long[requests];
+        THREADS.resetPeakThreadCount();
+        this.startNanos = System.nanoTime();
+    }
+
+    public static FetchRecorder start(String mode, int requests) {
+        return new FetchRecorder(mode, requests);
+    }
+
+    /**
+     * Marks a request as started and returns its start timestamp.
+     */
+    public long begin() {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the outcome of the request with the given (1-based) Pokemon id.
+     */
+    public void end(int pokemonId, long beginNanos, boolean success) {
+        latencies[pokemonId - 1] = System.nanoTime() - beginNanos;
+        inFlight.decrementAndGet();
+        if (!success) {
+            failures.incrementAndGet();
+        }
+    }
+
+    public FetchReport finish() {
+        long duration = System.nanoTime() - startNanos;
+        // Messages still queued in the async log would otherwise be interleaved with the report.
+        AsyncLog.flush();
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return new FetchReport(mode, latencies.length, failures.get(), duration,
+                percentile(sorted, 0.50), percentile(sorted, 0.99),
+                THREADS.getPeakThreadCount(), peakInFlight.get());
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
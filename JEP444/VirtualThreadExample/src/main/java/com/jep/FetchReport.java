@@ -0,0 +1,32 @@
+package com.jep;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of one fetch run, used to compare the threading models under the same workload.
+ *
+ * @param mode           the threading model that produced the run
+ * @param requests       number of requests issued
+ * @param failures       number of requests that did not return a Pokemon
+ * @param durationNanos  wall time of the whole run
+ * @param p50Nanos       median request latency
+ * @param p99Nanos       99th percentile request latency
+ * @param peakThreads    peak number of live platform threads in the JVM during the run
+ * @param peakInFlight   peak number of requests in flight at the same time
+ */
+public record FetchReport(String mode, int requests, int failures, long durationNanos,
+                          long p50Nanos, long p99Nanos, int peakThreads, int peakInFlight) {
+
+    public double throughputPerSecond() {
+        return durationNanos == 0 ? 0 : requests * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%-9s requests=%d failures=%d time=%dms throughput=%.1f req/s p50=%.2fms p99=%.2fms "
+                        + "peak threads=%d peak in flight=%d",
+                mode, requests, failures, TimeUnit.NANOSECONDS.toMillis(durationNanos), throughputPerSecond(),
+                p50Nanos / 1e6, p99Nanos / 1e6, peakThreads, peakInFlight);
+    }
+}
@@ -0,0 +1,45 @@
+package com.jep;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import static com.jep.Constants.NUM_REQUESTS;
+import static com.jep.PokemonService.fetchPokemon;
+
+/**
+ * Hot-key workload: {@link Constants#NUM_REQUESTS} lookups, one virtual thread each, spread over
+ * only {@code pokemon.hotKeys} distinct Pokemon (default 10).
+ *
+ * <p>Run it once as is and once with {@code -Dpokemon.cache.maxEntries=1000}: without the
+ * {@link PokemonCache} every lookup is an HTTP exchange, with it the exchanges drop to roughly one
+ * per distinct id, because concurrent misses for the same id share a single load.</p>
+ */
+public class HotKeyPokemonFetcher {
+
+    private static final Logger LOGGER = Logger.getLogger(HotKeyPokemonFetcher.class.getName());
+
+    private static final int HOT_KEYS = Integer.getInteger("pokemon.hotKeys", 10);
+
+    public static void main(String[] args) {
+        if (PokemonService.cache().isEmpty()) {
+            LOGGER.warning("Cache disabled; run with -Dpokemon.cache.maxEntries=1000 to coalesce lookups");
+        }
+
+        FetchRecorder recorder = FetchRecorder.start("hot-key", NUM_REQUESTS);
+        try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 1; i <= NUM_REQUESTS; i++) {
+                final int request = i;
+                final int pokemonId = 1 + ThreadLocalRandom.current().nextInt(HOT_KEYS);
+                executorService.submit(() -> {
+                    long begin = recorder.begin();
+                    recorder.end(request, begin, fetchPokemon(pokemonId));
+                });
+            }
+        }
+
+        LOGGER.info(recorder.finish().toString());
+        PokemonService.logStats(LOGGER);
+    }
+}
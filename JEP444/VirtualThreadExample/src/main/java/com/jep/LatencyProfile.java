@@ -0,0 +1,88 @@
+package com.jep;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribution of artificial response latencies injected by {@link PokeApiStubServer}.
+ *
+ * <p>Profiles are written as {@code fixed:<ms>}, {@code uniform:<minMs>:<maxMs>} or
+ * {@code longtail:<medianMs>:<p99Ms>}, for example {@code longtail:20:400}.</p>
+ */
+public sealed interface LatencyProfile permits
+        LatencyProfile.Fixed,
+        LatencyProfile.Uniform,
+        LatencyProfile.LongTail {
+
+    /**
+     * Draws the next latency in nanoseconds.
+     */
+    long nextNanos(RandomGenerator random);
+
+    /**
+     * Every response takes the same time.
+     */
+    record Fixed(Duration latency) implements LatencyProfile {
+
+        @Override
+        public long nextNanos(RandomGenerator random) {
+            return latency.toNanos();
+        }
+    }
+
+    /**
+     * Latencies are spread evenly between {@code min} and {@code max}.
+     */
+    record Uniform(Duration min, Duration max) implements LatencyProfile {
+
+        public Uniform {
+            if (max.compareTo(min) < 0) {
+                throw new IllegalArgumentException("max must not be less than min: " + min + " > " + max);
+            }
+        }
+
+        @Override
+        public long nextNanos(RandomGenerator random) {
+            return min.equals(max) ? min.toNanos() : random.nextLong(min.toNanos(), max.toNanos() + 1);
+        }
+    }
+
+    /**
+     * Log-normal latencies with the given median and 99th percentile, which gives the long tail a
+     * real backend shows under load.
+     */
+    record LongTail(Duration median, Duration p99) implements LatencyProfile {
+
+        /** The 99th percentile of the standard normal distribution. */
+        private static final double Z_99 = 2.326;
+
+        public LongTail {
+            if (median.isNegative() || median.isZero() || p99.compareTo(median) < 0) {
+                throw new IllegalArgumentException("expected 0 < median <= p99: " + median + ", " + p99);
+            }
+        }
+
+        @Override
+        public long nextNanos(RandomGenerator random) {
+            double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+            return (long) (median.toNanos() * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    static LatencyProfile parse(String profile) {
+        String[] parts = profile.trim().split(":");
+        return switch (parts[0]) {
+            case "fixed" -> new Fixed(millis(parts, 1));
+            case "uniform" -> new Uniform(millis(parts, 1), millis(parts, 2));
+            case "longtail" -> new LongTail(millis(parts, 1), millis(parts, 2));
+            default -> throw new IllegalArgumentException("Unknown latency profile: " + profile);
+        };
+    }
+
+    private static Duration millis(String[] parts, int index) {
+        if (index >= parts.length) {
+            throw new IllegalArgumentException("Missing value in latency profile: " + String.join(":", parts));
+        }
+        return Duration.ofMillis(Long.parseLong(parts[index]));
+    }
+}
@@ -0,0 +1,148 @@
+package com.jep;
+
+import java.time.Duration;
+
+/**
+ * Strategy that adjusts the concurrency limit of an {@link AdaptiveConcurrencyLimiter} from the
+ * latency and outcome of completed requests.
+ *
+ * <p>Implementations are not thread-safe; the limiter only calls them while holding its lock.</p>
+ */
+public sealed interface LimitAlgorithm permits
+        LimitAlgorithm.Aimd,
+        LimitAlgorithm.Vegas {
+
+    int initialLimit();
+
+    /**
+     * Folds one completed request into the limit.
+     *
+     * @param rttNanos latency of the request
+     * @param inFlight number of requests in flight when this one started
+     * @param dropped  whether the request failed in a way that signals overload
+     * @return the new limit
+     */
+    int update(long rttNanos, int inFlight, boolean dropped);
+
+    /**
+     * Reads the algorithm from {@code pokemon.limiter.*} system properties.
+     *
+     * @param name    {@code aimd} or {@code vegas}
+     * @param ceiling highest limit that can take effect, e.g. the connections of the client below;
+     *                {@code pokemon.limiter.max} defaults to it and cannot exceed it
+     */
+    static LimitAlgorithm fromSystemProperties(String name, int ceiling) {
+        int max = Math.min(Integer.getInteger("pokemon.limiter.max", ceiling), ceiling);
+        int min = Math.min(Integer.getInteger("pokemon.limiter.min", 1), max);
+        int initial = Math.min(Integer.getInteger("pokemon.limiter.initial", 20), max);
+        return switch (name) {
+            case "aimd" -> new Aimd(initial, min, max, 0.9,
+                    Duration.ofMillis(Long.getLong("pokemon.limiter.aimd.timeoutMs", 2_000)));
+            case "vegas" -> new Vegas(initial, min, max);
+            default -> throw new IllegalArgumentException("Unknown limit algorithm: " + name);
+        };
+    }
+
+    /**
+     * Additive increase, multiplicative decrease: grows the limit by one while the limit is being
+     * used, and cuts it by {@code backoff} when a request is dropped or slower than
+     * {@code timeout}.
+     */
+    final class Aimd implements LimitAlgorithm {
+
+        private final int initial;
+        private final int min;
+        private final int max;
+        private final double backoff;
+        private final long timeoutNanos;
+        private int limit;
+
+        public Aimd(int initial, int min, int max, double backoff, Duration timeout) {
+            if (backoff <= 0 || backoff >= 1) {
+                throw new IllegalArgumentException("backoff must be between 0 and 1: " + backoff);
+            }
+            this.initial = initial;
+            this.min = min;
+            this.max = max;
+            this.backoff = backoff;
+            this.timeoutNanos = timeout.toNanos();
+            this.limit = initial;
+        }
+
+        @Override
+        public int initialLimit() {
+            return initial;
+        }
+
+        @Override
+        public int update(long rttNanos, int inFlight, boolean dropped) {
+            if (dropped || rttNanos > timeoutNanos) {
+                limit = Math.max(min, (int) (limit * backoff));
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(max, limit + 1);
+            }
+            return limit;
+        }
+    }
+
+    /**
+     * Delay-based limit in the style of TCP Vegas. The smallest latency seen approximates the
+     * latency without queueing; the ratio between it and the current latency estimates how many
+     * requests are queued at the server, and the limit moves to keep that queue small.
+     *
+     * <p>The no-load latency is re-measured every {@value #PROBE_INTERVAL} samples, so the limit
+     * follows a backend whose baseline latency changes.</p>
+     */
+    final class Vegas implements LimitAlgorithm {
+
+        private static final int PROBE_INTERVAL = 1_000;
+
+        private final int initial;
+        private final int min;
+        private final int max;
+        private long rttNoLoadNanos = Long.MAX_VALUE;
+        private int samples;
+        private int limit;
+
+        public Vegas(int initial, int min, int max) {
+            this.initial = initial;
+            this.min = min;
+            this.max = max;
+            this.limit = initial;
+        }
+
+        @Override
+        public int initialLimit() {
+            return initial;
+        }
+
+        @Override
+        public int update(long rttNanos, int inFlight, boolean dropped) {
+            if (++samples % PROBE_INTERVAL == 0) {
+                rttNoLoadNanos = rttNanos;
+            }
+            rttNoLoadNanos = Math.min(rttNoLoadNanos, Math.max(rttNanos, 1));
+
+            double step = Math.max(1, Math.log10(limit));
+            if (dropped) {
+                return limit = Math.max(min, (int) (limit - step));
+            }
+            if (inFlight * 2 < limit) {
+                // The limit is not the bottleneck; latency says nothing about it.
+                return limit;
+            }
+
+            double queue = Math.ceil(limit * (1 - (double) rttNoLoadNanos / rttNanos));
+            double alpha = 3 * step;
+            double beta = 6 * step;
+            if (queue <= step) {
+                limit = (int) Math.min(max, limit + beta);
+            } else if (queue < alpha) {
+                limit = (int) Math.min(max, limit + step);
+            } else if (queue > beta) {
+                limit = (int) Math.max(min, limit - step);
+            }
+            return limit;
+        }
+    }
+}
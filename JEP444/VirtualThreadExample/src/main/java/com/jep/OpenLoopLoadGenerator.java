@@ -0,0 +1,310 @@
+package com.jep;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import static com.jep.Constants.NUM_REQUESTS;
+import static com.jep.Constants.PLATFORM_POOL_SIZE;
+
+/**
+ * Open-loop load test of the threading models: requests are issued at a fixed arrival rate,
+ * whether or not earlier ones have completed, and each latency goes into an HdrHistogram.
+ *
+ * <p>The fetchers submit their whole workload at once and report one wall time, which says
+ * nothing about the tail. A closed-loop client that waits for a response before sending the next
+ * request is no better: when the server stalls, the client stops sending, and the requests that
+ * would have queued up behind the stall are never measured. This generator avoids that
+ * <em>coordinated omission</em> by fixing the schedule up front, one request every
+ * {@code 1/rate} seconds, and measuring each response time from the moment its request was
+ * <em>meant</em> to start. Time spent queued for a pool thread, or issued late because the
+ * dispatcher fell behind, therefore counts against the mode that caused it. The service time,
+ * measured from when the fetch actually began, is reported next to it; the gap between the two
+ * is the queueing.</p>
+ *
+ * <p>Only successful requests go into those two histograms. A request that fails, e.g. one the
+ * limiter rejects at once, is counted and its response time kept apart, so a burst of quick
+ * failures cannot pass for a low percentile.</p>
+ *
+ * <p>Each mode sees the same schedule:</p>
+ * <ul>
+ *   <li>{@code platform}: the {@link Constants#PLATFORM_POOL_SIZE} platform threads of
+ *       {@link PlatformThreadPokemonFetcher}, blocking in {@link PokemonService#fetchPokemon}</li>
+ *   <li>{@code virtual}: one virtual thread per request, blocking in the same method</li>
+ *   <li>{@code async}: {@link PokemonService#fetchPokemonAsync}, no thread per request</li>
+ * </ul>
+ *
+ * <p>Configured with {@code load.*} system properties, see
+ * {@link Settings#fromSystemProperties()}. Like {@link FetchModeComparison},
+ * {@code -Dpokemon.stub=true} runs against an embedded {@link PokeApiStubServer}.</p>
+ */
+public class OpenLoopLoadGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(OpenLoopLoadGenerator.class.getName());
+
+    private static final int WARMUP_REQUESTS = 100;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    /**
+     * Configuration of a load run.
+     *
+     * @param rate            requests issued per second
+     * @param durationSeconds how long requests are issued for; the run then waits for the last ones
+     * @param modes           threading models to run, one after another
+     * @param histogramDir    directory to write each mode's full percentile distribution to, as
+     *                        {@code <mode>.hgrm}, or {@code null}
+     */
+    public record Settings(int rate, int durationSeconds, List<String> modes, Path histogramDir) {
+
+        public Settings {
+            if (rate <= 0 || durationSeconds <= 0) {
+                throw new IllegalArgumentException("rate and duration must be positive: " + rate + ", " + durationSeconds);
+            }
+            modes = List.copyOf(modes);
+        }
+
+        /**
+         * Reads the settings from {@code load.rate} (default 200), {@code load.durationSeconds}
+         * (10), {@code load.modes} (comma-separated, {@code platform,virtual,async}) and
+         * {@code load.histogramDir} (unset).
+         */
+        public static Settings fromSystemProperties() {
+            String dir = System.getProperty("load.histogramDir");
+            return new Settings(
+                    Integer.getInteger("load.rate", 200),
+                    Integer.getInteger("load.durationSeconds", 10),
+                    Arrays.asList(System.getProperty("load.modes", "platform,virtual,async").split(",")),
+                    dir == null ? null : Path.of(dir)
+            );
+        }
+
+        long requests() {
+            return (long) rate * durationSeconds;
+        }
+
+        long intervalNanos() {
+            return TimeUnit.SECONDS.toNanos(1) / rate;
+        }
+    }
+
+    /**
+     * Outcome of one mode's run.
+     *
+     * @param mode          the threading model
+     * @param rate          target arrival rate in requests per second
+     * @param durationNanos time from the first intended start to the last completion
+     * @param responseTime  latencies of the successful requests from each one's intended start,
+     *                      corrected for coordinated omission
+     * @param serviceTime   latencies of the successful requests from the moment each fetch
+     *                      actually began
+     * @param failureTime   latencies of the requests that did not return a Pokemon, from each
+     *                      one's intended start
+     */
+    public record LoadReport(String mode, int rate, long durationNanos,
+                             Histogram responseTime, Histogram serviceTime, Histogram failureTime) {
+
+        /**
+         * Number of requests issued, successful or not.
+         */
+        public long requests() {
+            return responseTime.getTotalCount() + failures();
+        }
+
+        public long failures() {
+            return failureTime.getTotalCount();
+        }
+
+        public double throughputPerSecond() {
+            return durationNanos == 0 ? 0 : requests() * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+        }
+
+        @Override
+        public String toString() {
+            String report = String.format("%-8s rate=%d/s requests=%d failures=%d throughput=%.1f req/s%n"
+                            + "           response %s%n           service  %s",
+                    mode, rate, requests(), failures(), throughputPerSecond(),
+                    percentiles(responseTime), percentiles(serviceTime));
+            if (failures() == 0) {
+                return report;
+            }
+            return report + String.format("%n           failed   %s", percentiles(failureTime));
+        }
+
+        private static String percentiles(Histogram histogram) {
+            StringBuilder line = new StringBuilder();
+            for (double percentile : PERCENTILES) {
+                String label = percentile % 1 == 0 ? String.valueOf((int) percentile) : String.valueOf(percentile);
+                line.append(String.format("p%s=%.2fms ", label, histogram.getValueAtPercentile(percentile) / 1e6));
+            }
+            return line.append(String.format("max=%.2fms", histogram.getMaxValue() / 1e6)).toString();
+        }
+    }
+
+    /**
+     * What a scheduled request does, blocking for the threaded modes and non-blocking for
+     * {@code async}. Runs use {@link PokemonService}; tests substitute their own.
+     */
+    interface Target {
+
+        Target SERVICE = new Target() {
+            @Override
+            public boolean fetch(int pokemonId) {
+                return PokemonService.fetchPokemon(pokemonId);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> fetchAsync(int pokemonId) {
+                return PokemonService.fetchPokemonAsync(pokemonId);
+            }
+        };
+
+        boolean fetch(int pokemonId);
+
+        CompletableFuture<Boolean> fetchAsync(int pokemonId);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Settings settings = Settings.fromSystemProperties();
+        if (!Boolean.getBoolean("pokemon.stub")) {
+            runAll(settings);
+            return;
+        }
+        try (PokeApiStubServer stub = PokeApiStubServer.start(PokeApiStubServer.Settings.fromSystemProperties())) {
+            PokemonService.setApiUrl(stub.baseUrl());
+            runAll(settings);
+        }
+    }
+
+    private static void runAll(Settings settings) throws IOException {
+        VirtualThreadPokemonFetcher.run(Math.min(WARMUP_REQUESTS, NUM_REQUESTS));
+
+        StringBuilder summary = new StringBuilder("Open-loop load test:");
+        for (String mode : settings.modes()) {
+            LoadReport report = run(mode.strip(), settings);
+            summary.append(System.lineSeparator()).append("  ").append(report);
+            if (settings.histogramDir() != null) {
+                writeDistribution(report, settings.histogramDir());
+            }
+        }
+        LOGGER.info(summary.toString());
+        PokemonService.logStats(LOGGER);
+    }
+
+    /**
+     * Issues {@code settings.rate() * settings.durationSeconds()} requests in the given mode on a
+     * fixed schedule and waits for all of them to complete.
+     */
+    public static LoadReport run(String mode, Settings settings) {
+        return run(mode, settings, Target.SERVICE);
+    }
+
+    static LoadReport run(String mode, Settings settings, Target target) {
+        try (Run run = new Run(mode, settings, target)) {
+            return run.execute();
+        }
+    }
+
+    private static void writeDistribution(LoadReport report, Path dir) throws IOException {
+        Path file = dir.resolve(report.mode() + ".hgrm");
+        Files.createDirectories(dir);
+        try (PrintStream out = new PrintStream(file.toFile())) {
+            // Values are recorded in nanoseconds; the file is in milliseconds. Failures are left out,
+            // as in the summary's response line.
+            report.responseTime().outputPercentileDistribution(out, 1e6);
+        }
+        LOGGER.info(String.format("Wrote %s", file));
+    }
+
+    /**
+     * One mode's schedule, executor and histograms.
+     */
+    private static final class Run implements AutoCloseable {
+
+        private final String mode;
+        private final Settings settings;
+        private final Target target;
+        private final ExecutorService executor;
+        private final Histogram responseTime = new ConcurrentHistogram(3);
+        private final Histogram serviceTime = new ConcurrentHistogram(3);
+        private final Histogram failureTime = new ConcurrentHistogram(3);
+
+        Run(String mode, Settings settings, Target target) {
+            this.mode = mode;
+            this.settings = settings;
+            this.target = target;
+            this.executor = switch (mode) {
+                case "platform" -> Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+                case "virtual" -> Executors.newVirtualThreadPerTaskExecutor();
+                case "async" -> null;
+                default -> throw new IllegalArgumentException("Unknown mode " + mode + "; expected platform, virtual or async");
+            };
+        }
+
+        LoadReport execute() {
+            long requests = settings.requests();
+            long interval = settings.intervalNanos();
+            List<CompletableFuture<Void>> pending = new ArrayList<>((int) Math.min(requests, Integer.MAX_VALUE));
+
+            long start = System.nanoTime();
+            for (long i = 0; i < requests; i++) {
+                long intendedStart = start + i * interval;
+                long wait = intendedStart - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                // Running late does not shift the schedule: the lateness is part of this request's
+                // latency.
+                pending.add(issue(1 + (int) (i % NUM_REQUESTS), intendedStart));
+            }
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+            long duration = System.nanoTime() - start;
+
+            AsyncLog.flush();
+            return new LoadReport(mode, settings.rate(), duration,
+                    responseTime.copy(), serviceTime.copy(), failureTime.copy());
+        }
+
+        private CompletableFuture<Void> issue(int pokemonId, long intendedStart) {
+            if (executor == null) {
+                long begin = System.nanoTime();
+                return target.fetchAsync(pokemonId)
+                        .thenAccept(success -> record(intendedStart, begin, success));
+            }
+            return CompletableFuture.runAsync(() -> {
+                long begin = System.nanoTime();
+                record(intendedStart, begin, target.fetch(pokemonId));
+            }, executor);
+        }
+
+        private void record(long intendedStart, long begin, boolean success) {
+            long end = System.nanoTime();
+            if (success) {
+                responseTime.recordValue(end - intendedStart);
+                serviceTime.recordValue(end - begin);
+            } else {
+                failureTime.recordValue(end - intendedStart);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (executor != null) {
+                executor.close();
+            }
+        }
+    }
+}
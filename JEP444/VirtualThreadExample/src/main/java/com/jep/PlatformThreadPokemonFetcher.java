@@ -8,6 +8,7 @@ import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import static com.jep.Constants.NUM_REQUESTS;
+import static com.jep.Constants.PLATFORM_POOL_SIZE;
 import static com.jep.PokemonService.fetchPokemon;
 
 public class PlatformThreadPokemonFetcher {
@@ -15,14 +16,28 @@ public class PlatformThreadPokemonFetcher {
     private static final Logger LOGGER = Logger.getLogger(PlatformThreadPokemonFetcher.class.getName());
 
     public static void main(String[] args) {
-        long start = System.currentTimeMillis();
+        FetchReport report = run(NUM_REQUESTS, PLATFORM_POOL_SIZE);
 
-        ExecutorService executorService = Executors.newFixedThreadPool(10);
+        LOGGER.info(String.format("Time taken: %dms", report.durationNanos() / 1_000_000));
+        LOGGER.info(report.toString());
+        PokemonService.logStats(LOGGER);
+    }
+
+    /**
+     * Fetches Pokemon {@code 1..numRequests} on a fixed pool of {@code poolSize} platform threads.
+     */
+    public static FetchReport run(int numRequests, int poolSize) {
+        FetchRecorder recorder = FetchRecorder.start("platform", numRequests);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(poolSize);
         List<Future<?>> futures = new ArrayList<>();
 
-        for (int i = 1; i <= NUM_REQUESTS; i++) {
+        for (int i = 1; i <= numRequests; i++) {
             final int pokemonId = i;
-            futures.add(executorService.submit(() -> fetchPokemon(pokemonId)));
+            futures.add(executorService.submit(() -> {
+                long begin = recorder.begin();
+                recorder.end(pokemonId, begin, fetchPokemon(pokemonId));
+            }));
         }
 
         for (Future<?> future: futures) {
@@ -34,9 +49,6 @@ public class PlatformThreadPokemonFetcher {
         }
 
         executorService.shutdown();
-        long end = System.currentTimeMillis();
-        long durationTime = end - start;
-
-        LOGGER.info(String.format("Time taken: %dms", durationTime));
+        return recorder.finish();
     }
 }
@@ -0,0 +1,247 @@
+package com.jep;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * In-process stand-in for the PokeAPI, so the fetcher benchmarks can run on one machine or in CI
+ * without a PokeAPI Docker install.
+ *
+ * <p>The server answers {@code GET /api/v2/pokemon/{id}} for any positive id with a PokeAPI-shaped
+ * JSON document. Every exchange is handled on its own virtual thread, which sleeps for a latency
+ * drawn from the configured {@link LatencyProfile}, fails with the configured error rate and
+ * otherwise pads the response to the configured payload size.</p>
+ *
+ * <p>Run it standalone with {@code java com.jep.PokeApiStubServer}, then point the fetchers at it
+ * with {@code -Dpokemon.api.url=http://localhost:8089/api/v2/pokemon/}.</p>
+ */
+public final class PokeApiStubServer implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(PokeApiStubServer.class.getName());
+
+    public static final String PATH = "/api/v2/pokemon/";
+
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private static final String[] TYPES = {"grass", "fire", "water", "electric", "psychic", "rock"};
+    private static final String[] STATS = {"hp", "attack", "defense", "special-attack", "special-defense", "speed"};
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] padding;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Configuration of the stub server.
+     *
+     * @param port         port to listen on; {@code 0} picks a free port
+     * @param latency      distribution of the artificial response latency
+     * @param payloadBytes approximate size of each successful response body
+     * @param errorRate    fraction of requests, between 0 and 1, answered with {@code 503}
+     * @param backlog      listen backlog of the server socket
+     */
+    public record Settings(int port, LatencyProfile latency, int payloadBytes, double errorRate, int backlog) {
+
+        public Settings {
+            if (errorRate < 0 || errorRate > 1) {
+                throw new IllegalArgumentException("errorRate must be between 0 and 1: " + errorRate);
+            }
+        }
+
+        /**
+         * Reads the settings from {@code stub.*} system properties.
+         */
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("stub.port", 8089),
+                    LatencyProfile.parse(System.getProperty("stub.latency", "fixed:10")),
+                    Integer.getInteger("stub.payloadBytes", 4096),
+                    Double.parseDouble(System.getProperty("stub.errorRate", "0")),
+                    Integer.getInteger("stub.backlog", 4096)
+            );
+        }
+    }
+
+    private PokeApiStubServer(Settings settings) throws IOException {
+        // Responses are written in two parts; without TCP_NODELAY every keep-alive exchange can
+        // stall on Nagle's algorithm and the client's delayed ACK. The JDK reads this only once.
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+        this.settings = settings;
+        this.padding = padding(settings.payloadBytes());
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(settings.port()), settings.backlog());
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Starts a stub server with the given settings.
+     */
+    public static PokeApiStubServer start(Settings settings) throws IOException {
+        PokeApiStubServer stub = new PokeApiStubServer(settings);
+        stub.server.start();
+        LOGGER.info(String.format("PokeAPI stub listening on %s (latency=%s, payload=%d bytes, error rate=%.3f)",
+                stub.baseUrl(), settings.latency(), settings.payloadBytes(), settings.errorRate()));
+        return stub;
+    }
+
+    public static void main(String[] args) throws IOException {
+        PokeApiStubServer stub = start(Settings.fromSystemProperties());
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+    }
+
+    /**
+     * The URL to use as {@code pokemon.api.url}, ending with a slash.
+     */
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long errors() {
+        return errors.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+        LOGGER.info(String.format("PokeAPI stub stopped after %d requests (%d injected errors)", requests(), errors()));
+    }
+
+    /**
+     * Returns the complete document the server sends for a Pokemon, for parsers and benchmarks that
+     * need a representative body without a server.
+     */
+    static byte[] sampleDocument(int pokemonId, int payloadBytes) {
+        byte[] head = head(pokemonId);
+        byte[] padding = padding(payloadBytes);
+        byte[] document = Arrays.copyOf(head, head.length + padding.length);
+        System.arraycopy(padding, 0, document, head.length, padding.length);
+        return document;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            int pokemonId = pokemonId(exchange.getRequestURI().getPath());
+            if (pokemonId <= 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            sleep(settings.latency().nextNanos(random));
+
+            if (random.nextDouble() < settings.errorRate()) {
+                errors.increment();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            byte[] head = head(pokemonId);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, head.length + padding.length);
+            OutputStream body = exchange.getResponseBody();
+            body.write(head);
+            body.write(padding);
+        }
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int pokemonId(String path) {
+        String id = path.substring(PATH.length());
+        if (id.endsWith("/")) {
+            id = id.substring(0, id.length() - 1);
+        }
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Builds the id-specific part of the document: everything up to the {@code moves} array, which
+     * is shared by all responses.
+     */
+    private static byte[] head(int pokemonId) {
+        StringBuilder json = new StringBuilder(512)
+                .append("{\"id\":").append(pokemonId)
+                .append(",\"name\":\"pokemon-").append(pokemonId).append('"')
+                .append(",\"base_experience\":").append(50 + pokemonId % 250)
+                .append(",\"types\":[");
+        int typeCount = 1 + pokemonId % 2;
+        for (int slot = 1; slot <= typeCount; slot++) {
+            String type = TYPES[(pokemonId + slot) % TYPES.length];
+            if (slot > 1) {
+                json.append(',');
+            }
+            json.append("{\"slot\":").append(slot)
+                    .append(",\"type\":{\"name\":\"").append(type)
+                    .append("\",\"url\":\"https://pokeapi.co/api/v2/type/").append(type).append("/\"}}");
+        }
+        json.append("],\"stats\":[");
+        for (int i = 0; i < STATS.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"base_stat\":").append(20 + (pokemonId * 7 + i * 13) % 130)
+                    .append(",\"effort\":").append(i == pokemonId % STATS.length ? 1 : 0)
+                    .append(",\"stat\":{\"name\":\"").append(STATS[i])
+                    .append("\",\"url\":\"https://pokeapi.co/api/v2/stat/").append(i + 1).append("/\"}}");
+        }
+        json.append("],\"moves\":");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds a {@code moves} array of roughly {@code payloadBytes} bytes, standing in for the large
+     * nested arrays of a real PokeAPI response, followed by the closing brace of the document.
+     */
+    private static byte[] padding(int payloadBytes) {
+        StringBuilder json = new StringBuilder(Math.max(payloadBytes, 16)).append('[');
+        int move = 0;
+        while (json.length() < payloadBytes - 600) {
+            if (move > 0) {
+                json.append(',');
+            }
+            move++;
+            json.append("{\"move\":{\"name\":\"move-").append(move)
+                    .append("\",\"url\":\"https://pokeapi.co/api/v2/move/").append(move)
+                    .append("/\"},\"version_group_details\":[{\"level_learned_at\":").append(move % 60)
+                    .append(",\"move_learn_method\":{\"name\":\"level-up\"}}]}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,34 @@
+package com.jep;
+
+import java.util.List;
+
+/**
+ * The parts of a PokeAPI Pokemon document the examples use.
+ *
+ * <p>A real response is tens of kilobytes, almost all of it the {@code moves},
+ * {@code game_indices} and {@code sprites} sections; this record keeps only the identity, types
+ * and base stats, see {@link PokemonParser}.</p>
+ *
+ * @param id    the Pokemon's id
+ * @param name  the Pokemon's name
+ * @param types type names in slot order
+ * @param stats base stats in the order the API lists them
+ */
+public record Pokemon(int id, String name, List<String> types, List<Stat> stats) {
+
+    /**
+     * One base stat, such as {@code hp} or {@code speed}.
+     */
+    public record Stat(String name, int baseStat) {
+    }
+
+    public Pokemon {
+        types = List.copyOf(types);
+        stats = List.copyOf(stats);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s %s", id, name, types);
+    }
+}
@@ -0,0 +1,225 @@
+package com.jep;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SequencedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory cache of Pokemon lookups with LRU and TTL eviction and single-flight loading.
+ *
+ * <p>Entries live in a {@link LinkedHashMap} in access order, used through its
+ * {@link SequencedMap} view: every hit moves an entry to the end, so the least recently used entry
+ * is always {@link SequencedMap#firstEntry() first} and eviction is a
+ * {@link SequencedMap#pollFirstEntry() pollFirstEntry()}. Expired entries are dropped when they
+ * are read.</p>
+ *
+ * <p>Concurrent misses for the same id are coalesced: the first caller loads the value and every
+ * other caller waits for that load, so N virtual threads asking for one id cause one HTTP call.
+ * The map is guarded by a {@link ReentrantLock} that is never held during a load, so waiting
+ * threads do not pin their carriers.</p>
+ *
+ * @param <V> the cached value
+ */
+public final class PokemonCache<V> {
+
+    /**
+     * Loads the value for a Pokemon id on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load(int pokemonId) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Snapshot of the cache counters.
+     *
+     * @param size        entries currently cached
+     * @param hits        lookups answered from the cache
+     * @param misses      lookups that had to load the value
+     * @param coalesced   misses that waited for another caller's load instead of loading themselves
+     * @param evictions   entries dropped because the cache was full
+     * @param expirations entries dropped because they outlived the TTL
+     */
+    public record CacheStats(int size, long hits, long misses, long coalesced, long evictions, long expirations) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d, hits=%d, misses=%d, coalesced=%d, evictions=%d, expirations=%d, hit rate=%.1f%%",
+                    size, hits, misses, coalesced, evictions, expirations, hitRate() * 100);
+        }
+    }
+
+    private record CachedValue<V>(V value, long expiresAtNanos) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final SequencedMap<Integer, CachedValue<V>> entries;
+    private final ConcurrentHashMap<Integer, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public PokemonCache(int maxEntries, Duration ttl) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Builds the cache enabled with {@code -Dpokemon.cache.maxEntries=<n>}, or nothing if that
+     * property is unset or zero. Entries expire after {@code pokemon.cache.ttlMs} (default 60 s).
+     */
+    public static <V> Optional<PokemonCache<V>> fromSystemProperties() {
+        int maxEntries = Integer.getInteger("pokemon.cache.maxEntries", 0);
+        if (maxEntries <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new PokemonCache<>(maxEntries,
+                Duration.ofMillis(Long.getLong("pokemon.cache.ttlMs", 60_000))));
+    }
+
+    /**
+     * Returns the cached value for the id, loading it with {@code loader} on a miss. If another
+     * thread is already loading the same id, waits for its result instead.
+     */
+    public V get(int pokemonId, Loader<V> loader) throws IOException, InterruptedException {
+        V cached = lookup(pokemonId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inProgress = loading.putIfAbsent(pokemonId, load);
+        if (inProgress != null) {
+            coalesced.increment();
+            return await(inProgress);
+        }
+
+        try {
+            // Another caller may have finished loading between the lookup and claiming the load.
+            V value = lookup(pokemonId);
+            if (value == null) {
+                value = loader.load(pokemonId);
+                store(pokemonId, value, load);
+            }
+            load.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Errors too, or the callers waiting for this load would wait forever.
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(pokemonId, load);
+        }
+    }
+
+    /**
+     * Drops the cached value for the id. A load already in progress still answers the callers
+     * waiting for it, but its value is not cached, since it may have been read before the change
+     * that caused the invalidation; the next lookup loads again.
+     */
+    public void invalidate(int pokemonId) {
+        lock.lock();
+        try {
+            entries.remove(pokemonId);
+            loading.remove(pokemonId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            return new CacheStats(entries.size(), hits.sum(), misses.sum(), coalesced.sum(),
+                    evictions.sum(), expirations.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private V lookup(int pokemonId) {
+        lock.lock();
+        try {
+            CachedValue<V> cached = entries.get(pokemonId);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.expiresAtNanos() >= 0) {
+                entries.remove(pokemonId);
+                expirations.increment();
+                return null;
+            }
+            return cached.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(int pokemonId, V value, CompletableFuture<V> load) {
+        lock.lock();
+        try {
+            if (loading.get(pokemonId) != load) {
+                // Invalidated while loading.
+                return;
+            }
+            entries.put(pokemonId, new CachedValue<>(value, System.nanoTime() + ttlNanos));
+            while (entries.size() > maxEntries) {
+                Map.Entry<Integer, CachedValue<V>> eldest = entries.pollFirstEntry();
+                if (System.nanoTime() - eldest.getValue().expiresAtNanos() >= 0) {
+                    expirations.increment();
+                } else {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) throws IOException, InterruptedException {
+        try {
+            return load.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof InterruptedException) {
+                // The loading thread was cancelled; this caller was not, so report a failed load.
+                throw new IOException("Coalesced load was cancelled", cause);
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.jep;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared, connection-limited HTTP client used by every Pokemon fetch.
+ *
+ * <p>An {@link HttpClient} owns a selector thread and a connection pool, so building a new one for
+ * every request makes each fetch pay for a fresh TCP handshake and hides the difference between the
+ * threading models being compared. This class keeps one client per configuration and bounds the
+ * number of exchanges in flight, which in turn bounds the number of pooled connections.</p>
+ *
+ * <p>The JDK client does not expose its pool, so the connection counters are estimates made from
+ * the client's point of view: an HTTP/1.1 exchange that starts while an earlier exchange has
+ * handed its connection back to the pool counts as a likely reuse, anything else as a likely new
+ * connection. Connections the pool drops after the keep-alive timeout, or that the server closes,
+ * are not seen, so reuse is overestimated when the client idles. HTTP/2 exchanges are multiplexed
+ * over a single connection.</p>
+ *
+ * <p>Creating a client sets the JVM-wide {@code jdk.httpclient.keepalive.timeout} and
+ * {@code jdk.httpclient.connectionPoolSize} system properties from its settings, unless they are
+ * already set; see {@link #PokemonHttpClient(Settings)}.</p>
+ */
+public final class PokemonHttpClient {
+
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    private static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+
+    private final Settings settings;
+    private final HttpClient client;
+    private final Semaphore permits;
+
+    private final AtomicInteger idleConnections = new AtomicInteger();
+    private final AtomicBoolean http2ConnectionOpen = new AtomicBoolean();
+    private final LongAdder exchanges = new LongAdder();
+    private final LongAdder likelyOpened = new LongAdder();
+    private final LongAdder likelyReused = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Tunables for the shared client.
+     *
+     * @param maxConnections maximum number of exchanges (and therefore pooled connections) in
+     *                       flight
+     * @param version        preferred protocol; {@code HTTP_2} multiplexes requests over one
+     *                       connection
+     * @param connectTimeout timeout for establishing a new connection
+     * @param requestTimeout timeout applied to every individual request
+     * @param keepAlive      how long an idle connection stays in the pool
+     */
+    public record Settings(int maxConnections, HttpClient.Version version, Duration connectTimeout,
+                           Duration requestTimeout, Duration keepAlive) {
+
+        public Settings {
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("maxConnections must be positive: " + maxConnections);
+            }
+        }
+
+        /**
+         * Reads the settings from {@code pokemon.http.*} system properties, falling back to
+         * defaults suited to a locally hosted API.
+         */
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("pokemon.http.maxConnections", 64),
+                    HttpClient.Version.valueOf(System.getProperty("pokemon.http.version", "HTTP_1_1")),
+                    Duration.ofMillis(Long.getLong("pokemon.http.connectTimeoutMs", 5_000)),
+                    Duration.ofMillis(Long.getLong("pokemon.http.requestTimeoutMs", 10_000)),
+                    Duration.ofSeconds(Long.getLong("pokemon.http.keepAliveSeconds", 30))
+            );
+        }
+    }
+
+    /**
+     * Snapshot of the client's exchange and connection counters.
+     *
+     * @param exchanges    exchanges that received a response
+     * @param likelyOpened exchanges estimated to have opened a new connection
+     * @param likelyReused exchanges estimated to have reused a pooled connection; the estimate
+     *                     does not see connections expired by the keep-alive timeout or closed by
+     *                     the server
+     * @param failures     exchanges that failed without a response
+     */
+    public record ConnectionStats(long exchanges, long likelyOpened, long likelyReused, long failures) {
+
+        @Override
+        public String toString() {
+            return String.format("exchanges=%d, connections opened=~%d, reused=~%d (estimated), failures=%d",
+                    exchanges, likelyOpened, likelyReused, failures);
+        }
+    }
+
+    /**
+     * Reads a streamed response body while the exchange still holds its connection permit.
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(int statusCode, InputStream body) throws IOException;
+    }
+
+    private static final class Holder {
+        private static final PokemonHttpClient SHARED = new PokemonHttpClient(Settings.fromSystemProperties());
+    }
+
+    /**
+     * Returns the process-wide client configured from system properties.
+     *
+     * <p>The first call sets JVM-wide {@code jdk.httpclient.*} properties, see
+     * {@link #PokemonHttpClient(Settings)}.</p>
+     */
+    public static PokemonHttpClient shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Creates a client with its own connection permits.
+     *
+     * <p>The JDK's pool is configured only through JVM-wide system properties, read when the
+     * first {@link HttpClient} in the JVM is created. Unless they are already set, this sets
+     * {@code jdk.httpclient.keepalive.timeout} to {@link Settings#keepAlive()} and
+     * {@code jdk.httpclient.connectionPoolSize} to {@link Settings#maxConnections()}, which affects
+     * every other {@code HttpClient} in the JVM; set them on the command line to keep control.</p>
+     */
+    public PokemonHttpClient(Settings settings) {
+        this.settings = settings;
+        applyPoolProperties(settings);
+        this.client = HttpClient.newBuilder()
+                .version(settings.version())
+                .connectTimeout(settings.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.permits = new Semaphore(settings.maxConnections());
+    }
+
+    /**
+     * The JDK reads its pool tunables once, when the first client in the JVM is created, so they
+     * can only be applied here if nothing has set them explicitly. The properties stay set for the
+     * rest of the JVM's life.
+     */
+    private static void applyPoolProperties(Settings settings) {
+        if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_PROPERTY, Long.toString(settings.keepAlive().toSeconds()));
+        }
+        if (System.getProperty(POOL_SIZE_PROPERTY) == null) {
+            System.setProperty(POOL_SIZE_PROPERTY, Integer.toString(settings.maxConnections()));
+        }
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    /**
+     * Builds a GET request for the given URI with the configured per-request timeout.
+     */
+    public HttpRequest newRequest(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(settings.requestTimeout())
+                .GET()
+                .build();
+    }
+
+    /**
+     * Sends a GET request, blocking until the response body has been handled.
+     *
+     * <p>The caller waits for a connection permit first, so no more than
+     * {@link Settings#maxConnections()} exchanges are ever in flight.</p>
+     */
+    public <T> HttpResponse<T> send(URI uri, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        permits.acquire();
+        boolean pooled = takeIdleConnection();
+        try {
+            HttpResponse<T> response = client.send(newRequest(uri), bodyHandler);
+            recordExchange(response.version(), pooled);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Sends a GET request and hands the body to {@code reader} as a stream, without collecting it
+     * first.
+     *
+     * <p>The connection permit is held until the reader returns. Whatever the reader leaves unread
+     * is drained afterwards, because closing a half-read body closes the connection instead of
+     * returning it to the pool.</p>
+     */
+    public <T> T send(URI uri, BodyReader<T> reader) throws IOException, InterruptedException {
+        return send(uri, reader, () -> {
+        });
+    }
+
+    /**
+     * Like {@link #send(URI, BodyReader)}, calling {@code onPermit} once the exchange holds its
+     * connection permit and is about to be sent.
+     */
+    public <T> T send(URI uri, BodyReader<T> reader, Runnable onPermit)
+            throws IOException, InterruptedException {
+        permits.acquire();
+        onPermit.run();
+        boolean pooled = takeIdleConnection();
+        try {
+            HttpResponse<InputStream> response;
+            try {
+                response = client.send(newRequest(uri), HttpResponse.BodyHandlers.ofInputStream());
+            } catch (IOException | RuntimeException e) {
+                failures.increment();
+                throw e;
+            }
+            recordExchange(response.version(), pooled);
+            try (InputStream body = response.body()) {
+                T result = reader.read(response.statusCode(), body);
+                body.transferTo(OutputStream.nullOutputStream());
+                return result;
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Sends a GET request without blocking the caller.
+     *
+     * <p>Asynchronous callers are expected to bound their own in-flight window to
+     * {@link Settings#maxConnections()}; a request that finds every permit taken fails with a
+     * {@link RejectedExecutionException} instead of parking the calling thread.</p>
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(URI uri, HttpResponse.BodyHandler<T> bodyHandler) {
+        if (!permits.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "All " + settings.maxConnections() + " connections are in use"));
+        }
+        boolean pooled = takeIdleConnection();
+        return client.sendAsync(newRequest(uri), bodyHandler)
+                .whenComplete((response, error) -> {
+                    if (error == null) {
+                        recordExchange(response.version(), pooled);
+                    } else {
+                        failures.increment();
+                    }
+                    permits.release();
+                });
+    }
+
+    public ConnectionStats stats() {
+        return new ConnectionStats(exchanges.sum(), likelyOpened.sum(), likelyReused.sum(), failures.sum());
+    }
+
+    private boolean takeIdleConnection() {
+        int idle;
+        do {
+            idle = idleConnections.get();
+            if (idle == 0) {
+                return false;
+            }
+        } while (!idleConnections.compareAndSet(idle, idle - 1));
+        return true;
+    }
+
+    private void recordExchange(HttpClient.Version version, boolean pooled) {
+        exchanges.increment();
+        if (version == HttpClient.Version.HTTP_2) {
+            if (pooled) {
+                idleConnections.incrementAndGet();
+            }
+            if (http2ConnectionOpen.compareAndSet(false, true)) {
+                likelyOpened.increment();
+            } else {
+                likelyReused.increment();
+            }
+        } else {
+            if (pooled) {
+                likelyReused.increment();
+            } else {
+                likelyOpened.increment();
+            }
+            idleConnections.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.jep;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Reads a {@link Pokemon} out of a PokeAPI response with Jackson's streaming {@link JsonParser}.
+ *
+ * <p>Reading the body into a {@code String} and binding it to a tree allocates the whole document
+ * twice over, and nearly all of it is the {@code moves} array and similar sections that are thrown
+ * away again. The parser here walks the tokens once and materializes only the values that end up
+ * in the record. Every other object or array is skipped token by token, so its strings are never
+ * decoded.</p>
+ *
+ * <p>The same token handler drives both a blocking parser over an {@link InputStream}, for
+ * {@link PokemonHttpClient#send(java.net.URI, PokemonHttpClient.BodyReader)}, and a non-blocking
+ * parser fed with the client's {@link ByteBuffer}s, for {@link #bodySubscriber()}.</p>
+ */
+public final class PokemonParser {
+
+    // The HTTP client owns the body stream: closing the parser must not close it, or the
+    // connection could not be returned to the pool.
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+            .disable(StreamReadFeature.AUTO_CLOSE_SOURCE)
+            .build();
+
+    private PokemonParser() {
+    }
+
+    /**
+     * Parses one Pokemon document from the stream, leaving the stream open.
+     *
+     * @throws com.fasterxml.jackson.core.JsonProcessingException if the stream is not a complete
+     *                                                            Pokemon document
+     * @throws IOException                                        if reading the stream failed
+     */
+    public static Pokemon parse(InputStream in) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            return read(parser);
+        }
+    }
+
+    /**
+     * Parses one Pokemon document held in memory.
+     */
+    public static Pokemon parse(byte[] json) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(json)) {
+            return read(parser);
+        }
+    }
+
+    private static Pokemon read(JsonParser parser) throws IOException {
+        Handler handler = new Handler();
+        JsonToken token;
+        while (!handler.done() && (token = parser.nextToken()) != null) {
+            handler.accept(token, parser);
+        }
+        return handler.result();
+    }
+
+    /**
+     * Returns a subscriber that parses the body incrementally as the client delivers it, without
+     * blocking and without collecting the body first.
+     */
+    public static HttpResponse.BodySubscriber<Pokemon> bodySubscriber() {
+        return new Subscriber();
+    }
+
+    /**
+     * Tracks where in the document the current token is and collects the fields of interest. The
+     * handler is driven one token at a time so it can resume across non-blocking input chunks.
+     */
+    private static final class Handler {
+
+        private enum Scope {ROOT, TYPES, TYPE_SLOT, TYPE, STATS, STAT_SLOT, STAT}
+
+        private final Scope[] scopes = new Scope[8];
+        private int depth;
+        private int skipping;
+        private boolean done;
+        private String field;
+
+        private int id = -1;
+        private String name;
+        private final List<String> types = new ArrayList<>(2);
+        private final List<Pokemon.Stat> stats = new ArrayList<>(6);
+        private String statName;
+        private int baseStat;
+
+        void accept(JsonToken token, JsonParser parser) throws IOException {
+            if (skipping > 0) {
+                if (token.isStructStart()) {
+                    skipping++;
+                } else if (token.isStructEnd()) {
+                    skipping--;
+                }
+                return;
+            }
+            if (depth == 0 && !token.isStructStart()) {
+                return;
+            }
+            switch (token) {
+                case FIELD_NAME -> field = parser.currentName();
+                case START_OBJECT, START_ARRAY -> enter(token);
+                case END_OBJECT, END_ARRAY -> leave();
+                case VALUE_NUMBER_INT -> {
+                    Scope scope = scope();
+                    if (scope == Scope.ROOT && "id".equals(field)) {
+                        id = parser.getIntValue();
+                    } else if (scope == Scope.STAT_SLOT && "base_stat".equals(field)) {
+                        baseStat = parser.getIntValue();
+                    }
+                }
+                case VALUE_STRING -> {
+                    if (!"name".equals(field)) {
+                        return;
+                    }
+                    switch (scope()) {
+                        case ROOT -> name = parser.getText();
+                        case TYPE -> types.add(parser.getText());
+                        case STAT -> statName = parser.getText();
+                        default -> {
+                        }
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private void enter(JsonToken token) {
+            Scope child = depth == 0 ? Scope.ROOT : child(scope(), token == JsonToken.START_ARRAY);
+            if (child == null) {
+                skipping = 1;
+                return;
+            }
+            scopes[depth++] = child;
+            if (child == Scope.STAT_SLOT) {
+                statName = null;
+                baseStat = 0;
+            }
+        }
+
+        private Scope child(Scope parent, boolean array) {
+            return switch (parent) {
+                case ROOT -> array && "types".equals(field) ? Scope.TYPES
+                        : array && "stats".equals(field) ? Scope.STATS : null;
+                case TYPES -> array ? null : Scope.TYPE_SLOT;
+                case TYPE_SLOT -> !array && "type".equals(field) ? Scope.TYPE : null;
+                case STATS -> array ? null : Scope.STAT_SLOT;
+                case STAT_SLOT -> !array && "stat".equals(field) ? Scope.STAT : null;
+                case TYPE, STAT -> null;
+            };
+        }
+
+        private void leave() {
+            Scope left = scopes[--depth];
+            if (left == Scope.STAT_SLOT && statName != null) {
+                stats.add(new Pokemon.Stat(statName, baseStat));
+            } else if (left == Scope.ROOT) {
+                done = true;
+            }
+            field = null;
+        }
+
+        private Scope scope() {
+            return scopes[depth - 1];
+        }
+
+        boolean done() {
+            return done;
+        }
+
+        Pokemon result() throws IOException {
+            if (!done || id < 0 || name == null) {
+                // A document error, not an I/O failure; there is no location worth reporting.
+                throw new JsonParseException(null, "Incomplete Pokemon document");
+            }
+            return new Pokemon(id, name, types, stats);
+        }
+    }
+
+    private static final class Subscriber implements HttpResponse.BodySubscriber<Pokemon> {
+
+        private final CompletableFuture<Pokemon> result = new CompletableFuture<>();
+        private final Handler handler = new Handler();
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private Flow.Subscription subscription;
+
+        Subscriber() {
+            try {
+                this.parser = FACTORY.createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        @Override
+        public CompletionStage<Pokemon> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                // The parser copies any token split across buffers, so a buffer is no longer
+                // referenced once its tokens have been drained.
+                for (ByteBuffer buffer : buffers) {
+                    if (!handler.done()) {
+                        feeder.feedInput(buffer);
+                        drain();
+                    }
+                }
+                subscription.request(1);
+            } catch (IOException | RuntimeException e) {
+                subscription.cancel();
+                fail(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fail(error);
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                feeder.endOfInput();
+                drain();
+                result.complete(handler.result());
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                closeParser();
+            }
+        }
+
+        private void drain() throws IOException {
+            JsonToken token;
+            while (!handler.done() && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+                handler.accept(token, parser);
+            }
+        }
+
+        private void fail(Throwable error) {
+            result.completeExceptionally(error);
+            closeParser();
+        }
+
+        private void closeParser() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // Nothing to release: the parser reads from buffers owned by the client.
+            }
+        }
+    }
+}
@@ -1,29 +1,237 @@
 package com.jep;
 
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.net.URI;
 import java.net.http.HttpResponse;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class PokemonService {
 
-    private static final Logger LOGGER = Logger.getLogger(PokemonService.class.getName());
+    private static final AsyncLog LOG = AsyncLog.getLog(PokemonService.class);
 
-    private static final String API_URL = "http://localhost/api/v2/pokemon/"; //"https://pokeapi.co/api/v2/pokemon/";
+    private static final String DEFAULT_API_URL = "http://localhost/api/v2/pokemon/"; //"https://pokeapi.co/api/v2/pokemon/";
 
-    public static void fetchPokemon(int pokemonId) {
-        try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(java.net.URI.create(API_URL + pokemonId))
-                    .build();
+    private static volatile String apiUrl = System.getProperty("pokemon.api.url", DEFAULT_API_URL);
+
+    private static final Optional<AdaptiveConcurrencyLimiter> LIMITER = AdaptiveConcurrencyLimiter.fromSystemProperties(
+            PokemonHttpClient.shared().settings().maxConnections());
+
+    private static final Optional<PokemonCache<Pokemon>> CACHE = PokemonCache.fromSystemProperties();
+
+    private static final Optional<RequestHedger> HEDGER = RequestHedger.fromSystemProperties();
+
+    /**
+     * The API answered, but not with a Pokemon: the status was not 200, or the body was not a
+     * Pokemon document.
+     */
+    public static final class UnexpectedResponseException extends IOException {
+
+        private final int statusCode;
+
+        UnexpectedResponseException(String message, int statusCode, Throwable cause) {
+            super(message, cause);
+            this.statusCode = statusCode;
+        }
+
+        public int statusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Whether the API turned the request away because it is overloaded, with HTTP 503 or 429.
+         */
+        public boolean overloaded() {
+            return statusCode == 503 || statusCode == 429;
+        }
+    }
+
+    /**
+     * Points every subsequent fetch at another PokeAPI instance, such as an embedded
+     * {@link PokeApiStubServer}. The URL must end with a slash.
+     */
+    public static void setApiUrl(String url) {
+        apiUrl = url;
+    }
+
+    public static String apiUrl() {
+        return apiUrl;
+    }
+
+    /**
+     * The adaptive limiter in front of blocking fetches, if one was enabled with
+     * {@code -Dpokemon.limiter=aimd|vegas}.
+     */
+    public static Optional<AdaptiveConcurrencyLimiter> limiter() {
+        return LIMITER;
+    }
+
+    /**
+     * The response cache in front of blocking fetches, if one was enabled with
+     * {@code -Dpokemon.cache.maxEntries=<n>}.
+     */
+    public static Optional<PokemonCache<Pokemon>> cache() {
+        return CACHE;
+    }
+
+    /**
+     * The hedging and retry policy of blocking fetches, if one was enabled with
+     * {@code -Dpokemon.hedge.percentile=<p>} or {@code -Dpokemon.retry.maxAttempts=<n>}.
+     */
+    public static Optional<RequestHedger> hedger() {
+        return HEDGER;
+    }
+
+    /**
+     * Logs the shared client's connection counters and the limiter, cache and hedging statistics,
+     * if enabled.
+     */
+    public static void logStats(Logger logger) {
+        logger.info(String.format("Connections: %s", PokemonHttpClient.shared().stats()));
+        LIMITER.ifPresent(limiter -> logger.info(String.format("Limiter: %s", limiter.stats())));
+        CACHE.ifPresent(cache -> logger.info(String.format("Cache: %s", cache.stats())));
+        HEDGER.ifPresent(hedger -> logger.info(String.format("Hedging: %s", hedger.stats())));
+    }
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Fetches a Pokemon, blocking the calling thread until the response has been read.
+     *
+     * @return {@code true} if the Pokemon was fetched, {@code false} if the request failed
+     */
+    public static boolean fetchPokemon(int pokemonId) {
+        try {
+            Pokemon pokemon = loadPokemon(pokemonId);
 
-            LOGGER.info(String.format("Fetched Pokemon %s: %s", pokemonId, response.body()));
+            LOG.log(Level.INFO, "Fetched Pokemon {}: {}", pokemonId, pokemon);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.log(Level.FINE, "Fetch of Pokemon {} cancelled", pokemonId);
+            return false;
+        } catch (RejectedExecutionException e) {
+            LOG.log(Level.WARNING, "Fetch of Pokemon {} rejected: {}", pokemonId, e.getMessage());
+            return false;
         } catch (Exception e) {
-            LOGGER.severe(String.format("Error fetching Pokemon: %s", pokemonId));
-            e.printStackTrace();
+            LOG.log(Level.SEVERE, "Error fetching Pokemon {}: {}", pokemonId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Fetches and parses a Pokemon, reporting failures as exceptions so callers such as
+     * {@link StructuredPokemonFetcher} can react to them.
+     *
+     * <p>The body is parsed while it streams in, see {@link PokemonParser}. Interrupting the
+     * calling thread cancels the in-flight HTTP exchange. When a {@linkplain #cache() cache} is
+     * enabled, repeated and concurrent lookups of the same id are answered from it. When a
+     * {@linkplain #hedger() hedger} is enabled, a slow request is raced against a duplicate and a
+     * failed one is retried, within its retry budget. When a {@linkplain #limiter() limiter} is
+     * enabled every attempt first waits for one of its permits, and its latency, from the moment
+     * the client lets it through, and outcome are fed back into the limit.</p>
+     *
+     * @throws IOException                if the request failed, or an
+     *                                    {@link UnexpectedResponseException} if the API did not
+     *                                    answer with a Pokemon
+     * @throws InterruptedException       if the calling thread was interrupted while waiting
+     * @throws RejectedExecutionException if the limiter turned the request away
+     */
+    public static Pokemon loadPokemon(int pokemonId) throws IOException, InterruptedException {
+        if (CACHE.isPresent()) {
+            return CACHE.get().get(pokemonId, PokemonService::fetchHedged);
+        }
+        return fetchHedged(pokemonId);
+    }
+
+    private static Pokemon fetchHedged(int pokemonId) throws IOException, InterruptedException {
+        if (HEDGER.isEmpty()) {
+            return fetchLimited(pokemonId);
+        }
+        return HEDGER.get().call(pokemonId, PokemonService::fetchLimited);
+    }
+
+    private static Pokemon fetchLimited(int pokemonId) throws IOException, InterruptedException {
+        if (LIMITER.isEmpty()) {
+            return send(pokemonId, () -> {
+            });
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = LIMITER.get().acquire();
+        try {
+            Pokemon pokemon = send(pokemonId, permit::sending);
+            permit.success();
+            return pokemon;
+        } catch (IOException e) {
+            release(permit, e);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            permit.ignore();
+            throw e;
+        }
+    }
+
+    /**
+     * Reports a failed request to the limiter. Only timeouts, connection failures and overload
+     * statuses say the backend is at capacity; any other answer is as good a latency sample as a
+     * success.
+     */
+    static void release(AdaptiveConcurrencyLimiter.Permit permit, IOException failure) {
+        if (failure instanceof UnexpectedResponseException response && !response.overloaded()) {
+            permit.success();
+        } else {
+            permit.dropped();
+        }
+    }
+
+    private static Pokemon send(int pokemonId, Runnable onPermit) throws IOException, InterruptedException {
+        return PokemonHttpClient.shared().send(URI.create(apiUrl + pokemonId), (status, body) -> {
+            if (status != 200) {
+                throw new UnexpectedResponseException(
+                        String.format("Error fetching Pokemon %s: HTTP %d", pokemonId, status), status, null);
+            }
+            try {
+                return PokemonParser.parse(body);
+            } catch (JsonProcessingException e) {
+                throw new UnexpectedResponseException(
+                        String.format("Error parsing Pokemon %s: %s", pokemonId, e.getMessage()), status, e);
+            }
+        }, onPermit);
+    }
+
+    /**
+     * Fetches a Pokemon without blocking; the body is parsed chunk by chunk by a non-blocking
+     * {@linkplain PokemonParser#bodySubscriber() subscriber} and the returned future completes on
+     * one of the client's threads.
+     *
+     * @return a future that completes with {@code true} if the Pokemon was fetched
+     */
+    public static CompletableFuture<Boolean> fetchPokemonAsync(int pokemonId) {
+        return PokemonHttpClient.shared()
+                .sendAsync(URI.create(apiUrl + pokemonId), PokemonService::bodySubscriber)
+                .handle((response, error) -> {
+                    if (error != null) {
+                        LOG.log(Level.SEVERE, "Error fetching Pokemon: {} ({})", pokemonId, error);
+                        return false;
+                    }
+                    return handleResponse(pokemonId, response);
+                });
+    }
+
+    private static HttpResponse.BodySubscriber<Pokemon> bodySubscriber(HttpResponse.ResponseInfo info) {
+        return info.statusCode() == 200
+                ? PokemonParser.bodySubscriber()
+                : HttpResponse.BodySubscribers.replacing(null);
+    }
+
+    private static boolean handleResponse(int pokemonId, HttpResponse<Pokemon> response) {
+        if (response.statusCode() != 200) {
+            LOG.log(Level.WARNING, "Error fetching Pokemon {}: HTTP {}", pokemonId, response.statusCode());
+            return false;
         }
+        LOG.log(Level.INFO, "Fetched Pokemon {}: {}", pokemonId, response.body());
+        return true;
     }
 }
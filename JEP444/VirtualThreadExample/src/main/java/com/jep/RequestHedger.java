@@ -0,0 +1,395 @@
+package com.jep;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hedges slow requests and retries failed ones, both paid for from one global retry budget.
+ *
+ * <p>A few slow responses set the tail latency of a whole batch. When an attempt has not
+ * completed after the {@code hedgePercentile} latency of recent attempts, the hedger fires a
+ * duplicate, takes whichever answers first and interrupts the other, which cancels its HTTP
+ * exchange. Attempts run on virtual threads, so a duplicate costs a few hundred bytes of stack
+ * rather than a pool thread. A failed attempt, one that threw an {@link IOException}, is retried
+ * after a backoff drawn uniformly between zero and an exponentially growing cap ("full jitter"),
+ * which keeps a burst of failures from retrying in lockstep.</p>
+ *
+ * <p>Hedges and retries add load exactly when the backend may be struggling, so each one must
+ * take a token from a {@link RetryBudget}: every call deposits {@code budgetRatio} of a token and
+ * a trickle of {@code budgetMinPerSecond} tokens keeps low-traffic callers able to retry. When the
+ * budget is empty the hedge is skipped or the failure is returned as is, and extra load stays
+ * below {@code budgetRatio} of the traffic however bad things get.</p>
+ *
+ * <p>The hedge delay follows the latencies of successful attempts, recomputed from each
+ * {@value #MIN_SAMPLES} new samples. A primary that a duplicate beats is recorded with the time
+ * it had run when the duplicate answered, a lower bound of its latency, so the slow attempts that
+ * hedging cuts short still hold the percentile up. Other cancelled attempts are not recorded:
+ * a duplicate that loses was started late and only says how long it had left.</p>
+ */
+public final class RequestHedger {
+
+    private static final int MIN_SAMPLES = 200;
+
+    private static final int REFRESH_EVERY = 50;
+
+    private final Settings settings;
+    private final RetryBudget budget;
+
+    private final Recorder latencies = new Recorder(2);
+    private final AtomicLong recorded = new AtomicLong();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final Histogram window = new Histogram(2);
+    private Histogram interval;
+    private volatile long hedgeDelayNanos;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder budgetDenials = new LongAdder();
+
+    /**
+     * Makes one attempt at a request.
+     */
+    @FunctionalInterface
+    public interface Attempt<V> {
+        V call(int pokemonId) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Tunables of the hedger.
+     *
+     * @param hedgePercentile    latency percentile after which a duplicate is sent, or {@code 0}
+     *                           to never hedge
+     * @param initialHedgeDelay  hedge delay used until enough latencies have been seen
+     * @param minHedgeDelay      lower bound of the hedge delay
+     * @param maxAttempts        attempts per call including the first, not counting hedges
+     * @param backoff            cap of the first retry's jittered backoff, doubled for each later
+     *                           one
+     * @param maxBackoff         upper bound of the backoff cap
+     * @param budgetRatio        tokens deposited per call; each hedge or retry costs one
+     * @param budgetMinPerSecond tokens deposited per second regardless of traffic
+     */
+    public record Settings(double hedgePercentile, Duration initialHedgeDelay, Duration minHedgeDelay,
+                           int maxAttempts, Duration backoff, Duration maxBackoff,
+                           double budgetRatio, int budgetMinPerSecond) {
+
+        public Settings {
+            if (hedgePercentile < 0 || hedgePercentile >= 100) {
+                throw new IllegalArgumentException("hedgePercentile must be in [0, 100): " + hedgePercentile);
+            }
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+            }
+            if (budgetRatio < 0 || budgetMinPerSecond < 0) {
+                throw new IllegalArgumentException("Retry budget must not be negative: "
+                        + budgetRatio + ", " + budgetMinPerSecond);
+            }
+        }
+
+        boolean hedging() {
+            return hedgePercentile > 0;
+        }
+    }
+
+    /**
+     * Snapshot of the hedger's counters.
+     *
+     * @param calls         calls made through the hedger
+     * @param hedges        duplicates sent because an attempt was slow
+     * @param hedgeWins     calls answered by a duplicate rather than the attempt it hedged
+     * @param retries       attempts made after a failure
+     * @param budgetDenials hedges and retries skipped because the budget was empty
+     * @param hedgeDelay    current hedge delay
+     */
+    public record HedgeStats(long calls, long hedges, long hedgeWins, long retries, long budgetDenials,
+                             Duration hedgeDelay) {
+
+        public double hedgeRate() {
+            return calls == 0 ? 0 : (double) hedges / calls;
+        }
+
+        public double retryRate() {
+            return calls == 0 ? 0 : (double) retries / calls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls=%d, hedges=%d (%.1f%%, %d won), retries=%d (%.1f%%), budget denials=%d, "
+                            + "hedge delay=%.2fms",
+                    calls, hedges, hedgeRate() * 100, hedgeWins, retries, retryRate() * 100, budgetDenials,
+                    hedgeDelay.toNanos() / 1e6);
+        }
+    }
+
+    public RequestHedger(Settings settings) {
+        this.settings = settings;
+        this.budget = new RetryBudget(settings.budgetRatio(), settings.budgetMinPerSecond());
+        this.hedgeDelayNanos = settings.initialHedgeDelay().toNanos();
+    }
+
+    /**
+     * Builds the hedger enabled with {@code -Dpokemon.hedge.percentile=<p>} (for example
+     * {@code 95}) or {@code -Dpokemon.retry.maxAttempts=<n>} above 1, or nothing if neither is set.
+     *
+     * <p>Further tunables: {@code pokemon.hedge.initialDelayMs} (50),
+     * {@code pokemon.hedge.minDelayMs} (1), {@code pokemon.retry.backoffMs} (20),
+     * {@code pokemon.retry.maxBackoffMs} (1000), {@code pokemon.retry.budgetRatio} (0.1) and
+     * {@code pokemon.retry.budgetMinPerSecond} (10).</p>
+     */
+    public static Optional<RequestHedger> fromSystemProperties() {
+        double percentile = Double.parseDouble(System.getProperty("pokemon.hedge.percentile", "0"));
+        int maxAttempts = Integer.getInteger("pokemon.retry.maxAttempts", 1);
+        if (percentile <= 0 && maxAttempts <= 1) {
+            return Optional.empty();
+        }
+        return Optional.of(new RequestHedger(new Settings(
+                percentile,
+                Duration.ofMillis(Long.getLong("pokemon.hedge.initialDelayMs", 50)),
+                Duration.ofMillis(Long.getLong("pokemon.hedge.minDelayMs", 1)),
+                maxAttempts,
+                Duration.ofMillis(Long.getLong("pokemon.retry.backoffMs", 20)),
+                Duration.ofMillis(Long.getLong("pokemon.retry.maxBackoffMs", 1_000)),
+                Double.parseDouble(System.getProperty("pokemon.retry.budgetRatio", "0.1")),
+                Integer.getInteger("pokemon.retry.budgetMinPerSecond", 10))));
+    }
+
+    /**
+     * Calls {@code attempt} until one succeeds, hedging and retrying as configured.
+     *
+     * <p>Without hedging the attempts run on the calling thread. With it they run on virtual
+     * threads while the caller waits; interrupting the caller interrupts every attempt.</p>
+     *
+     * @throws IOException          the last failure, with earlier ones suppressed, once no more
+     *                              attempts are allowed or the budget is empty
+     * @throws InterruptedException if the calling thread was interrupted
+     */
+    public <V> V call(int pokemonId, Attempt<V> attempt) throws IOException, InterruptedException {
+        calls.increment();
+        budget.deposit();
+        return settings.hedging() ? callHedged(pokemonId, attempt) : callInline(pokemonId, attempt);
+    }
+
+    public HedgeStats stats() {
+        return new HedgeStats(calls.sum(), hedges.sum(), hedgeWins.sum(), retries.sum(), budgetDenials.sum(),
+                Duration.ofNanos(hedgeDelayNanos));
+    }
+
+    private <V> V callInline(int pokemonId, Attempt<V> attempt) throws IOException, InterruptedException {
+        IOException failure = null;
+        for (int attempts = 1; ; attempts++) {
+            try {
+                long begin = System.nanoTime();
+                V value = attempt.call(pokemonId);
+                record(System.nanoTime() - begin);
+                return value;
+            } catch (IOException e) {
+                failure = chain(failure, e);
+            }
+            if (!mayRetry(attempts)) {
+                throw failure;
+            }
+            backOff(attempts);
+            retries.increment();
+        }
+    }
+
+    private <V> V callHedged(int pokemonId, Attempt<V> attempt) throws IOException, InterruptedException {
+        BlockingQueue<Outcome<V>> outcomes = new LinkedBlockingQueue<>();
+        List<Thread> running = new ArrayList<>(2);
+        IOException failure = null;
+        int attempts = 1;
+        boolean hedged = false;
+        try {
+            Thread primary = start(pokemonId, attempt, outcomes);
+            running.add(primary);
+            long primaryBegin = System.nanoTime();
+            long hedgeAt = primaryBegin + hedgeDelayNanos;
+            while (true) {
+                Outcome<V> outcome = hedged
+                        ? outcomes.take()
+                        : outcomes.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (outcome == null) {
+                    hedged = true;
+                    if (budget.tryWithdraw()) {
+                        hedges.increment();
+                        running.add(start(pokemonId, attempt, outcomes));
+                    } else {
+                        budgetDenials.increment();
+                    }
+                    continue;
+                }
+                running.remove(outcome.thread());
+                if (outcome.failure() == null) {
+                    if (outcome.thread() != primary) {
+                        hedgeWins.increment();
+                        if (running.contains(primary)) {
+                            // The primary is cancelled below; it would take at least this long.
+                            record(System.nanoTime() - primaryBegin);
+                        }
+                    }
+                    return outcome.value();
+                }
+                if (outcome.failure() instanceof IOException e) {
+                    failure = chain(failure, e);
+                } else if (running.isEmpty()) {
+                    throw propagate(outcome.failure());
+                }
+                // Another attempt may still succeed; a rejected hedge must not abandon its primary.
+                if (!running.isEmpty()) {
+                    continue;
+                }
+                if (!mayRetry(attempts)) {
+                    throw failure;
+                }
+                backOff(attempts++);
+                retries.increment();
+                // The retry may be hedged again, from a fresh deadline.
+                primary = start(pokemonId, attempt, outcomes);
+                running.add(primary);
+                primaryBegin = System.nanoTime();
+                hedgeAt = primaryBegin + hedgeDelayNanos;
+                hedged = false;
+            }
+        } finally {
+            // Losing attempts see an interrupt, which cancels their in-flight exchanges.
+            running.forEach(Thread::interrupt);
+        }
+    }
+
+    private record Outcome<V>(Thread thread, V value, Exception failure) {
+    }
+
+    private <V> Thread start(int pokemonId, Attempt<V> attempt, BlockingQueue<Outcome<V>> outcomes) {
+        return Thread.ofVirtual().start(() -> {
+            long begin = System.nanoTime();
+            try {
+                V value = attempt.call(pokemonId);
+                record(System.nanoTime() - begin);
+                outcomes.add(new Outcome<>(Thread.currentThread(), value, null));
+            } catch (Exception e) {
+                outcomes.add(new Outcome<>(Thread.currentThread(), null, e));
+            }
+        });
+    }
+
+    private boolean mayRetry(int attempts) {
+        if (attempts >= settings.maxAttempts()) {
+            return false;
+        }
+        if (!budget.tryWithdraw()) {
+            budgetDenials.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void backOff(int attempts) throws InterruptedException {
+        long cap = Math.min(settings.maxBackoff().toNanos(),
+                settings.backoff().toNanos() << Math.min(attempts - 1, 20));
+        if (cap > 0) {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        }
+    }
+
+    private static IOException chain(IOException earlier, IOException latest) {
+        if (earlier != null) {
+            latest.addSuppressed(earlier);
+        }
+        return latest;
+    }
+
+    private static RuntimeException propagate(Exception failure) throws InterruptedException {
+        if (failure instanceof InterruptedException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            return e;
+        }
+        return new IllegalStateException(failure);
+    }
+
+    private void record(long latencyNanos) {
+        latencies.recordValue(latencyNanos);
+        if (!settings.hedging() || recorded.incrementAndGet() % REFRESH_EVERY != 0 || !refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            interval = latencies.getIntervalHistogram(interval);
+            window.add(interval);
+            if (window.getTotalCount() >= MIN_SAMPLES) {
+                hedgeDelayNanos = Math.max(settings.minHedgeDelay().toNanos(),
+                        window.getValueAtPercentile(settings.hedgePercentile()));
+                window.reset();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Token bucket shared by every call. Balances are kept in thousandths of a token so that
+     * fractional deposits need no floating point on the hot path.
+     */
+    static final class RetryBudget {
+
+        private static final long TOKEN = 1_000;
+
+        private final long deposit;
+        private final long perSecond;
+        private final long capacity;
+        private final AtomicLong balance;
+        private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+
+        RetryBudget(double ratio, int minPerSecond) {
+            this.deposit = Math.round(ratio * TOKEN);
+            this.perSecond = minPerSecond * TOKEN;
+            // Enough for a burst of ten seconds' trickle, or a hundred tokens, whichever is more.
+            this.capacity = Math.max(10 * perSecond, 100 * TOKEN);
+            this.balance = new AtomicLong(perSecond);
+        }
+
+        void deposit() {
+            add(deposit);
+        }
+
+        boolean tryWithdraw() {
+            refill();
+            long current;
+            do {
+                current = balance.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+
+        private void refill() {
+            long last = lastRefill.get();
+            long now = System.nanoTime();
+            long elapsed = Math.min(now - last, TimeUnit.SECONDS.toNanos(60));
+            long earned = elapsed * perSecond / TimeUnit.SECONDS.toNanos(1);
+            if (earned > 0 && lastRefill.compareAndSet(last, now)) {
+                add(earned);
+            }
+        }
+
+        private void add(long amount) {
+            balance.accumulateAndGet(amount, (current, added) -> Math.min(capacity, current + added));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.jep;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Subtask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static com.jep.Constants.DEADLINE;
+import static com.jep.Constants.NUM_REQUESTS;
+import static com.jep.PokemonService.loadPokemon;
+
+/**
+ * Fetches Pokemon as one unit of work using structured concurrency (JEP 453, a preview API in
+ * Java 21; run with {@code --enable-preview}).
+ *
+ * <p>Every request is forked as a subtask of a {@link StructuredTaskScope}, and the whole batch
+ * shares one deadline. When the scope shuts down, because a policy is satisfied, a request failed
+ * or the deadline passed, every unfinished subtask is interrupted. That cancels its in-flight HTTP
+ * exchange, or its wait for a connection, so abandoned work stops right away instead of
+ * running to completion in the background.</p>
+ *
+ * <h2>Policies</h2>
+ * <ul>
+ *   <li>{@link #fetchAllOrFail}: shutdown-on-failure, the batch is only useful if every request
+ *       succeeds</li>
+ *   <li>{@link #fetchFirst}: shutdown-on-first-N, the batch is done as soon as enough requests
+ *       succeed</li>
+ * </ul>
+ */
+public class StructuredPokemonFetcher {
+
+    private static final Logger LOGGER = Logger.getLogger(StructuredPokemonFetcher.class.getName());
+
+    /**
+     * Outcome of one structured batch.
+     *
+     * @param policy            the shutdown policy of the scope
+     * @param forked            number of subtasks forked
+     * @param succeeded         subtasks that returned a Pokemon
+     * @param failed            subtasks that failed before the scope shut down
+     * @param cancelled         subtasks that were still running, or had not started, at shutdown
+     * @param deadlineExpired   whether the batch was abandoned because the deadline passed
+     * @param durationNanos     wall time of the whole batch
+     * @param cancellationNanos time between shutdown and the last subtask thread finishing
+     */
+    public record ScopeReport(String policy, int forked, int succeeded, int failed, int cancelled,
+                              boolean deadlineExpired, long durationNanos, long cancellationNanos) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%-10s forked=%d succeeded=%d failed=%d cancelled=%d deadline expired=%b time=%dms "
+                            + "cancellation=%.2fms",
+                    policy, forked, succeeded, failed, cancelled, deadlineExpired,
+                    TimeUnit.NANOSECONDS.toMillis(durationNanos), cancellationNanos / 1e6);
+        }
+    }
+
+    /**
+     * A scope that shuts down once {@code required} subtasks have succeeded, or as soon as so many
+     * have failed that {@code required} successes are no longer possible.
+     */
+    static final class ShutdownOnFirstN<T> extends StructuredTaskScope<T> {
+
+        private final int required;
+        private final int tolerableFailures;
+        private final AtomicInteger successes = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        ShutdownOnFirstN(int required, int tolerableFailures) {
+            super("first-" + required, Thread.ofVirtual().factory());
+            this.required = required;
+            this.tolerableFailures = tolerableFailures;
+        }
+
+        @Override
+        protected void handleComplete(Subtask<? extends T> subtask) {
+            switch (subtask.state()) {
+                case SUCCESS -> {
+                    if (successes.incrementAndGet() == required) {
+                        shutdown();
+                    }
+                }
+                case FAILED -> {
+                    if (failures.incrementAndGet() > tolerableFailures) {
+                        shutdown();
+                    }
+                }
+                case UNAVAILABLE -> throw new IllegalStateException("Subtask not completed: " + subtask);
+            }
+        }
+
+        boolean satisfied() {
+            return successes.get() >= required;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LOGGER.info(fetchAllOrFail(NUM_REQUESTS, Instant.now().plus(DEADLINE)).toString());
+        LOGGER.info(fetchFirst(NUM_REQUESTS / 2, NUM_REQUESTS, Instant.now().plus(DEADLINE)).toString());
+        PokemonService.logStats(LOGGER);
+    }
+
+    /**
+     * Fetches Pokemon {@code 1..numRequests}, giving up on the whole batch as soon as one request
+     * fails or the deadline passes.
+     */
+    public static ScopeReport fetchAllOrFail(int numRequests, Instant deadline) throws InterruptedException {
+        long start = System.nanoTime();
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            List<Subtask<Pokemon>> subtasks = forkAll(scope, numRequests);
+            boolean expired = joinUntil(scope, deadline);
+            long cancellation = close(scope);
+
+            scope.exception().ifPresent(e -> LOGGER.warning("Batch abandoned: " + e));
+            return report("fail-fast", subtasks, expired, start, cancellation);
+        }
+    }
+
+    /**
+     * Fetches Pokemon {@code 1..numRequests} until {@code required} of them have arrived,
+     * cancelling the rest, or until the deadline passes.
+     */
+    public static ScopeReport fetchFirst(int required, int numRequests, Instant deadline) throws InterruptedException {
+        long start = System.nanoTime();
+        try (var scope = new ShutdownOnFirstN<Pokemon>(required, numRequests - required)) {
+            List<Subtask<Pokemon>> subtasks = forkAll(scope, numRequests);
+            boolean expired = joinUntil(scope, deadline);
+            long cancellation = close(scope);
+
+            if (!scope.satisfied()) {
+                LOGGER.warning(String.format("Batch abandoned before %d Pokemon arrived", required));
+            }
+            return report("first-" + required, subtasks, expired, start, cancellation);
+        }
+    }
+
+    private static List<Subtask<Pokemon>> forkAll(StructuredTaskScope<? super Pokemon> scope, int numRequests) {
+        List<Subtask<Pokemon>> subtasks = new ArrayList<>(numRequests);
+        for (int i = 1; i <= numRequests; i++) {
+            final int pokemonId = i;
+            subtasks.add(scope.fork(() -> loadPokemon(pokemonId)));
+        }
+        return subtasks;
+    }
+
+    /**
+     * Joins the scope, shutting it down if the deadline passes first.
+     *
+     * @return {@code true} if the deadline expired
+     */
+    private static boolean joinUntil(StructuredTaskScope<?> scope, Instant deadline) throws InterruptedException {
+        try {
+            scope.joinUntil(deadline);
+            return false;
+        } catch (TimeoutException e) {
+            scope.shutdown();
+            scope.join();
+            return true;
+        }
+    }
+
+    /**
+     * Closes the scope, which interrupts every unfinished subtask and waits for its thread.
+     *
+     * @return how long the cancelled subtasks took to stop
+     */
+    private static long close(StructuredTaskScope<?> scope) {
+        long start = System.nanoTime();
+        scope.close();
+        return System.nanoTime() - start;
+    }
+
+    private static ScopeReport report(String policy, List<Subtask<Pokemon>> subtasks, boolean expired,
+                                      long startNanos, long cancellationNanos) {
+        int succeeded = 0;
+        int failed = 0;
+        int cancelled = 0;
+        for (Subtask<Pokemon> subtask : subtasks) {
+            switch (subtask.state()) {
+                case SUCCESS -> succeeded++;
+                case FAILED -> failed++;
+                case UNAVAILABLE -> cancelled++;
+            }
+        }
+        return new ScopeReport(policy, subtasks.size(), succeeded, failed, cancelled, expired,
+                System.nanoTime() - startNanos, cancellationNanos);
+    }
+}
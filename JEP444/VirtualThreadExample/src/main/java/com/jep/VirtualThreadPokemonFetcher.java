@@ -2,6 +2,7 @@ package com.jep;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -14,15 +15,31 @@ public class VirtualThreadPokemonFetcher {
 
     private static final Logger LOGGER = Logger.getLogger(VirtualThreadPokemonFetcher.class.getName());
 
-    public static void main( String[] args ) {
-        long startTime = System.currentTimeMillis();
+    public static void main( String[] args ) throws InterruptedException {
+        Optional<CarrierDiagnostics> diagnostics = CarrierDiagnostics.fromSystemProperties();
+        FetchReport report = run(NUM_REQUESTS);
+
+        LOGGER.info(String.format("Total execution time: %d milliseconds", report.durationNanos() / 1_000_000));
+        LOGGER.info(report.toString());
+        diagnostics.ifPresent(d -> LOGGER.info(d.stop().toString()));
+        PokemonService.logStats(LOGGER);
+    }
+
+    /**
+     * Fetches Pokemon {@code 1..numRequests}, one virtual thread per request.
+     */
+    public static FetchReport run(int numRequests) {
+        FetchRecorder recorder = FetchRecorder.start("virtual", numRequests);
 
         try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
             List<Future<?>> futures = new ArrayList<>();
 
-            for (int i = 1; i <= NUM_REQUESTS; i++) {
+            for (int i = 1; i <= numRequests; i++) {
                 final int pokemonId = i;
-                futures.add(executorService.submit(() -> fetchPokemon(pokemonId)));
+                futures.add(executorService.submit(() -> {
+                    long begin = recorder.begin();
+                    recorder.end(pokemonId, begin, fetchPokemon(pokemonId));
+                }));
             }
 
             for (Future<?> future: futures) {
@@ -34,8 +51,6 @@ public class VirtualThreadPokemonFetcher {
             }
         }
 
-        long endTime = System.currentTimeMillis();
-        long durationTime = endTime - startTime;
-        LOGGER.info(String.format("Total execution time: %d milliseconds", durationTime));
+        return recorder.finish();
     }
 }
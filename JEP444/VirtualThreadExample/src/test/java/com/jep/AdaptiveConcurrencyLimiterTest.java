@@ -0,0 +1,145 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AdaptiveConcurrencyLimiterTest extends TestCase {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public void testAimdGrowsWhileUsedAndBacksOff() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new LimitAlgorithm.Aimd(4, 1, 6, 0.5, Duration.ofSeconds(10)), 0, Duration.ZERO);
+
+        // A limit that is barely used does not grow.
+        limiter.acquire().success();
+        assertEquals(4, limiter.limit());
+
+        for (int round = 0; round < 5; round++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(limiter, limiter.limit());
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+        }
+        assertEquals("capped at max", 6, limiter.limit());
+
+        limiter.acquire().dropped();
+        assertEquals(3, limiter.limit());
+        limiter.acquire().dropped();
+        limiter.acquire().dropped();
+        assertEquals("floored at min", 1, limiter.limit());
+    }
+
+    public void testRejectsBeyondTheLimitAndAdmitsWhenItGrows() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new LimitAlgorithm.Aimd(1, 1, 10, 0.5, Duration.ofSeconds(10)), 1, Duration.ofSeconds(10));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+
+        AdaptiveConcurrencyLimiter.Permit[] queued = new AdaptiveConcurrencyLimiter.Permit[1];
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                queued[0] = limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        while (limiter.stats().queueDepth() == 0) {
+            Thread.sleep(1);
+        }
+        try {
+            limiter.acquire();
+            fail("queue of one should be full");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        first.success();
+        waiter.join(10_000);
+        assertNotNull(queued[0]);
+        assertEquals(2, limiter.limit());
+        assertEquals(1, limiter.stats().rejections());
+        queued[0].ignore();
+        assertEquals(0, limiter.stats().inFlight());
+    }
+
+    public void testLatencyIsMeasuredFromSending() throws InterruptedException {
+        LimitAlgorithm.Aimd algorithm = new LimitAlgorithm.Aimd(2, 1, 10, 0.5, Duration.ofMillis(50));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(algorithm, 0, Duration.ZERO);
+
+        // Time spent queueing below the limiter before sending is not backend latency.
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+        Thread.sleep(100);
+        permit.sending();
+        permit.success();
+        assertEquals(3, limiter.limit());
+
+        permit = limiter.acquire();
+        Thread.sleep(100);
+        permit.success();
+        assertEquals("slower than the timeout", 1, limiter.limit());
+    }
+
+    public void testVegasFollowsQueueing() {
+        LimitAlgorithm.Vegas vegas = new LimitAlgorithm.Vegas(20, 5, 50);
+
+        // No queueing: grows quickly, up to max.
+        int limit = vegas.update(10 * MILLIS, 20, false);
+        assertTrue("limit=" + limit, limit > 20);
+        for (int i = 0; i < 10; i++) {
+            limit = vegas.update(10 * MILLIS, limit, false);
+        }
+        assertEquals(50, limit);
+
+        // Latency well above the no-load latency means requests queue at the server.
+        int before = limit;
+        limit = vegas.update(40 * MILLIS, limit, false);
+        assertTrue("limit=" + limit, limit < before);
+
+        // An underused limit is left alone whatever the latency.
+        assertEquals(limit, vegas.update(40 * MILLIS, 1, false));
+
+        before = limit;
+        assertTrue(vegas.update(10 * MILLIS, 1, true) < before);
+    }
+
+    public void testOnlyOverloadShrinksTheLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new LimitAlgorithm.Aimd(8, 1, 10, 0.5, Duration.ofSeconds(10)), 0, Duration.ZERO);
+
+        PokemonService.release(limiter.acquire(), new PokemonService.UnexpectedResponseException("HTTP 404", 404, null));
+        PokemonService.release(limiter.acquire(), new PokemonService.UnexpectedResponseException("bad body", 200, null));
+        assertEquals("the API answered", 8, limiter.limit());
+
+        PokemonService.release(limiter.acquire(), new PokemonService.UnexpectedResponseException("HTTP 503", 503, null));
+        assertEquals(4, limiter.limit());
+        PokemonService.release(limiter.acquire(), new PokemonService.UnexpectedResponseException("HTTP 429", 429, null));
+        assertEquals(2, limiter.limit());
+        PokemonService.release(limiter.acquire(), new HttpTimeoutException("request timed out"));
+        assertEquals(1, limiter.limit());
+        assertEquals(0, limiter.stats().inFlight());
+    }
+
+    public void testLimitNeverExceedsTheCeiling() {
+        for (String name : new String[]{"aimd", "vegas"}) {
+            LimitAlgorithm algorithm = LimitAlgorithm.fromSystemProperties(name, 8);
+            assertEquals(name, 8, algorithm.initialLimit());
+            int limit = algorithm.initialLimit();
+            for (int i = 0; i < 100; i++) {
+                limit = algorithm.update(MILLIS, limit, false);
+            }
+            assertEquals(name, 8, limit);
+        }
+    }
+
+    private static List<AdaptiveConcurrencyLimiter.Permit> acquire(AdaptiveConcurrencyLimiter limiter, int count)
+            throws InterruptedException {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.acquire());
+        }
+        return permits;
+    }
+}
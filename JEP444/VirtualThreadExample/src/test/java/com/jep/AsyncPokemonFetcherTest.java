@@ -0,0 +1,42 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class AsyncPokemonFetcherTest extends TestCase {
+
+    // Held so the level is not lost when the logger is collected.
+    private static final Logger SERVICE_LOGGER = Logger.getLogger(PokemonService.class.getName());
+
+    /**
+     * With more lanes than the client has connection permits, every request of the extra lane is
+     * rejected synchronously; the lane must loop through them without growing the stack.
+     */
+    public void testSynchronousCompletionsDoNotNest() throws Exception {
+        Level level = SERVICE_LOGGER.getLevel();
+        SERVICE_LOGGER.setLevel(Level.OFF);
+        String apiUrl = PokemonService.apiUrl();
+        PokeApiStubServer.Settings settings = new PokeApiStubServer.Settings(0,
+                new LatencyProfile.Fixed(Duration.ofSeconds(2)), 256, 0, 1024);
+        try (PokeApiStubServer stub = PokeApiStubServer.start(settings)) {
+            PokemonService.setApiUrl(stub.baseUrl());
+            int window = PokemonHttpClient.shared().settings().maxConnections() + 1;
+            int requests = 200_000;
+
+            // A lane that overflows its stack never completes, so bound the wait.
+            FetchReport report = CompletableFuture.supplyAsync(() -> AsyncPokemonFetcher.run(requests, window))
+                    .get(60, TimeUnit.SECONDS);
+
+            assertEquals(requests, report.requests());
+            assertTrue("failures=" + report.failures(), report.failures() >= requests - 2 * window);
+        } finally {
+            PokemonService.setApiUrl(apiUrl);
+            SERVICE_LOGGER.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OpenLoopLoadGeneratorTest extends TestCase {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * 100 requests, one every 10 ms.
+     */
+    private static final OpenLoopLoadGenerator.Settings SETTINGS =
+            new OpenLoopLoadGenerator.Settings(100, 1, List.of("virtual"), null);
+
+    public void testSlowResponseDoesNotDelayLaterRequests() throws Exception {
+        CountDownLatch slowDone = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger sentDuringSlowResponse = new AtomicInteger();
+
+        OpenLoopLoadGenerator.LoadReport report = OpenLoopLoadGenerator.run("virtual", SETTINGS,
+                new StubTarget() {
+                    @Override
+                    public boolean fetch(int pokemonId) {
+                        if (calls.getAndIncrement() == 0) {
+                            sleep(500);
+                            slowDone.countDown();
+                        } else if (slowDone.getCount() > 0) {
+                            sentDuringSlowResponse.incrementAndGet();
+                        }
+                        return true;
+                    }
+                });
+
+        assertEquals(100, report.requests());
+        assertEquals(0, report.failures());
+        // A closed-loop client would have sent nothing while it waited; about 49 are due.
+        assertTrue("sent=" + sentDuringSlowResponse.get(), sentDuringSlowResponse.get() >= 30);
+        assertTrue(report.responseTime().getMaxValue() >= 500 * MILLIS);
+        assertEquals(1, report.responseTime().getCountBetweenValues(400 * MILLIS, Long.MAX_VALUE));
+    }
+
+    public void testLatencyIsMeasuredFromTheIntendedStart() {
+        AtomicInteger calls = new AtomicInteger();
+
+        // The first call stalls the dispatcher itself, so the requests due meanwhile are sent late.
+        OpenLoopLoadGenerator.LoadReport report = OpenLoopLoadGenerator.run("async", SETTINGS,
+                new StubTarget() {
+                    @Override
+                    public CompletableFuture<Boolean> fetchAsync(int pokemonId) {
+                        if (calls.getAndIncrement() == 0) {
+                            sleep(300);
+                        }
+                        return CompletableFuture.completedFuture(true);
+                    }
+                });
+
+        assertEquals(100, report.requests());
+        long late = report.responseTime().getCountBetweenValues(100 * MILLIS, Long.MAX_VALUE);
+        assertTrue("late=" + late, late >= 15);
+        assertEquals("only the stalled call was slow to serve",
+                1, report.serviceTime().getCountBetweenValues(100 * MILLIS, Long.MAX_VALUE));
+    }
+
+    public void testFailuresAreKeptOutOfTheLatencyHistograms() {
+        AtomicInteger calls = new AtomicInteger();
+
+        // Every other request is rejected at once; the others take 50 ms.
+        OpenLoopLoadGenerator.LoadReport report = OpenLoopLoadGenerator.run("async", SETTINGS,
+                new StubTarget() {
+                    @Override
+                    public CompletableFuture<Boolean> fetchAsync(int pokemonId) {
+                        if (calls.getAndIncrement() % 2 == 0) {
+                            return CompletableFuture.completedFuture(false);
+                        }
+                        return CompletableFuture.supplyAsync(() -> true,
+                                CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+                    }
+                });
+
+        assertEquals(100, report.requests());
+        assertEquals(50, report.failures());
+        assertEquals(50, report.responseTime().getTotalCount());
+        assertEquals(50, report.serviceTime().getTotalCount());
+        assertTrue("min=" + report.responseTime().getMinValue(),
+                report.responseTime().getMinValue() >= 45 * MILLIS);
+        assertTrue(report.toString(), report.toString().contains("failed"));
+    }
+
+    private abstract static class StubTarget implements OpenLoopLoadGenerator.Target {
+
+        @Override
+        public boolean fetch(int pokemonId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> fetchAsync(int pokemonId) {
+            throw new UnsupportedOperationException();
+        }
+
+        static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PokemonCacheTest extends TestCase {
+
+    private static final int WAITERS = 8;
+
+    public void testConcurrentMissesLoadOnce() throws Exception {
+        PokemonCache<String> cache = new PokemonCache<>(10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = submitWaiters(executor, cache, 25, id -> {
+                loads.incrementAndGet();
+                release.await();
+                return "pikachu";
+            });
+            awaitCoalesced(cache, WAITERS - 1);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("pikachu", result.get(10, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, loads.get());
+        assertEquals(WAITERS - 1, cache.stats().coalesced());
+
+        assertEquals("pikachu", cache.get(25, id -> {
+            throw new AssertionError("should be cached");
+        }));
+        assertEquals(1, cache.stats().hits());
+    }
+
+    public void testFailedLoadIsSharedAndNotCached() throws Exception {
+        PokemonCache<String> cache = new PokemonCache<>(10, Duration.ofMinutes(1));
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = submitWaiters(executor, cache, 25, id -> {
+                release.await();
+                throw new IOException("HTTP 503");
+            });
+            awaitCoalesced(cache, WAITERS - 1);
+            release.countDown();
+            for (Future<String> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("load should fail");
+                } catch (ExecutionException expected) {
+                    assertTrue(expected.getCause() instanceof IOException);
+                    assertEquals("HTTP 503", expected.getCause().getMessage());
+                }
+            }
+        }
+        assertEquals(0, cache.stats().size());
+        assertEquals("pikachu", cache.get(25, id -> "pikachu"));
+    }
+
+    public void testErrorInLoaderReachesWaiters() throws Exception {
+        PokemonCache<String> cache = new PokemonCache<>(10, Duration.ofMinutes(1));
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = submitWaiters(executor, cache, 25, id -> {
+                release.await();
+                throw new AssertionError("loader bug");
+            });
+            awaitCoalesced(cache, WAITERS - 1);
+            release.countDown();
+            for (Future<String> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("load should fail");
+                } catch (ExecutionException expected) {
+                    assertTrue(expected.getCause() instanceof AssertionError);
+                }
+            }
+        }
+        assertEquals(0, cache.stats().size());
+        assertEquals("pikachu", cache.get(25, id -> "pikachu"));
+    }
+
+    public void testInterruptedLoaderFailsWaitersWithIOException() throws Exception {
+        PokemonCache<String> cache = new PokemonCache<>(10, Duration.ofMinutes(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        Thread loader = Thread.ofVirtual().start(() -> {
+            try {
+                cache.get(25, id -> {
+                    loading.countDown();
+                    Thread.sleep(Long.MAX_VALUE);
+                    return "pikachu";
+                });
+            } catch (IOException | InterruptedException ignored) {
+            }
+        });
+        loading.await();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> waiter = executor.submit(() -> cache.get(25, id -> "unexpected"));
+            awaitCoalesced(cache, 1);
+            loader.interrupt();
+            try {
+                waiter.get(10, TimeUnit.SECONDS);
+                fail("load was cancelled");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof IOException);
+                assertTrue(expected.getCause().getCause() instanceof InterruptedException);
+            }
+        }
+        loader.join(10_000);
+        assertEquals(0, cache.stats().size());
+    }
+
+    public void testInvalidateDuringLoadDoesNotCacheTheStaleValue() throws Exception {
+        PokemonCache<String> cache = new PokemonCache<>(10, Duration.ofMinutes(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> stale = executor.submit(() -> cache.get(25, id -> {
+                loading.countDown();
+                release.await();
+                return "stale";
+            }));
+            loading.await();
+            cache.invalidate(25);
+
+            // A lookup after the invalidation starts its own load instead of joining the stale one.
+            assertEquals("fresh", cache.get(25, id -> "fresh"));
+            release.countDown();
+            assertEquals("stale", stale.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals("fresh", cache.get(25, id -> {
+            throw new AssertionError("should be cached");
+        }));
+        assertEquals(1, cache.stats().size());
+    }
+
+    public void testEvictsTheLeastRecentlyUsedEntry() throws Exception {
+        PokemonCache<String> cache = new PokemonCache<>(2, Duration.ofMinutes(1));
+        cache.get(1, id -> "bulbasaur");
+        cache.get(2, id -> "ivysaur");
+        cache.get(1, id -> "unexpected");
+        cache.get(3, id -> "venusaur");
+
+        assertEquals(1, cache.stats().evictions());
+        assertEquals("bulbasaur", cache.get(1, id -> "unexpected"));
+        assertEquals("reloaded", cache.get(2, id -> "reloaded"));
+    }
+
+    public void testExpiresEntriesAfterTheTtl() throws Exception {
+        PokemonCache<String> cache = new PokemonCache<>(10, Duration.ofMillis(20));
+        cache.get(25, id -> "pikachu");
+        Thread.sleep(50);
+
+        assertEquals("raichu", cache.get(25, id -> "raichu"));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(2, cache.stats().misses());
+    }
+
+    private static List<Future<String>> submitWaiters(ExecutorService executor, PokemonCache<String> cache,
+                                                      int pokemonId, PokemonCache.Loader<String> loader) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            results.add(executor.submit(() -> cache.get(pokemonId, loader)));
+        }
+        return results;
+    }
+
+    private static void awaitCoalesced(PokemonCache<?> cache, long coalesced) throws InterruptedException {
+        while (cache.stats().coalesced() < coalesced) {
+            Thread.sleep(1);
+        }
+    }
+}
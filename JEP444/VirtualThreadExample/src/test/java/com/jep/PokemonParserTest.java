@@ -0,0 +1,118 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+public class PokemonParserTest extends TestCase {
+
+    private static final String BULBASAUR = """
+            {
+              "abilities": [{"ability": {"name": "overgrow"}, "is_hidden": false}],
+              "id": 1,
+              "moves": [{"move": {"name": "razor-wind"}, "version_group_details": []}],
+              "name": "bulbasaur",
+              "species": {"name": "bulbasaur-species"},
+              "sprites": {"front_default": null, "other": {"home": {"name": "ignored"}}},
+              "stats": [
+                {"base_stat": 45, "effort": 0, "stat": {"name": "hp", "url": "x"}},
+                {"base_stat": 49, "effort": 0, "stat": {"name": "attack", "url": "x"}}
+              ],
+              "types": [
+                {"slot": 1, "type": {"name": "grass", "url": "x"}},
+                {"slot": 2, "type": {"name": "poison", "url": "x"}}
+              ],
+              "weight": 69
+            }
+            """;
+
+    private static final Pokemon EXPECTED = new Pokemon(1, "bulbasaur", List.of("grass", "poison"),
+            List.of(new Pokemon.Stat("hp", 45), new Pokemon.Stat("attack", 49)));
+
+    public void testSkipsUnknownFields() throws Exception {
+        assertEquals(EXPECTED, PokemonParser.parse(bytes(BULBASAUR)));
+        assertEquals(EXPECTED, PokemonParser.parse(new ByteArrayInputStream(bytes(BULBASAUR))));
+        assertEquals(EXPECTED, subscribe(bytes(BULBASAUR), 16 * 1024));
+    }
+
+    public void testDecodesEscapes() throws Exception {
+        String json = """
+                {"id": 669, "name": "flab\\u00e9b\\u00e9 \\"red\\"", "stats": [], "types": []}
+                """;
+        Pokemon pokemon = PokemonParser.parse(bytes(json));
+        assertEquals("flabébé \"red\"", pokemon.name());
+        assertEquals(pokemon, subscribe(bytes(json), 1));
+    }
+
+    public void testBufferBoundariesDoNotMatter() throws Exception {
+        assertEquals(EXPECTED, subscribe(bytes(BULBASAUR), 1));
+        assertEquals(EXPECTED, subscribe(bytes(BULBASAUR), 7));
+    }
+
+    public void testRejectsTruncatedBody() throws Exception {
+        byte[] truncated = bytes(BULBASAUR.substring(0, BULBASAUR.indexOf("\"types\"")));
+        try {
+            PokemonParser.parse(truncated);
+            fail("body is truncated");
+        } catch (IOException expected) {
+        }
+        try {
+            PokemonParser.parse(new ByteArrayInputStream(truncated));
+            fail("body is truncated");
+        } catch (IOException expected) {
+        }
+        try {
+            subscribe(truncated, 16);
+            fail("body is truncated");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+    }
+
+    public void testRejectsDocumentWithoutIdentity() throws Exception {
+        try {
+            PokemonParser.parse(bytes("{\"species\": {\"name\": \"bulbasaur\"}, \"stats\": []}"));
+            fail("document has no id or name");
+        } catch (IOException expected) {
+            assertEquals("Incomplete Pokemon document", expected.getMessage());
+        }
+    }
+
+    /**
+     * Feeds the body to {@link PokemonParser#bodySubscriber()} in chunks of {@code chunkSize}
+     * bytes, one chunk per request, as the HTTP client would.
+     */
+    private static Pokemon subscribe(byte[] body, int chunkSize) throws Exception {
+        HttpResponse.BodySubscriber<Pokemon> subscriber = PokemonParser.bodySubscriber();
+        int[] requested = new int[1];
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requested[0] += (int) n;
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        for (int offset = 0; offset < body.length; offset += chunkSize) {
+            assertTrue("chunk requested", requested[0]-- > 0);
+            int length = Math.min(chunkSize, body.length - offset);
+            subscriber.onNext(List.of(ByteBuffer.wrap(body, offset, length).slice()));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
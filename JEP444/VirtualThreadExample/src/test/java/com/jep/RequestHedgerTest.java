@@ -0,0 +1,143 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestHedgerTest extends TestCase {
+
+    public void testBudgetHoldsWhatWasDeposited() {
+        RequestHedger.RetryBudget budget = new RequestHedger.RetryBudget(0.5, 0);
+        assertFalse(budget.tryWithdraw());
+
+        budget.deposit();
+        assertFalse("half a token", budget.tryWithdraw());
+        budget.deposit();
+        assertTrue(budget.tryWithdraw());
+        assertFalse(budget.tryWithdraw());
+    }
+
+    public void testBudgetIsCapped() {
+        RequestHedger.RetryBudget budget = new RequestHedger.RetryBudget(1, 0);
+        for (int i = 0; i < 150; i++) {
+            budget.deposit();
+        }
+        int withdrawn = 0;
+        while (budget.tryWithdraw()) {
+            withdrawn++;
+        }
+        assertEquals(100, withdrawn);
+    }
+
+    public void testBudgetRefillsOverTime() throws InterruptedException {
+        RequestHedger.RetryBudget budget = new RequestHedger.RetryBudget(0, 100);
+        int withdrawn = 0;
+        while (budget.tryWithdraw()) {
+            withdrawn++;
+        }
+        assertTrue("starts with a second's trickle: " + withdrawn, withdrawn >= 100);
+
+        Thread.sleep(50);
+        assertTrue(budget.tryWithdraw());
+    }
+
+    public void testSlowAttemptIsHedgedAndCancelled() throws Exception {
+        RequestHedger hedger = new RequestHedger(settings(95, 1, 1));
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch primaryCancelled = new CountDownLatch(1);
+
+        String value = hedger.call(25, id -> {
+            if (attempts.getAndIncrement() > 0) {
+                return "hedge";
+            }
+            try {
+                Thread.sleep(10_000);
+                return "primary";
+            } catch (InterruptedException e) {
+                primaryCancelled.countDown();
+                throw e;
+            }
+        });
+
+        assertEquals("hedge", value);
+        assertTrue(primaryCancelled.await(10, TimeUnit.SECONDS));
+        RequestHedger.HedgeStats stats = hedger.stats();
+        assertEquals(1, stats.hedges());
+        assertEquals(1, stats.hedgeWins());
+        assertEquals(0, stats.retries());
+    }
+
+    public void testHedgeNeedsABudgetToken() throws Exception {
+        RequestHedger hedger = new RequestHedger(settings(95, 1, 0));
+
+        String value = hedger.call(25, id -> {
+            Thread.sleep(100);
+            return "primary";
+        });
+
+        assertEquals("the slow primary is kept", "primary", value);
+        assertEquals(0, hedger.stats().hedges());
+        assertEquals(1, hedger.stats().budgetDenials());
+    }
+
+    public void testFailedAttemptsAreRetried() throws Exception {
+        for (double percentile : new double[]{0, 95}) {
+            RequestHedger hedger = new RequestHedger(settings(percentile, 3, 2));
+            AtomicInteger attempts = new AtomicInteger();
+
+            String value = hedger.call(25, id -> {
+                if (attempts.incrementAndGet() < 3) {
+                    throw new IOException("HTTP 503");
+                }
+                return "pikachu";
+            });
+
+            assertEquals("pikachu", value);
+            assertEquals(2, hedger.stats().retries());
+        }
+    }
+
+    public void testGivesUpAfterMaxAttempts() throws InterruptedException {
+        RequestHedger hedger = new RequestHedger(settings(0, 3, 2));
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            hedger.call(25, id -> {
+                throw new IOException("HTTP 503 #" + attempts.incrementAndGet());
+            });
+            fail("every attempt failed");
+        } catch (IOException expected) {
+            assertEquals("HTTP 503 #3", expected.getMessage());
+            assertEquals(1, expected.getSuppressed().length);
+            assertEquals("HTTP 503 #2", expected.getSuppressed()[0].getMessage());
+        }
+        assertEquals(3, attempts.get());
+    }
+
+    public void testRetryNeedsABudgetToken() throws InterruptedException {
+        RequestHedger hedger = new RequestHedger(settings(0, 3, 0));
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            hedger.call(25, id -> {
+                attempts.incrementAndGet();
+                throw new IOException("HTTP 503");
+            });
+            fail("budget is empty");
+        } catch (IOException expected) {
+        }
+        assertEquals(1, attempts.get());
+        assertEquals(1, hedger.stats().budgetDenials());
+    }
+
+    /**
+     * Hedges after 20 ms and backs off for at most 1 ms. Each call deposits {@code budgetRatio}
+     * tokens and every hedge or retry takes one; with 0 there is no budget at all.
+     */
+    private static RequestHedger.Settings settings(double hedgePercentile, int maxAttempts, double budgetRatio) {
+        return new RequestHedger.Settings(hedgePercentile, Duration.ofMillis(20), Duration.ofMillis(1),
+                maxAttempts, Duration.ofMillis(1), Duration.ofMillis(1), budgetRatio, 0);
+    }
+}
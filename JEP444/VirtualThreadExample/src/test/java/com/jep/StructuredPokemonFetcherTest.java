@@ -0,0 +1,93 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class StructuredPokemonFetcherTest extends TestCase {
+
+    // Held so the levels are not lost when the loggers are collected.
+    private static final Logger SERVICE_LOGGER = Logger.getLogger(PokemonService.class.getName());
+    private static final Logger FETCHER_LOGGER = Logger.getLogger(StructuredPokemonFetcher.class.getName());
+
+    private PokeApiStubServer stub;
+    private String apiUrl;
+    private Level serviceLevel;
+    private Level fetcherLevel;
+
+    @Override
+    protected void setUp() {
+        apiUrl = PokemonService.apiUrl();
+        serviceLevel = SERVICE_LOGGER.getLevel();
+        fetcherLevel = FETCHER_LOGGER.getLevel();
+        SERVICE_LOGGER.setLevel(Level.OFF);
+        FETCHER_LOGGER.setLevel(Level.OFF);
+    }
+
+    @Override
+    protected void tearDown() {
+        if (stub != null) {
+            stub.close();
+        }
+        PokemonService.setApiUrl(apiUrl);
+        SERVICE_LOGGER.setLevel(serviceLevel);
+        FETCHER_LOGGER.setLevel(fetcherLevel);
+    }
+
+    public void testDeadlineCancelsSlowRequests() throws Exception {
+        startStub(new LatencyProfile.Fixed(Duration.ofSeconds(3)), 0);
+
+        StructuredPokemonFetcher.ScopeReport report =
+                StructuredPokemonFetcher.fetchAllOrFail(8, Instant.now().plusMillis(200));
+
+        assertTrue(report.deadlineExpired());
+        assertEquals(0, report.succeeded());
+        assertEquals(8, report.cancelled());
+        assertTrue("took " + millis(report.durationNanos()) + "ms", millis(report.durationNanos()) < 2_000);
+    }
+
+    public void testFirstNStopsOnceEnoughSucceeded() throws Exception {
+        startStub(new LatencyProfile.Uniform(Duration.ofMillis(10), Duration.ofSeconds(3)), 0);
+
+        StructuredPokemonFetcher.ScopeReport report =
+                StructuredPokemonFetcher.fetchFirst(3, 20, Instant.now().plusSeconds(30));
+
+        assertFalse(report.deadlineExpired());
+        assertTrue("succeeded=" + report.succeeded(), report.succeeded() >= 3);
+        assertEquals(0, report.failed());
+        assertTrue("cancelled=" + report.cancelled(), report.cancelled() > 0);
+        assertEquals(20, report.succeeded() + report.cancelled());
+        assertTrue("took " + millis(report.durationNanos()) + "ms", millis(report.durationNanos()) < 3_000);
+    }
+
+    /**
+     * Every other response on average is a 503, spread over three seconds, so the first failure
+     * arrives long before the slowest requests would have finished.
+     */
+    public void testFailureCancelsSiblings() throws Exception {
+        startStub(new LatencyProfile.Uniform(Duration.ZERO, Duration.ofSeconds(3)), 0.5);
+
+        StructuredPokemonFetcher.ScopeReport report =
+                StructuredPokemonFetcher.fetchAllOrFail(16, Instant.now().plusSeconds(30));
+
+        assertFalse(report.deadlineExpired());
+        assertTrue("failed=" + report.failed(), report.failed() >= 1);
+        assertTrue("cancelled=" + report.cancelled(), report.cancelled() > 0);
+        assertEquals(16, report.succeeded() + report.failed() + report.cancelled());
+        assertTrue("took " + millis(report.durationNanos()) + "ms", millis(report.durationNanos()) < 3_000);
+    }
+
+    private void startStub(LatencyProfile latency, double errorRate) throws IOException {
+        stub = PokeApiStubServer.start(new PokeApiStubServer.Settings(0, latency, 256, errorRate, 1024));
+        PokemonService.setApiUrl(stub.baseUrl());
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
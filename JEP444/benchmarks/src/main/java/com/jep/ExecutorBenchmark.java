@@ -0,0 +1,182 @@
+package com.jep;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Compares executors running batches of {@link SimulatedIOTask#execute(int, Duration)} calls.
+ *
+ * <p>One benchmark operation submits {@code taskCount} tasks and waits for all of them. Each task
+ * burns {@code cpuTokens} of CPU work before blocking for {@code sleepMillis}, so the parameters
+ * cover the range from pure I/O to CPU-heavy work. The platform executors are sized by
+ * {@code poolSize}, a parameter of their own {@link FixedPool} and {@link ForkJoin} states, so it
+ * neither multiplies the virtual-thread runs nor leaves idle pools in their JVMs. The
+ * virtual-thread variants are forked with different {@code jdk.virtualThreadScheduler.parallelism}
+ * settings instead, because the scheduler reads that property once at startup.</p>
+ *
+ * <p>The task's logger is switched off for the run, so the results measure scheduling rather
+ * than console output.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+
+    /**
+     * The batch of tasks every benchmark runs.
+     */
+    @State(Scope.Benchmark)
+    public static class Workload {
+
+        @Param({"1000", "10000"})
+        int taskCount;
+
+        @Param({"1", "10"})
+        int sleepMillis;
+
+        @Param({"0", "10000"})
+        int cpuTokens;
+
+        private Duration ioTime;
+        private Logger taskLogger;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            ioTime = Duration.ofMillis(sleepMillis);
+            taskLogger = Logger.getLogger(SimulatedIOTask.class.getName());
+            taskLogger.setLevel(java.util.logging.Level.OFF);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            taskLogger.setLevel(null);
+        }
+
+        void runOn(ExecutorService executor) throws InterruptedException {
+            CountDownLatch done = new CountDownLatch(taskCount);
+            for (int i = 0; i < taskCount; i++) {
+                int taskId = i;
+                executor.execute(() -> {
+                    runTask(taskId);
+                    done.countDown();
+                });
+            }
+            done.await();
+        }
+
+        void runOnVirtualThreads() {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < taskCount; i++) {
+                    int taskId = i;
+                    executor.execute(() -> runTask(taskId));
+                }
+            }
+        }
+
+        private void runTask(int taskId) {
+            if (cpuTokens > 0) {
+                Blackhole.consumeCPU(cpuTokens);
+            }
+            SimulatedIOTask.execute(taskId, ioTime);
+        }
+    }
+
+    /**
+     * A fixed pool of {@code poolSize} platform threads.
+     */
+    @State(Scope.Benchmark)
+    public static class FixedPool {
+
+        @Param({"16", "256"})
+        int poolSize;
+
+        ExecutorService pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pool = Executors.newFixedThreadPool(poolSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.close();
+        }
+    }
+
+    /**
+     * A work-stealing pool of {@code poolSize} platform threads.
+     */
+    @State(Scope.Benchmark)
+    public static class ForkJoin {
+
+        @Param({"16", "256"})
+        int poolSize;
+
+        ExecutorService pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pool = new ForkJoinPool(poolSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.close();
+        }
+    }
+
+    @Benchmark
+    public void fixedThreadPool(Workload workload, FixedPool pool) throws InterruptedException {
+        workload.runOn(pool.pool);
+    }
+
+    @Benchmark
+    public void forkJoinPool(Workload workload, ForkJoin pool) throws InterruptedException {
+        workload.runOn(pool.pool);
+    }
+
+    @Benchmark
+    public void virtualThreads(Workload workload) {
+        workload.runOnVirtualThreads();
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Djdk.virtualThreadScheduler.parallelism=1")
+    public void virtualThreadsParallelism1(Workload workload) {
+        workload.runOnVirtualThreads();
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Djdk.virtualThreadScheduler.parallelism=2")
+    public void virtualThreadsParallelism2(Workload workload) {
+        workload.runOnVirtualThreads();
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Djdk.virtualThreadScheduler.parallelism=8")
+    public void virtualThreadsParallelism8(Workload workload) {
+        workload.runOnVirtualThreads();
+    }
+}
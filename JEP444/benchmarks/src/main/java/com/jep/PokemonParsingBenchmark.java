@@ -0,0 +1,117 @@
+package com.jep;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of turning one PokeAPI response body into a {@link Pokemon}.
+ *
+ * <ul>
+ *   <li>{@code string}: what {@code BodyHandlers.ofString()} does, decoding the body into a
+ *       {@code String} and nothing else</li>
+ *   <li>{@code stringAndTree}: decoding to a {@code String}, binding it to a Jackson tree and
+ *       reading the record from the tree</li>
+ *   <li>{@code streaming}: {@link PokemonParser#parse(java.io.InputStream)} over the body
+ *       stream</li>
+ *   <li>{@code subscriber}: the non-blocking {@link PokemonParser#bodySubscriber()}, fed in
+ *       16 KiB chunks as the HTTP client would</li>
+ * </ul>
+ *
+ * <p>The interesting number is the allocation per operation, so run it with the GC profiler:
+ * {@code java -jar target/benchmarks.jar PokemonParsingBenchmark -prof gc} and compare
+ * {@code gc.alloc.rate.norm}, the bytes allocated per parsed response.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PokemonParsingBenchmark {
+
+    private static final int CHUNK_BYTES = 16 * 1024;
+
+    @Param({"4096", "65536"})
+    int payloadBytes;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] document;
+    private List<ByteBuffer> chunks;
+
+    @Setup
+    public void setUp() {
+        document = PokeApiStubServer.sampleDocument(25, payloadBytes);
+        chunks = new ArrayList<>();
+        for (int offset = 0; offset < document.length; offset += CHUNK_BYTES) {
+            chunks.add(ByteBuffer.wrap(document, offset, Math.min(CHUNK_BYTES, document.length - offset)).slice());
+        }
+    }
+
+    @Benchmark
+    public String string() {
+        return new String(document, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Pokemon stringAndTree() throws IOException {
+        JsonNode root = mapper.readTree(new String(document, StandardCharsets.UTF_8));
+        List<String> types = new ArrayList<>();
+        for (JsonNode type : root.path("types")) {
+            types.add(type.path("type").path("name").asText());
+        }
+        List<Pokemon.Stat> stats = new ArrayList<>();
+        for (JsonNode stat : root.path("stats")) {
+            stats.add(new Pokemon.Stat(stat.path("stat").path("name").asText(), stat.path("base_stat").asInt()));
+        }
+        return new Pokemon(root.path("id").asInt(), root.path("name").asText(), types, stats);
+    }
+
+    @Benchmark
+    public Pokemon streaming() throws IOException {
+        return PokemonParser.parse(new ByteArrayInputStream(document));
+    }
+
+    @Benchmark
+    public Pokemon subscriber() {
+        HttpResponse.BodySubscriber<Pokemon> subscriber = PokemonParser.bodySubscriber();
+        subscriber.onSubscribe(NoOpSubscription.INSTANCE);
+        for (ByteBuffer chunk : chunks) {
+            subscriber.onNext(List.of(chunk.duplicate()));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    private enum NoOpSubscription implements Flow.Subscription {
+        INSTANCE;
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.jep;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Allocation-light front end to {@link java.util.logging} for per-task log messages.
+ *
+ * <p>Logging two messages per task with string concatenation and a synchronous console handler
+ * means every one of 10,000 threads builds its strings eagerly and then queues on the handler's
+ * lock, so a benchmark of the tasks ends up measuring the logger. An {@code AsyncLog} instead
+ * checks the logger's level and an optional sampling rate before anything is built, and takes its
+ * arguments separately from a {@code {}}-style template, so numbers are not boxed and nothing is
+ * formatted until the message is actually written.</p>
+ *
+ * <h2>Modes</h2>
+ * <ul>
+ *   <li>Synchronous (default): the message is formatted and logged on the calling thread, as
+ *       before.</li>
+ *   <li>Asynchronous ({@code -Dlog.async=true}): the template and arguments are copied into a
+ *       lock-free ring buffer and a single writer thread formats and logs them. The calling thread
+ *       never waits for the handler; if the buffer ({@code log.async.capacity} slots, default
+ *       16384) is full the message is dropped and the writer reports how many were lost.</li>
+ * </ul>
+ *
+ * <p>With {@code -Dlog.sample=N}, only about one in N messages below {@link Level#WARNING} is
+ * logged. Warnings and errors are never sampled.</p>
+ *
+ * <p>Arguments are formatted when the message is written, so in asynchronous mode a mutable
+ * argument, such as a {@link Thread} whose state is part of its {@code toString()}, shows its
+ * state at that time rather than at the call.</p>
+ */
+public final class AsyncLog {
+
+    private static final boolean ASYNC = Boolean.getBoolean("log.async");
+    private static final int SAMPLE_RATE = Math.max(1, Integer.getInteger("log.sample", 1));
+
+    private static final class Buffer {
+        private static final LogRingBuffer INSTANCE = new LogRingBuffer(Integer.getInteger("log.async.capacity", 16_384));
+    }
+
+    private final Logger logger;
+
+    private AsyncLog(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Returns a log that writes through the {@link Logger} named after the class.
+     */
+    public static AsyncLog getLog(Class<?> type) {
+        return new AsyncLog(Logger.getLogger(type.getName()));
+    }
+
+    public static boolean asynchronous() {
+        return ASYNC;
+    }
+
+    /**
+     * Waits until every message logged so far has been written. Call it before printing results,
+     * so they are not interleaved with queued messages. Does nothing in synchronous mode.
+     */
+    public static void flush() {
+        if (ASYNC) {
+            Buffer.INSTANCE.flush();
+        }
+    }
+
+    /**
+     * Returns whether a message at this level would be written, taking the sampling rate into
+     * account. Each call draws a new sample.
+     */
+    public boolean isEnabled(Level level) {
+        if (!logger.isLoggable(level)) {
+            return false;
+        }
+        return SAMPLE_RATE == 1
+                || level.intValue() >= Level.WARNING.intValue()
+                || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+    }
+
+    public void log(Level level, String template, Object arg) {
+        if (isEnabled(level)) {
+            write(level, template, 1, 0, 0, arg, null);
+        }
+    }
+
+    public void log(Level level, String template, long arg) {
+        if (isEnabled(level)) {
+            write(level, template, 1 | LogRingBuffer.SHAPE_FIRST_LONG, arg, 0, null, null);
+        }
+    }
+
+    public void log(Level level, String template, long first, Object second) {
+        if (isEnabled(level)) {
+            write(level, template, 2 | LogRingBuffer.SHAPE_FIRST_LONG, first, 0, null, second);
+        }
+    }
+
+    public void log(Level level, String template, long first, long second) {
+        if (isEnabled(level)) {
+            write(level, template, 2 | LogRingBuffer.SHAPE_FIRST_LONG | LogRingBuffer.SHAPE_SECOND_LONG,
+                    first, second, null, null);
+        }
+    }
+
+    public void log(Level level, String template, Object first, Object second) {
+        if (isEnabled(level)) {
+            write(level, template, 2, 0, 0, first, second);
+        }
+    }
+
+    private void write(Level level, String template, int shape,
+                       long firstLong, long secondLong, Object firstRef, Object secondRef) {
+        if (ASYNC) {
+            Buffer.INSTANCE.offer(logger, level, template, shape, firstLong, secondLong, firstRef, secondRef);
+            return;
+        }
+        StringBuilder message = new StringBuilder(template.length() + 32);
+        LogRingBuffer.format(message, template, shape, firstLong, secondLong, firstRef, secondRef);
+        logger.logp(level, logger.getName(), null, message.toString());
+    }
+}
@@ -0,0 +1,297 @@
+package com.jep;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records why virtual threads stop scaling during a run: pinned carriers and how busy the
+ * carriers were.
+ *
+ * <p>A virtual thread that blocks inside a {@code synchronized} block, or in native code, cannot
+ * unmount and keeps its carrier thread blocked with it. Two JFR events are streamed while the
+ * diagnostics run:</p>
+ * <ul>
+ *   <li>{@code jdk.VirtualThreadPinned}: a virtual thread parked while pinned. Events are grouped
+ *       by the first application frame and the blocking call, with their count and total
+ *       duration.</li>
+ *   <li>{@code jdk.VirtualThreadSubmitFailed}: the scheduler could not accept a virtual
+ *       thread.</li>
+ * </ul>
+ *
+ * <p>A sampler thread meanwhile reads the CPU time of the scheduler's carrier threads every
+ * {@code diagnostics.sampleMs} (default 100 ms). Utilization is carrier CPU time divided by wall
+ * time times the scheduler's parallelism, so 100% means every carrier was busy all the time. Low
+ * utilization with flat throughput points at pinning or a downstream bottleneck, high utilization
+ * at CPU-bound work.</p>
+ *
+ * <p>Enable it with {@code -Ddiagnostics=true}; {@code diagnostics.pinnedThresholdMs} (default 0)
+ * ignores pinned events shorter than the threshold.</p>
+ */
+public final class CarrierDiagnostics {
+
+    private static final int TOP_STACKS = 5;
+
+    private final RecordingStream stream;
+    private final Map<String, PinnedStack> pinned = new ConcurrentHashMap<>();
+    private final LongAdder submitFailures = new LongAdder();
+    private final CarrierSampler sampler;
+
+    /**
+     * Pinned events sharing a call site.
+     */
+    private static final class PinnedStack {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+    }
+
+    /**
+     * What the diagnostics saw between {@link #start(Duration, Duration)} and {@link #stop()}.
+     *
+     * @param pinnedEvents       number of {@code jdk.VirtualThreadPinned} events
+     * @param pinnedNanos        total time virtual threads spent parked while pinned
+     * @param pinnedStacks       the call sites with the most pinned time, longest first
+     * @param submitFailures     number of {@code jdk.VirtualThreadSubmitFailed} events
+     * @param parallelism        the scheduler's target number of carriers
+     * @param peakCarriers       most carrier threads alive at once; above the parallelism the
+     *                           scheduler compensated for blocked carriers
+     * @param meanUtilization    mean carrier CPU utilization over the run, between 0 and 1
+     * @param peakUtilization    highest carrier CPU utilization of one sample interval
+     */
+    public record Summary(long pinnedEvents, long pinnedNanos, List<PinnedSite> pinnedStacks, long submitFailures,
+                          int parallelism, int peakCarriers, double meanUtilization, double peakUtilization) {
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder(String.format(
+                    "Carriers: parallelism=%d, peak carriers=%d, CPU utilization mean=%.1f%% peak=%.1f%%, "
+                            + "submit failures=%d%nPinned: %d events, %.1fms total",
+                    parallelism, peakCarriers, meanUtilization * 100, peakUtilization * 100,
+                    submitFailures, pinnedEvents, pinnedNanos / 1e6));
+            for (PinnedSite site : pinnedStacks) {
+                out.append(System.lineSeparator()).append("  ").append(site);
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * Pinned time attributed to one call site.
+     *
+     * @param site  first application frame and the call that parked, e.g.
+     *              {@code com.jep.Task.run:42 -> java.lang.Thread.sleep}
+     * @param count number of pinned events
+     * @param nanos total pinned time
+     */
+    public record PinnedSite(String site, long count, long nanos) {
+
+        @Override
+        public String toString() {
+            return String.format("%8.1fms %6d x  %s", nanos / 1e6, count, site);
+        }
+    }
+
+    private CarrierDiagnostics(Duration pinnedThreshold, Duration sampleInterval) {
+        this.stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(pinnedThreshold).withStackTrace();
+        stream.enable("jdk.VirtualThreadSubmitFailed").withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.onEvent("jdk.VirtualThreadSubmitFailed", event -> submitFailures.increment());
+        this.sampler = new CarrierSampler(sampleInterval);
+    }
+
+    /**
+     * Starts recording.
+     */
+    public static CarrierDiagnostics start(Duration pinnedThreshold, Duration sampleInterval)
+            throws InterruptedException {
+        CarrierDiagnostics diagnostics = new CarrierDiagnostics(pinnedThreshold, sampleInterval);
+        diagnostics.stream.startAsync();
+        diagnostics.sampler.start();
+        return diagnostics;
+    }
+
+    /**
+     * Starts recording if enabled with {@code -Ddiagnostics=true}.
+     */
+    public static Optional<CarrierDiagnostics> fromSystemProperties() throws InterruptedException {
+        if (!Boolean.getBoolean("diagnostics")) {
+            return Optional.empty();
+        }
+        return Optional.of(start(
+                Duration.ofMillis(Long.getLong("diagnostics.pinnedThresholdMs", 0)),
+                Duration.ofMillis(Long.getLong("diagnostics.sampleMs", 100))));
+    }
+
+    /**
+     * Stops recording, waiting for the events recorded so far to be processed, and summarizes the
+     * run.
+     */
+    public Summary stop() {
+        sampler.stop();
+        stream.stop();
+        stream.close();
+
+        List<PinnedSite> sites = new ArrayList<>();
+        long events = 0;
+        long nanos = 0;
+        for (Map.Entry<String, PinnedStack> entry : pinned.entrySet()) {
+            PinnedSite site = new PinnedSite(entry.getKey(), entry.getValue().count.sum(), entry.getValue().nanos.sum());
+            events += site.count();
+            nanos += site.nanos();
+            sites.add(site);
+        }
+        sites.sort(Comparator.comparingLong(PinnedSite::nanos).reversed());
+        return new Summary(events, nanos, List.copyOf(sites.subList(0, Math.min(TOP_STACKS, sites.size()))),
+                submitFailures.sum(), sampler.parallelism, sampler.peakCarriers, sampler.meanUtilization(),
+                sampler.peakUtilization);
+    }
+
+    private void onPinned(RecordedEvent event) {
+        PinnedStack stack = pinned.computeIfAbsent(site(event.getStackTrace()), key -> new PinnedStack());
+        stack.count.increment();
+        stack.nanos.add(event.getDuration().toNanos());
+    }
+
+    /**
+     * Names a pinned stack by its first application frame and the outermost JDK call below it,
+     * which is the blocking call the application made.
+     */
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "<no stack trace>";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        String blockingCall = null;
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            String method = type + "." + frame.getMethod().getName();
+            if (isJdkFrame(type)) {
+                blockingCall = method;
+            } else {
+                return method + ":" + frame.getLineNumber() + (blockingCall == null ? "" : " -> " + blockingCall);
+            }
+        }
+        return blockingCall == null ? "<empty stack trace>" : blockingCall;
+    }
+
+    private static boolean isJdkFrame(String type) {
+        return type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.");
+    }
+
+    /**
+     * Periodically reads the CPU time of the virtual-thread scheduler's carrier threads.
+     */
+    private static final class CarrierSampler {
+
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private final long intervalNanos;
+        private final int parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        private final CountDownLatch stopped = new CountDownLatch(1);
+        private Thread thread;
+        private String carrierPrefix;
+
+        // Written by the sampler thread, read after it has been joined.
+        private int peakCarriers;
+        private double peakUtilization;
+        private long startNanos;
+        private long lastNanos;
+        private long startCpuNanos = -1;
+        private long lastCpuNanos;
+
+        CarrierSampler(Duration interval) {
+            this.intervalNanos = interval.toNanos();
+        }
+
+        void start() throws InterruptedException {
+            carrierPrefix = carrierPrefix();
+            startNanos = System.nanoTime();
+            thread = Thread.ofPlatform().name("carrier-sampler").daemon().start(this::run);
+        }
+
+        void stop() {
+            stopped.countDown();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sample();
+        }
+
+        double meanUtilization() {
+            long wall = lastNanos - startNanos;
+            if (wall <= 0 || startCpuNanos < 0) {
+                return 0;
+            }
+            return (double) (lastCpuNanos - startCpuNanos) / wall / parallelism;
+        }
+
+        private void run() {
+            sample();
+            try {
+                while (!stopped.await(intervalNanos, TimeUnit.NANOSECONDS)) {
+                    sample();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void sample() {
+            long now = System.nanoTime();
+            long cpu = 0;
+            int carriers = 0;
+            for (ThreadInfo info : THREADS.getThreadInfo(THREADS.getAllThreadIds(), 0)) {
+                if (info != null && info.getThreadName().startsWith(carrierPrefix)) {
+                    long threadCpu = THREADS.getThreadCpuTime(info.getThreadId());
+                    if (threadCpu > 0) {
+                        cpu += threadCpu;
+                    }
+                    carriers++;
+                }
+            }
+            peakCarriers = Math.max(peakCarriers, carriers);
+            if (startCpuNanos < 0) {
+                startCpuNanos = cpu;
+            } else if (now > lastNanos) {
+                // Carriers that retire take their CPU time with them, so clamp the interval.
+                double utilization = (double) (cpu - lastCpuNanos) / (now - lastNanos) / parallelism;
+                peakUtilization = Math.max(peakUtilization, Math.min(1, Math.max(0, utilization)));
+            }
+            lastNanos = now;
+            lastCpuNanos = cpu;
+        }
+
+        /**
+         * The scheduler's carriers are named after its pool, such as
+         * {@code ForkJoinPool-1-worker-3}. A virtual thread's {@code toString()} names the carrier
+         * it is mounted on, which is the only public way to learn the pool's name.
+         */
+        private static String carrierPrefix() throws InterruptedException {
+            AtomicReference<String> description = new AtomicReference<>();
+            Thread.ofVirtual().start(() -> description.set(Thread.currentThread().toString())).join();
+            String carrier = description.get().substring(description.get().indexOf('@') + 1);
+            int worker = carrier.lastIndexOf("-worker-");
+            return worker < 0 ? carrier : carrier.substring(0, worker + "-worker-".length());
+        }
+    }
+}
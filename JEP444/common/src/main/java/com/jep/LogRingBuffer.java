@@ -0,0 +1,210 @@
+package com.jep;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Bounded multi-producer, single-consumer queue of pending log messages, drained by one writer
+ * thread.
+ *
+ * <p>The slots are preallocated parallel arrays, so enqueuing a message allocates nothing.
+ * Producers claim a slot with a CAS on the tail and publish it with a release store of the slot's
+ * sequence number; the writer reads a slot once its sequence says it is published, formats it and
+ * hands it to the message's {@link Logger}. When the buffer is full the message is dropped and
+ * counted instead of blocking the producer.</p>
+ */
+final class LogRingBuffer {
+
+    static final int SHAPE_FIRST_LONG = 1 << 2;
+    static final int SHAPE_SECOND_LONG = 1 << 3;
+    private static final int SHAPE_COUNT_MASK = 3;
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final Logger LOGGER = Logger.getLogger(AsyncLog.class.getName());
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final Logger[] loggers;
+    private final Level[] levels;
+    private final String[] templates;
+    private final byte[] shapes;
+    private final long[] firstLongs;
+    private final long[] secondLongs;
+    private final Object[] firstRefs;
+    private final Object[] secondRefs;
+    private final long[] timestamps;
+    private final long[] threadIds;
+
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+    private long droppedReported;
+
+    private final StringBuilder message = new StringBuilder(256);
+    private final Thread writer;
+
+    LogRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.loggers = new Logger[capacity];
+        this.levels = new Level[capacity];
+        this.templates = new String[capacity];
+        this.shapes = new byte[capacity];
+        this.firstLongs = new long[capacity];
+        this.secondLongs = new long[capacity];
+        this.firstRefs = new Object[capacity];
+        this.secondRefs = new Object[capacity];
+        this.timestamps = new long[capacity];
+        this.threadIds = new long[capacity];
+        this.writer = Thread.ofPlatform().name("async-log-writer").daemon().start(this::drainLoop);
+    }
+
+    /**
+     * Enqueues a message.
+     *
+     * @return {@code false} if the buffer was full and the message was dropped
+     */
+    boolean offer(Logger logger, Level level, String template, int shape,
+                  long firstLong, long secondLong, Object firstRef, Object secondRef) {
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) (position & mask);
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.increment();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        loggers[index] = logger;
+        levels[index] = level;
+        templates[index] = template;
+        shapes[index] = (byte) shape;
+        firstLongs[index] = firstLong;
+        secondLongs[index] = secondLong;
+        firstRefs[index] = firstRef;
+        secondRefs[index] = secondRef;
+        timestamps[index] = System.currentTimeMillis();
+        threadIds[index] = Thread.currentThread().threadId();
+        sequences.setRelease(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Waits until every message enqueued before this call has been handed to its logger.
+     */
+    void flush() {
+        long target = tail.get();
+        while (head < target) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    private void drainLoop() {
+        while (true) {
+            if (!drain()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private boolean drain() {
+        boolean drained = false;
+        long position = head;
+        int index = (int) (position & mask);
+        while (sequences.getAcquire(index) == position + 1) {
+            try {
+                publish(index);
+            } catch (RuntimeException e) {
+                // A failing toString() or handler must not stop the writer.
+                LOGGER.log(Level.SEVERE, "Failed to write async log message: " + templates[index], e);
+            }
+            sequences.setRelease(index, position + mask + 1);
+            head = ++position;
+            index = (int) (position & mask);
+            drained = true;
+        }
+        reportDropped();
+        return drained;
+    }
+
+    private void publish(int index) {
+        Logger logger = loggers[index];
+        Object firstRef = firstRefs[index];
+        Object secondRef = secondRefs[index];
+        loggers[index] = null;
+        firstRefs[index] = null;
+        secondRefs[index] = null;
+
+        message.setLength(0);
+        format(message, templates[index], shapes[index], firstLongs[index], secondLongs[index], firstRef, secondRef);
+        LogRecord record = new LogRecord(levels[index], message.toString());
+        record.setLoggerName(logger.getName());
+        record.setSourceClassName(logger.getName());
+        record.setInstant(Instant.ofEpochMilli(timestamps[index]));
+        record.setLongThreadID(threadIds[index]);
+        logger.log(record);
+    }
+
+    private void reportDropped() {
+        long total = dropped.sum();
+        if (total != droppedReported) {
+            LOGGER.warning(String.format("Async log buffer full, dropped %d messages", total - droppedReported));
+            droppedReported = total;
+        }
+    }
+
+    /**
+     * Replaces each {@code {}} in the template with the next argument, in order.
+     */
+    static void format(StringBuilder out, String template, int shape,
+                       long firstLong, long secondLong, Object firstRef, Object secondRef) {
+        int count = shape & SHAPE_COUNT_MASK;
+        int argument = 0;
+        int from = 0;
+        int placeholder;
+        while (argument < count && (placeholder = template.indexOf("{}", from)) >= 0) {
+            out.append(template, from, placeholder);
+            if (argument == 0) {
+                appendArgument(out, (shape & SHAPE_FIRST_LONG) != 0, firstLong, firstRef);
+            } else {
+                appendArgument(out, (shape & SHAPE_SECOND_LONG) != 0, secondLong, secondRef);
+            }
+            argument++;
+            from = placeholder + 2;
+        }
+        out.append(template, from, template.length());
+    }
+
+    private static void appendArgument(StringBuilder out, boolean isLong, long longValue, Object refValue) {
+        if (isLong) {
+            out.append(longValue);
+        } else {
+            out.append(refValue);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.jep;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+public class LogRingBufferTest extends TestCase {
+
+    private static final int ONE_LONG = 1 | LogRingBuffer.SHAPE_FIRST_LONG;
+    private static final int TWO_LONGS = 2 | LogRingBuffer.SHAPE_FIRST_LONG | LogRingBuffer.SHAPE_SECOND_LONG;
+
+    // Held so the handler is not lost when the logger is collected.
+    private static final Logger BUFFER_LOGGER = Logger.getLogger(AsyncLog.class.getName());
+
+    public void testKeepsOrderAcrossWrapAround() {
+        Capture capture = new Capture();
+        // The producer retries dropped messages, so the drop warnings are expected.
+        Capture warnings = new Capture(BUFFER_LOGGER);
+        try {
+            LogRingBuffer buffer = new LogRingBuffer(8);
+            for (int i = 0; i < 1_000; i++) {
+                while (!buffer.offer(capture.logger, Level.INFO, "message {}", ONE_LONG, i, 0, null, null)) {
+                    Thread.onSpinWait();
+                }
+            }
+            buffer.flush();
+        } finally {
+            warnings.close();
+        }
+
+        List<String> messages = capture.messages();
+        assertEquals(1_000, messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals("message " + i, messages.get(i));
+        }
+    }
+
+    public void testKeepsEachProducersOrder() throws Exception {
+        Capture capture = new Capture();
+        LogRingBuffer buffer = new LogRingBuffer(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        Capture warnings = new Capture(BUFFER_LOGGER);
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                executor.execute(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(capture.logger, Level.INFO, "{} {}", TWO_LONGS, producer, i,
+                                null, null)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+            }
+        } finally {
+            buffer.flush();
+            warnings.close();
+        }
+
+        int[] next = new int[producers];
+        for (String message : capture.messages()) {
+            String[] parts = message.split(" ");
+            int producer = Integer.parseInt(parts[0]);
+            assertEquals("producer " + producer, next[producer]++, Integer.parseInt(parts[1]));
+        }
+        for (int count : next) {
+            assertEquals(perProducer, count);
+        }
+    }
+
+    public void testCountsAndReportsDroppedMessages() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Capture capture = new Capture() {
+            @Override
+            public void publish(LogRecord record) {
+                if (writing.getCount() > 0) {
+                    writing.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.publish(record);
+            }
+        };
+        Capture warnings = new Capture(BUFFER_LOGGER);
+        try {
+            LogRingBuffer buffer = new LogRingBuffer(8);
+            assertTrue(buffer.offer(capture.logger, Level.INFO, "first", 0, 0, 0, null, null));
+            assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+            // The slot being written stays claimed until the logger returns.
+            for (int i = 1; i < 8; i++) {
+                assertTrue(buffer.offer(capture.logger, Level.INFO, "queued", 0, 0, 0, null, null));
+            }
+            for (int i = 0; i < 5; i++) {
+                assertFalse(buffer.offer(capture.logger, Level.INFO, "dropped", 0, 0, 0, null, null));
+            }
+            assertEquals(5, buffer.dropped());
+
+            release.countDown();
+            buffer.flush();
+            assertEquals(8, capture.messages().size());
+            assertFalse(capture.messages().contains("dropped"));
+            waitFor(() -> warnings.messages().contains("Async log buffer full, dropped 5 messages"));
+        } finally {
+            release.countDown();
+            warnings.close();
+        }
+    }
+
+    public void testFailingArgumentDoesNotStopTheWriter() throws Exception {
+        Capture capture = new Capture();
+        Capture errors = new Capture(BUFFER_LOGGER);
+        try {
+            Object broken = new Object() {
+                @Override
+                public String toString() {
+                    throw new IllegalStateException("broken");
+                }
+            };
+            LogRingBuffer buffer = new LogRingBuffer(8);
+            buffer.offer(capture.logger, Level.INFO, "bad {}", 1, 0, 0, broken, null);
+            buffer.offer(capture.logger, Level.INFO, "good", 0, 0, 0, null, null);
+            buffer.flush();
+
+            assertEquals(List.of("good"), capture.messages());
+            LogRecord error = errors.records().get(0);
+            assertEquals(Level.SEVERE, error.getLevel());
+            assertEquals("broken", error.getThrown().getMessage());
+        } finally {
+            errors.close();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Collects the records published to a logger instead of printing them.
+     */
+    private static class Capture extends Handler {
+
+        final Logger logger;
+        private final boolean useParentHandlers;
+        private final List<LogRecord> records = new ArrayList<>();
+
+        Capture() {
+            this(Logger.getAnonymousLogger());
+        }
+
+        Capture(Logger logger) {
+            this.logger = logger;
+            this.useParentHandlers = logger.getUseParentHandlers();
+            logger.setUseParentHandlers(false);
+            logger.addHandler(this);
+        }
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        synchronized List<LogRecord> records() {
+            return new ArrayList<>(records);
+        }
+
+        List<String> messages() {
+            return records().stream().map(LogRecord::getMessage).toList();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            logger.removeHandler(this);
+            logger.setUseParentHandlers(useParentHandlers);
+        }
+    }
+}